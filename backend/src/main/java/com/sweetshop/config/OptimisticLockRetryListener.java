@@ -0,0 +1,73 @@
+package com.sweetshop.config;
+
+import com.sweetshop.dto.ContentionResponse;
+import com.sweetshop.entity.StoreStockId;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts optimistic lock conflicts per operation and per sweet. The per-sweet counts show
+ * which rows are hot enough to need a different strategy than retrying.
+ */
+@Component("optimisticLockRetryListener")
+public class OptimisticLockRetryListener implements RetryListener {
+    
+    private static final int MAX_TRACKED_SWEETS = 10_000;
+    
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<Long, LongAdder> conflictsBySweet = new ConcurrentHashMap<>();
+    
+    public OptimisticLockRetryListener(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+    
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback,
+                                                 Throwable throwable) {
+        if (!(throwable instanceof ObjectOptimisticLockingFailureException conflict)) {
+            return;
+        }
+        counter("sweetshop.optimistic_lock.conflicts", context).increment();
+        
+        // stock conflicts are on a store's row; attribute them to the sweet
+        Long sweetId = conflict.getIdentifier() instanceof StoreStockId stock ? stock.getSweetId()
+                : conflict.getIdentifier() instanceof Long id ? id : null;
+        if (sweetId != null
+                && (conflictsBySweet.size() < MAX_TRACKED_SWEETS || conflictsBySweet.containsKey(sweetId))) {
+            conflictsBySweet.computeIfAbsent(sweetId, k -> new LongAdder()).increment();
+        }
+    }
+    
+    @Override
+    public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback,
+                                               Throwable throwable) {
+        if (throwable instanceof ObjectOptimisticLockingFailureException) {
+            counter("sweetshop.optimistic_lock.exhausted", context).increment();
+        }
+    }
+    
+    public List<ContentionResponse> getHottestSweets(int limit) {
+        return conflictsBySweet.entrySet().stream()
+                .map(entry -> new ContentionResponse(entry.getKey(), entry.getValue().sum()))
+                .sorted(Comparator.comparingLong(ContentionResponse::getConflicts).reversed())
+                .limit(limit)
+                .toList();
+    }
+    
+    private Counter counter(String name, RetryContext context) {
+        Object operation = context.getAttribute(RetryContext.NAME);
+        return meterRegistry.counter(name, "operation", operation != null ? operation.toString() : "unknown");
+    }
+}
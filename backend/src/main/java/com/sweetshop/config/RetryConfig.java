@@ -0,0 +1,10 @@
+package com.sweetshop.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.annotation.EnableRetry;
+
+// Retry advice is ordered ahead of @Transactional, so every attempt runs in a fresh transaction
+@Configuration
+@EnableRetry
+public class RetryConfig {
+}
@@ -0,0 +1,187 @@
+package com.sweetshop.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seeds a large synthetic catalog and user base for load testing when
+ * {@code seed.synthetic.enabled=true}. Each chunk of rows is generated from its own seeded
+ * RNG, so a chunk always produces the same rows, and is inserted as one JDBC batch in a
+ * transaction together with its {@code seed_progress} row. Chunks run in parallel and
+ * completed chunks are skipped, so an interrupted run resumes where it stopped and a
+ * finished run is a no-op.
+ */
+@Slf4j
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@ConditionalOnProperty(name = "seed.synthetic.enabled", havingValue = "true")
+public class SyntheticDataSeeder implements CommandLineRunner {
+    
+    private static final String INSERT_USER = "INSERT INTO users "
+            + "(username, email, password, role, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SWEET = "INSERT INTO sweets "
+            + "(name, category, price, quantity, description, version, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, 0, ?, ?)";
+    private static final String INSERT_PROGRESS = "INSERT INTO seed_progress "
+            + "(chunk_key, dataset, row_count, completed_at) VALUES (?, ?, ?, ?)";
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    
+    private static final String[] CATEGORIES = {
+            "Chocolate", "Gummy", "Toffee", "Lollipop", "Truffle",
+            "Caramel", "Licorice", "Marshmallow", "Fudge", "Hard Candy"
+    };
+    private static final String[] FLAVORS = {
+            "Strawberry", "Mint", "Orange", "Vanilla", "Hazelnut", "Raspberry",
+            "Lemon", "Cherry", "Coconut", "Salted Caramel", "Mango", "Espresso"
+    };
+    private static final String[] STYLES = {
+            "Classic", "Dark", "Creamy", "Sour", "Crunchy", "Golden", "Mini", "Giant", "Fizzy", "Smoky"
+    };
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final SyntheticSeedProperties properties;
+    
+    public SyntheticDataSeeder(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               PasswordEncoder passwordEncoder,
+                               SyntheticSeedProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.passwordEncoder = passwordEncoder;
+        this.properties = properties;
+    }
+    
+    @Override
+    public void run(String... args) throws Exception {
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        // BCrypt is deliberately slow; one hash shared by every synthetic user
+        String passwordHash = passwordEncoder.encode(properties.getPassword());
+        
+        seed("users", properties.getUsers(), INSERT_USER, (random, index) -> {
+            String username = String.format("synthetic_user_%07d", index + 1);
+            return new Object[]{username, username + "@example.com", passwordHash, "USER", createdAt, createdAt};
+        });
+        seed("sweets", properties.getSweets(), INSERT_SWEET, (random, index) -> {
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            String flavor = FLAVORS[random.nextInt(FLAVORS.length)];
+            String name = STYLES[random.nextInt(STYLES.length)] + " " + flavor + " " + category + " #" + (index + 1);
+            BigDecimal price = BigDecimal.valueOf(50 + random.nextInt(1951), 2);
+            String description = "Synthetic " + flavor.toLowerCase() + " " + category.toLowerCase();
+            return new Object[]{name, category, price, random.nextInt(501), description, createdAt, createdAt};
+        });
+    }
+    
+    void seed(String table, long total, String sql, RowGenerator generator) throws InterruptedException {
+        int chunkSize = properties.getChunkSize();
+        String dataset = table + ":seed=" + properties.getRandomSeed() + ":chunk=" + chunkSize;
+        long chunks = (total + chunkSize - 1) / chunkSize;
+        Set<Long> completed = completedChunks(dataset);
+        long pendingRows = total - completed.stream().mapToLong(chunk -> rowsInChunk(chunk, total, chunkSize)).sum();
+        if (pendingRows <= 0) {
+            log.info("Synthetic {} already seeded ({} rows)", table, total);
+            return;
+        }
+        
+        int threads = properties.getThreads() > 0 ? properties.getThreads() : Runtime.getRuntime().availableProcessors();
+        log.info("Seeding {} of {} synthetic {} with {} threads", pendingRows, total, table, threads);
+        
+        AtomicLong written = new AtomicLong();
+        AtomicLong nextReport = new AtomicLong(System.nanoTime() + REPORT_INTERVAL_NANOS);
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long chunk = 0; chunk < chunks; chunk++) {
+                if (completed.contains(chunk)) {
+                    continue;
+                }
+                long index = chunk;
+                futures.add(executor.submit(() -> {
+                    int rows = writeChunk(dataset, index, total, sql, generator);
+                    long done = written.addAndGet(rows);
+                    long now = System.nanoTime();
+                    long due = nextReport.get();
+                    if (now >= due && nextReport.compareAndSet(due, now + REPORT_INTERVAL_NANOS)) {
+                        log.info("Seeding {}: {}/{} rows, {} rows/s", table, done, pendingRows, rate(done, start, now));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Seeding " + table + " failed after " + written.get()
+                    + " rows; completed chunks are kept and skipped on the next run", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        long end = System.nanoTime();
+        log.info("Seeded {} synthetic {} in {} ms ({} rows/s)", written.get(), table,
+                TimeUnit.NANOSECONDS.toMillis(end - start), rate(written.get(), start, end));
+    }
+    
+    private int writeChunk(String dataset, long chunk, long total, String sql, RowGenerator generator) {
+        int chunkSize = properties.getChunkSize();
+        int rows = (int) rowsInChunk(chunk, total, chunkSize);
+        SplittableRandom random = new SplittableRandom(properties.getRandomSeed() * 1_000_003L + dataset.hashCode() + chunk);
+        List<Object[]> batch = new ArrayList<>(rows);
+        for (long index = chunk * chunkSize; index < chunk * chunkSize + rows; index++) {
+            batch.add(generator.row(random, index));
+        }
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(sql, batch);
+            jdbcTemplate.update(INSERT_PROGRESS, dataset + "#" + chunk, dataset, rows,
+                    Timestamp.valueOf(LocalDateTime.now()));
+        });
+        return rows;
+    }
+    
+    private Set<Long> completedChunks(String dataset) {
+        Set<Long> chunks = new HashSet<>();
+        for (String key : jdbcTemplate.queryForList(
+                "SELECT chunk_key FROM seed_progress WHERE dataset = ?", String.class, dataset)) {
+            chunks.add(Long.parseLong(key.substring(key.lastIndexOf('#') + 1)));
+        }
+        return chunks;
+    }
+    
+    private static long rowsInChunk(long chunk, long total, int chunkSize) {
+        return Math.max(0, Math.min(chunkSize, total - chunk * chunkSize));
+    }
+    
+    private static long rate(long rows, long startNanos, long endNanos) {
+        return rows * TimeUnit.SECONDS.toNanos(1) / Math.max(1, endNanos - startNanos);
+    }
+    
+    @FunctionalInterface
+    interface RowGenerator {
+        Object[] row(SplittableRandom random, long index);
+    }
+}
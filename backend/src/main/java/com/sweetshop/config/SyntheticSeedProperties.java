@@ -0,0 +1,28 @@
+package com.sweetshop.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "seed.synthetic")
+public class SyntheticSeedProperties {
+    
+    private boolean enabled = false;
+    
+    private long sweets = 1_000_000;
+    
+    private long users = 100_000;
+    
+    // rows per JDBC batch and per transaction; changing it starts a new dataset
+    private int chunkSize = 1_000;
+    
+    // 0 uses one thread per core; keep below the write pool size
+    private int threads = 0;
+    
+    private long randomSeed = 42;
+    
+    // every synthetic user gets this password, hashed once
+    private String password = "password123";
+}
@@ -0,0 +1,90 @@
+package com.sweetshop.controller;
+
+import com.sweetshop.config.OptimisticLockRetryListener;
+import com.sweetshop.dto.AuditEntryResponse;
+import com.sweetshop.dto.AuditLogResponse;
+import com.sweetshop.dto.CacheRegionResponse;
+import com.sweetshop.dto.ContentionResponse;
+import com.sweetshop.dto.LogSamplingRequest;
+import com.sweetshop.dto.LogSamplingResponse;
+import com.sweetshop.entity.AuditEntry;
+import com.sweetshop.logging.DebugLogSampler;
+import com.sweetshop.service.AuditService;
+import com.sweetshop.service.CacheStatisticsService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+    
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    private final DebugLogSampler debugLogSampler;
+    private final OptimisticLockRetryListener optimisticLockRetryListener;
+    private final CacheStatisticsService cacheStatisticsService;
+    private final AuditService auditService;
+    
+    @GetMapping("/logging/sampling")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<LogSamplingResponse> getLogSampling() {
+        return ResponseEntity.ok(new LogSamplingResponse(debugLogSampler.getRate()));
+    }
+    
+    @PutMapping("/logging/sampling")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<LogSamplingResponse> setLogSampling(@Valid @RequestBody LogSamplingRequest request) {
+        debugLogSampler.setRate(request.getRate());
+        return ResponseEntity.ok(new LogSamplingResponse(debugLogSampler.getRate()));
+    }
+    
+    @GetMapping("/contention")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<ContentionResponse>> getContention(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(optimisticLockRetryListener.getHottestSweets(RequestParams.positive("limit", limit)));
+    }
+    
+    @GetMapping("/cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<CacheRegionResponse>> getCacheRegions() {
+        return ResponseEntity.ok(cacheStatisticsService.getRegions());
+    }
+    
+    @GetMapping("/audit")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<AuditLogResponse> getAuditLog(
+            @RequestParam(required = false) Long sweetId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Page<AuditEntry> entries = auditService.getEntries(sweetId,
+                Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+        return ResponseEntity.ok(new AuditLogResponse(
+                entries.getContent().stream().map(this::toResponse).toList(),
+                entries.getNumber(),
+                entries.getSize(),
+                entries.getTotalElements(),
+                entries.getTotalPages()
+        ));
+    }
+    
+    private AuditEntryResponse toResponse(AuditEntry entry) {
+        return new AuditEntryResponse(
+                entry.getId(),
+                entry.getActorId(),
+                entry.getActor(),
+                entry.getAction(),
+                entry.getSweetId(),
+                entry.getStoreId(),
+                entry.getBeforeState(),
+                entry.getAfterState(),
+                entry.getCreatedAt()
+        );
+    }
+}
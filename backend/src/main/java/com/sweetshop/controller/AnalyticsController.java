@@ -0,0 +1,42 @@
+package com.sweetshop.controller;
+
+import com.sweetshop.dto.HourlySalesResponse;
+import com.sweetshop.dto.SalesWindowResponse;
+import com.sweetshop.dto.TopSellerResponse;
+import com.sweetshop.service.SalesAnalyticsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analytics")
+@RequiredArgsConstructor
+public class AnalyticsController {
+    
+    private final SalesAnalyticsService salesAnalyticsService;
+    
+    @GetMapping("/revenue")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<SalesWindowResponse>> getRevenue() {
+        return ResponseEntity.ok(salesAnalyticsService.getRevenue());
+    }
+    
+    @GetMapping("/top-sellers")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<TopSellerResponse>> getTopSellers(
+            @RequestParam(defaultValue = "24h") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(salesAnalyticsService.getTopSellers(
+                SalesAnalyticsService.Window.fromLabel(window), RequestParams.positive("limit", limit)));
+    }
+    
+    @GetMapping("/categories/hourly")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<HourlySalesResponse>> getHourlySalesByCategory(
+            @RequestParam(defaultValue = "24") int hours) {
+        return ResponseEntity.ok(salesAnalyticsService.getHourlySalesByCategory(hours));
+    }
+}
@@ -2,6 +2,7 @@ package com.sweetshop.controller;
 
 import com.sweetshop.dto.AuthResponse;
 import com.sweetshop.dto.LoginRequest;
+import com.sweetshop.dto.RefreshRequest;
 import com.sweetshop.dto.RegisterRequest;
 import com.sweetshop.entity.User;
 import com.sweetshop.security.JwtTokenProvider;
@@ -19,6 +20,8 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 public class AuthController {
     
+    private static final String BEARER_PREFIX = "Bearer ";
+    
     private final AuthService authService;
     private final JwtTokenProvider tokenProvider;
     
@@ -27,7 +30,7 @@ public class AuthController {
         User user = authService.registerUser(request);
         
         return ResponseEntity.status(HttpStatus.CREATED).body(
-                new AuthResponse(null, user.getId(), user.getUsername(), 
+                new AuthResponse(null, null, user.getId(), user.getUsername(), 
                         user.getEmail(), user.getRole().name())
         );
     }
@@ -35,16 +38,32 @@ public class AuthController {
     @PostMapping("/login")
     public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest request) {
         Authentication authentication = authService.authenticateUser(request);
-        
-        String jwt = tokenProvider.generateToken(authentication);
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         
         User user = authService.findByUsername(userDetails.getUsername())
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        return ResponseEntity.ok(
-                new AuthResponse(jwt, user.getId(), user.getUsername(), 
-                        user.getEmail(), user.getRole().name())
-        );
+        return ResponseEntity.ok(toAuthResponse(user));
+    }
+    
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshRequest request) {
+        User user = authService.refresh(request.getRefreshToken());
+        return ResponseEntity.ok(toAuthResponse(user));
+    }
+    
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @Valid @RequestBody RefreshRequest request) {
+        String accessToken = authorization != null && authorization.startsWith(BEARER_PREFIX)
+                ? authorization.substring(BEARER_PREFIX.length()) : null;
+        authService.logout(accessToken, request.getRefreshToken());
+        return ResponseEntity.noContent().build();
+    }
+    
+    private AuthResponse toAuthResponse(User user) {
+        return new AuthResponse(tokenProvider.generateAccessToken(user), authService.issueRefreshToken(user),
+                user.getId(), user.getUsername(), user.getEmail(), user.getRole().name());
     }
 }
@@ -0,0 +1,66 @@
+package com.sweetshop.controller;
+
+import com.sweetshop.dto.OrderHistoryResponse;
+import com.sweetshop.dto.PurchaseOrderResponse;
+import com.sweetshop.entity.PurchaseOrder;
+import com.sweetshop.security.UserDetailsImpl;
+import com.sweetshop.service.PurchaseOrderService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/orders")
+@RequiredArgsConstructor
+public class OrderController {
+    
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    private final PurchaseOrderService purchaseOrderService;
+    
+    @GetMapping
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<OrderHistoryResponse> getMyOrders(
+            @AuthenticationPrincipal UserDetailsImpl user,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(getHistory(user.getId(), page, size));
+    }
+    
+    @GetMapping("/users/{userId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<OrderHistoryResponse> getUserOrders(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(getHistory(userId, page, size));
+    }
+    
+    private OrderHistoryResponse getHistory(Long userId, int page, int size) {
+        Page<PurchaseOrder> orders = purchaseOrderService.getHistory(userId,
+                Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+        return new OrderHistoryResponse(
+                orders.getContent().stream().map(this::toResponse).toList(),
+                orders.getNumber(),
+                orders.getSize(),
+                orders.getTotalElements(),
+                orders.getTotalPages()
+        );
+    }
+    
+    private PurchaseOrderResponse toResponse(PurchaseOrder order) {
+        return new PurchaseOrderResponse(
+                order.getId(),
+                order.getSweetId(),
+                order.getSweetName(),
+                order.getCategory(),
+                order.getQuantity(),
+                order.getUnitPrice(),
+                order.getTotalPrice(),
+                order.getCreatedAt()
+        );
+    }
+}
@@ -0,0 +1,70 @@
+package com.sweetshop.controller;
+
+import com.sweetshop.dto.PriceChangeResponse;
+import com.sweetshop.dto.PriceScheduleRequest;
+import com.sweetshop.dto.SweetPriceResponse;
+import com.sweetshop.entity.PriceChange;
+import com.sweetshop.service.SweetService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/sweets/{sweetId}/prices")
+@RequiredArgsConstructor
+public class PriceController {
+    
+    private final SweetService sweetService;
+    
+    @GetMapping
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<List<PriceChangeResponse>> getPriceHistory(@PathVariable Long sweetId) {
+        return ResponseEntity.ok(sweetService.getPriceHistory(sweetId).stream()
+                .map(this::toResponse)
+                .toList());
+    }
+    
+    @GetMapping("/effective")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<SweetPriceResponse> getPriceAt(
+            @PathVariable Long sweetId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        LocalDateTime time = at != null ? at : LocalDateTime.now();
+        return ResponseEntity.ok(new SweetPriceResponse(sweetId, time, sweetService.getPriceAt(sweetId, at)));
+    }
+    
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PriceChangeResponse> schedulePrice(
+            @PathVariable Long sweetId,
+            @Valid @RequestBody PriceScheduleRequest request) {
+        PriceChange change = sweetService.schedulePrice(sweetId, request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(change));
+    }
+    
+    @DeleteMapping("/{priceChangeId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> cancelScheduledPrice(@PathVariable Long sweetId, @PathVariable Long priceChangeId) {
+        sweetService.cancelScheduledPrice(sweetId, priceChangeId);
+        return ResponseEntity.noContent().build();
+    }
+    
+    private PriceChangeResponse toResponse(PriceChange change) {
+        return new PriceChangeResponse(
+                change.getId(),
+                change.getSweetId(),
+                change.getPrice(),
+                change.getEffectiveFrom(),
+                change.getEffectiveTo(),
+                change.getCreatedBy(),
+                change.getCreatedAt()
+        );
+    }
+}
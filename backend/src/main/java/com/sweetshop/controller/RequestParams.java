@@ -0,0 +1,20 @@
+package com.sweetshop.controller;
+
+import com.sweetshop.exception.InvalidRequestException;
+
+/**
+ * Checks on query parameters that the services would otherwise reject with an {@link IllegalArgumentException},
+ * which is reported as a server error.
+ */
+final class RequestParams {
+    
+    private RequestParams() {
+    }
+    
+    static int positive(String name, int value) {
+        if (value < 1) {
+            throw new InvalidRequestException(name + " must be at least 1");
+        }
+        return value;
+    }
+}
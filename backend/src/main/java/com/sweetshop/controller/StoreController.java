@@ -0,0 +1,41 @@
+package com.sweetshop.controller;
+
+import com.sweetshop.dto.StoreRequest;
+import com.sweetshop.dto.StoreResponse;
+import com.sweetshop.entity.Store;
+import com.sweetshop.service.StoreService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stores")
+@RequiredArgsConstructor
+public class StoreController {
+    
+    private final StoreService storeService;
+    
+    @GetMapping
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<List<StoreResponse>> getAllStores() {
+        return ResponseEntity.ok(storeService.getAllStores().stream()
+                .map(this::toResponse)
+                .toList());
+    }
+    
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StoreResponse> createStore(@Valid @RequestBody StoreRequest request) {
+        Store store = storeService.createStore(request.getCode(), request.getName());
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(store));
+    }
+    
+    private StoreResponse toResponse(Store store) {
+        return new StoreResponse(store.getId(), store.getCode(), store.getName(), store.getCreatedAt());
+    }
+}
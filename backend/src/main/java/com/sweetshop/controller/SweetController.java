@@ -1,11 +1,25 @@
 package com.sweetshop.controller;
 
+import com.sweetshop.dto.LowStockResponse;
 import com.sweetshop.dto.PurchaseRequest;
 import com.sweetshop.dto.RestockRequest;
+import com.sweetshop.dto.SearchHitResponse;
+import com.sweetshop.dto.StoreStockResponse;
 import com.sweetshop.dto.SweetRequest;
 import com.sweetshop.dto.SweetResponse;
+import com.sweetshop.dto.SweetStatsResponse;
+import com.sweetshop.dto.ThresholdRequest;
 import com.sweetshop.entity.Sweet;
+import com.sweetshop.exception.ErrorResponse;
+import com.sweetshop.service.IdempotencyService;
+import com.sweetshop.service.InventoryOperations;
+import com.sweetshop.service.LowStockService;
+import com.sweetshop.service.PurchaseResult;
+import com.sweetshop.service.SweetCatalog;
+import com.sweetshop.service.SweetSearchService;
 import com.sweetshop.service.SweetService;
+import com.sweetshop.service.SweetStatsService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -14,8 +28,8 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.security.Principal;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/sweets")
@@ -23,29 +37,30 @@ import java.util.stream.Collectors;
 public class SweetController {
     
     private final SweetService sweetService;
+    private final SweetStatsService sweetStatsService;
+    private final LowStockService lowStockService;
+    private final IdempotencyService idempotencyService;
+    private final InventoryOperations inventory;
+    private final SweetSearchService sweetSearchService;
+    private final SweetCatalog sweetCatalog;
     
     @PostMapping
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<SweetResponse> createSweet(@Valid @RequestBody SweetRequest request) {
-        Sweet sweet = sweetService.createSweet(request);
+        Sweet sweet = inventory.createSweet(request);
         return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(sweet));
     }
     
     @GetMapping
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<List<SweetResponse>> getAllSweets() {
-        List<Sweet> sweets = sweetService.getAllSweets();
-        List<SweetResponse> responses = sweets.stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok(sweetCatalog.getAllSweets());
     }
     
     @GetMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<SweetResponse> getSweetById(@PathVariable Long id) {
-        Sweet sweet = sweetService.getSweetById(id);
-        return ResponseEntity.ok(toResponse(sweet));
+        return ResponseEntity.ok(sweetCatalog.getSweet(id));
     }
     
     @GetMapping("/search")
@@ -59,54 +74,121 @@ public class SweetController {
         List<Sweet> sweets = sweetService.searchSweets(name, category, minPrice, maxPrice);
         List<SweetResponse> responses = sweets.stream()
                 .map(this::toResponse)
-                .collect(Collectors.toList());
+                .toList();
         return ResponseEntity.ok(responses);
     }
     
+    @GetMapping("/search/ranked")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<List<SearchHitResponse>> searchRanked(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(sweetSearchService.search(q, limit));
+    }
+    
+    @GetMapping("/{id}/stock")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<List<StoreStockResponse>> getStoreStock(@PathVariable Long id) {
+        List<StoreStockResponse> responses = inventory.getStoreStock(id).stream()
+                .map(stock -> new StoreStockResponse(stock.getStoreId(), stock.getQuantity(), stock.getUpdatedAt()))
+                .toList();
+        return ResponseEntity.ok(responses);
+    }
+    
+    @GetMapping("/stats")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<SweetStatsResponse> getStats() {
+        return ResponseEntity.ok(sweetStatsService.getStats());
+    }
+    
+    @GetMapping("/low-stock")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<LowStockResponse>> getLowStock(
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(lowStockService.getLowStock(RequestParams.positive("limit", limit)));
+    }
+    
+    @PutMapping("/{id}/threshold")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SweetResponse> setReorderThreshold(
+            @PathVariable Long id,
+            @Valid @RequestBody ThresholdRequest request) {
+        Sweet sweet = sweetService.setReorderThreshold(id, request.getThreshold());
+        return ResponseEntity.ok(toResponse(sweet));
+    }
+    
+    @PutMapping("/categories/{category}/threshold")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> setCategoryThreshold(
+            @PathVariable String category,
+            @Valid @RequestBody ThresholdRequest request) {
+        lowStockService.setCategoryThreshold(category, request.getThreshold());
+        return ResponseEntity.noContent().build();
+    }
+    
     @PutMapping("/{id}")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<SweetResponse> updateSweet(
             @PathVariable Long id,
             @Valid @RequestBody SweetRequest request) {
-        Sweet sweet = sweetService.updateSweet(id, request);
+        Sweet sweet = inventory.updateSweet(id, request);
         return ResponseEntity.ok(toResponse(sweet));
     }
     
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteSweet(@PathVariable Long id) {
-        sweetService.deleteSweet(id);
+        inventory.deleteSweet(id);
         return ResponseEntity.noContent().build();
     }
     
     @PostMapping("/{id}/purchase")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<SweetResponse> purchaseSweet(
+    public ResponseEntity<?> purchaseSweet(
             @PathVariable Long id,
-            @Valid @RequestBody PurchaseRequest request) {
-        Sweet sweet = sweetService.purchaseSweet(id, request.getQuantity());
-        return ResponseEntity.ok(toResponse(sweet));
+            @Valid @RequestBody PurchaseRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Principal principal,
+            HttpServletRequest httpRequest) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            // sold-out and unknown sweets are answered without throwing
+            PurchaseResult result = inventory.purchaseSweet(id, request.getStoreId(), request.getQuantity());
+            if (!result.isSuccess()) {
+                HttpStatus status = result.getStatus() == PurchaseResult.Status.NOT_FOUND
+                        ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST;
+                return ResponseEntity.status(status)
+                        .body(ErrorResponse.of(status, result.getMessage(), httpRequest.getRequestURI()));
+            }
+            return ResponseEntity.ok(toResponse(result.getSweet()));
+        }
+        
+        // a failed purchase must release the key, which the idempotency service does on an exception
+        SweetResponse response = idempotencyService.execute(principal.getName(), idempotencyKey,
+                "purchase:" + id + ":" + request.getQuantity() + ":" + request.getStoreId(),
+                () -> {
+                    PurchaseResult result = inventory.purchaseSweet(id, request.getStoreId(), request.getQuantity());
+                    if (!result.isSuccess()) {
+                        throw result.toException();
+                    }
+                    return toResponse(result.getSweet());
+                });
+        return ResponseEntity.ok(response);
     }
     
     @PostMapping("/{id}/restock")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<SweetResponse> restockSweet(
             @PathVariable Long id,
-            @Valid @RequestBody RestockRequest request) {
-        Sweet sweet = sweetService.restockSweet(id, request.getQuantity());
-        return ResponseEntity.ok(toResponse(sweet));
+            @Valid @RequestBody RestockRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Principal principal) {
+        SweetResponse response = idempotencyService.execute(principal.getName(), idempotencyKey,
+                "restock:" + id + ":" + request.getQuantity() + ":" + request.getStoreId(),
+                () -> toResponse(inventory.restockSweet(id, request.getStoreId(), request.getQuantity())));
+        return ResponseEntity.ok(response);
     }
     
     private SweetResponse toResponse(Sweet sweet) {
-        return new SweetResponse(
-                sweet.getId(),
-                sweet.getName(),
-                sweet.getCategory(),
-                sweet.getPrice(),
-                sweet.getQuantity(),
-                sweet.getDescription(),
-                sweet.getCreatedAt(),
-                sweet.getUpdatedAt()
-        );
+        return SweetResponse.of(sweet);
     }
 }
@@ -0,0 +1,25 @@
+package com.sweetshop.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditEntryResponse {
+    private Long id;
+    private Long actorId;
+    private String actor;
+    private String action;
+    private Long sweetId;
+    private Long storeId;
+    @JsonRawValue
+    private String before;
+    @JsonRawValue
+    private String after;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,18 @@
+package com.sweetshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditLogResponse {
+    private List<AuditEntryResponse> entries;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+}
@@ -10,13 +10,15 @@ import lombok.NoArgsConstructor;
 public class AuthResponse {
     private String token;
     private String type = "Bearer";
+    private String refreshToken;
     private Long id;
     private String username;
     private String email;
     private String role;
     
-    public AuthResponse(String token, Long id, String username, String email, String role) {
+    public AuthResponse(String token, String refreshToken, Long id, String username, String email, String role) {
         this.token = token;
+        this.refreshToken = refreshToken;
         this.id = id;
         this.username = username;
         this.email = email;
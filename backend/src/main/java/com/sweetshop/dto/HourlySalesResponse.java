@@ -0,0 +1,17 @@
+package com.sweetshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HourlySalesResponse {
+    private LocalDateTime hour;
+    private long unitsSold;
+    private Map<String, Long> unitsByCategory;
+}
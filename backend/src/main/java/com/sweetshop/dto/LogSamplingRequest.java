@@ -0,0 +1,19 @@
+package com.sweetshop.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogSamplingRequest {
+    
+    @NotNull(message = "Rate is required")
+    @DecimalMin(value = "0.0", message = "Rate must be between 0 and 1")
+    @DecimalMax(value = "1.0", message = "Rate must be between 0 and 1")
+    private Double rate;
+}
@@ -0,0 +1,16 @@
+package com.sweetshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LowStockResponse {
+    private Long id;
+    private String name;
+    private String category;
+    private Integer quantity;
+    private Integer threshold;
+}
@@ -0,0 +1,18 @@
+package com.sweetshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderHistoryResponse {
+    private List<PurchaseOrderResponse> orders;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+}
@@ -0,0 +1,21 @@
+package com.sweetshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceChangeResponse {
+    private Long id;
+    private Long sweetId;
+    private BigDecimal price;
+    private LocalDateTime effectiveFrom;
+    private LocalDateTime effectiveTo;
+    private String createdBy;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,26 @@
+package com.sweetshop.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceScheduleRequest {
+    
+    @NotNull(message = "Price is required")
+    @DecimalMin(value = "0.01", message = "Price must be greater than 0")
+    private BigDecimal price;
+    
+    // null starts the price immediately
+    private LocalDateTime effectiveFrom;
+    
+    // null keeps the price until another one replaces it
+    private LocalDateTime effectiveTo;
+}
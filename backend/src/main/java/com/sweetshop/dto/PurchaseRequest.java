@@ -14,4 +14,7 @@ public class PurchaseRequest {
     @NotNull(message = "Quantity is required")
     @Min(value = 1, message = "Quantity must be at least 1")
     private Integer quantity;
+    
+    // null routes the request to the default store
+    private Long storeId;
 }
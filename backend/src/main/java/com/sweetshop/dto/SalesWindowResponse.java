@@ -0,0 +1,16 @@
+package com.sweetshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesWindowResponse {
+    private String window;
+    private long unitsSold;
+    private BigDecimal revenue;
+}
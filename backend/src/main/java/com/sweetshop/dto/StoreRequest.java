@@ -0,0 +1,20 @@
+package com.sweetshop.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreRequest {
+    
+    @NotBlank(message = "Code is required")
+    @Size(max = 32, message = "Code must not exceed 32 characters")
+    private String code;
+    
+    @NotBlank(message = "Name is required")
+    private String name;
+}
@@ -0,0 +1,17 @@
+package com.sweetshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreResponse {
+    private Long id;
+    private String code;
+    private String name;
+    private LocalDateTime createdAt;
+}
@@ -29,4 +29,7 @@ public class SweetRequest {
     
     @Size(max = 1000, message = "Description must not exceed 1000 characters")
     private String description;
+    
+    // the version the client last read; an update is refused if the sweet has changed since
+    private Long version;
 }
@@ -1,5 +1,6 @@
 package com.sweetshop.dto;
 
+import com.sweetshop.entity.Sweet;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -17,6 +18,23 @@ public class SweetResponse {
     private BigDecimal price;
     private Integer quantity;
     private String description;
+    private Integer reorderThreshold;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version;
+    
+    public static SweetResponse of(Sweet sweet) {
+        return new SweetResponse(
+                sweet.getId(),
+                sweet.getName(),
+                sweet.getCategory(),
+                sweet.getPrice(),
+                sweet.getQuantity(),
+                sweet.getDescription(),
+                sweet.getReorderThreshold(),
+                sweet.getCreatedAt(),
+                sweet.getUpdatedAt(),
+                sweet.getVersion()
+        );
+    }
 }
@@ -0,0 +1,16 @@
+package com.sweetshop.dto;
+
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThresholdRequest {
+    
+    // null clears an explicit threshold so the category or default one applies again
+    @Min(value = 0, message = "Threshold must be at least 0")
+    private Integer threshold;
+}
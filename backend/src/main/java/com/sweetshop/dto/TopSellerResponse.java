@@ -0,0 +1,18 @@
+package com.sweetshop.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopSellerResponse {
+    private Long sweetId;
+    private String name;
+    private String category;
+    private long unitsSold;
+    private BigDecimal revenue;
+}
@@ -0,0 +1,50 @@
+package com.sweetshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One audited change to a sweet. Rows are appended in batches by {@code AuditService} and never updated.
+ */
+@Entity
+@Table(name = "audit_log", indexes = {
+        @Index(name = "idx_audit_log_sweet_created", columnList = "sweet_id, created_at"),
+        @Index(name = "idx_audit_log_created", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditEntry {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column
+    private Long actorId;
+    
+    @Column(nullable = false)
+    private String actor;
+    
+    @Column(nullable = false, length = 20)
+    private String action;
+    
+    @Column(nullable = false)
+    private Long sweetId;
+    
+    @Column
+    private Long storeId;
+    
+    @Column(length = 2000)
+    private String beforeState;
+    
+    @Column(length = 2000)
+    private String afterState;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
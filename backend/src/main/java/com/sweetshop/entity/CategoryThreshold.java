@@ -0,0 +1,21 @@
+package com.sweetshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "category_thresholds")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryThreshold {
+    
+    @Id
+    @Column(nullable = false)
+    private String category;
+    
+    @Column(nullable = false)
+    private Integer threshold;
+}
@@ -0,0 +1,30 @@
+package com.sweetshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "idempotency_keys")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+    
+    @Id
+    @Column(nullable = false, length = 64, columnDefinition = "CHAR(64)")
+    private String keyHash;
+    
+    @Column(nullable = false)
+    private String fingerprint;
+    
+    // null while the request that claimed the key is still running
+    @Column(columnDefinition = "TEXT")
+    private String response;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,49 @@
+package com.sweetshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A committed purchase waiting to be moved into {@link PurchaseOrder}. Written in the purchase's
+ * transaction and deleted by {@code PurchaseOrderService} once copied.
+ */
+@Entity
+@Table(name = "purchase_order_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingPurchaseOrder {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false)
+    private Long sweetId;
+    
+    @Column(nullable = false)
+    private String sweetName;
+    
+    @Column(nullable = false)
+    private String category;
+    
+    @Column(nullable = false)
+    private Integer quantity;
+    
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal unitPrice;
+    
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal totalPrice;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,50 @@
+package com.sweetshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A price that applies to a sweet from {@code effectiveFrom} until {@code effectiveTo}
+ * (open-ended when null). Where rows overlap, the one that started last wins, so a
+ * bounded promotion overrides the regular price while it runs.
+ */
+@Entity
+@Table(name = "price_changes",
+        indexes = @Index(name = "idx_price_changes_sweet_from", columnList = "sweet_id, effective_from"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceChange {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long sweetId;
+    
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal price;
+    
+    @Column(nullable = false)
+    private LocalDateTime effectiveFrom;
+    
+    @Column
+    private LocalDateTime effectiveTo;
+    
+    @Column
+    private String createdBy;
+    
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,49 @@
+package com.sweetshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One completed purchase. Rows are appended in batches by {@code PurchaseOrderService} and never updated.
+ */
+@Entity
+@Table(name = "purchase_orders",
+        indexes = @Index(name = "idx_purchase_orders_user_created", columnList = "user_id, created_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurchaseOrder {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long userId;
+    
+    @Column(nullable = false)
+    private Long sweetId;
+    
+    @Column(nullable = false)
+    private String sweetName;
+    
+    @Column(nullable = false)
+    private String category;
+    
+    @Column(nullable = false)
+    private Integer quantity;
+    
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal unitPrice;
+    
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal totalPrice;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
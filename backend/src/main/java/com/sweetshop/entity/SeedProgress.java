@@ -0,0 +1,33 @@
+package com.sweetshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marks one completed chunk of synthetic seed data, keyed by {@code dataset#chunk}.
+ */
+@Entity
+@Table(name = "seed_progress",
+        indexes = @Index(name = "idx_seed_progress_dataset", columnList = "dataset"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeedProgress {
+    
+    @Id
+    @Column(nullable = false, length = 191)
+    private String chunkKey;
+    
+    @Column(nullable = false, length = 160)
+    private String dataset;
+    
+    @Column(nullable = false)
+    private Integer rowCount;
+    
+    @Column(nullable = false)
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,45 @@
+package com.sweetshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock of one sweet at one store. Purchases and restocks check and update this row
+ * under its own version, so stores never conflict with each other; the total across
+ * stores is kept in {@code sweets.quantity}.
+ */
+@Entity
+@Table(name = "store_stock",
+        indexes = @Index(name = "idx_store_stock_sweet", columnList = "sweet_id"))
+@IdClass(StoreStockId.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreStock {
+    
+    @Id
+    private Long storeId;
+    
+    @Id
+    private Long sweetId;
+    
+    @Column(nullable = false)
+    private Integer quantity;
+    
+    @Version
+    @Column(nullable = false)
+    private Long version;
+    
+    @Column
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,15 @@
+package com.sweetshop.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoreStockId implements Serializable {
+    private Long storeId;
+    private Long sweetId;
+}
@@ -0,0 +1,36 @@
+package com.sweetshop.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A committed change of a sweet, written by the node that made it. {@code version} is the
+ * sweet's version after the change and null when the sweet was deleted.
+ */
+@Entity
+@Table(name = "sweet_invalidations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SweetInvalidation {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private Long sweetId;
+    
+    @Column
+    private Long version;
+    
+    @Column(nullable = false, length = 64)
+    private String nodeId;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,30 @@
+package com.sweetshop.event;
+
+import com.sweetshop.security.UserDetailsImpl;
+import lombok.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * The user a change is attributed to. {@code id} is null for changes made outside an
+ * authenticated request, such as data seeding.
+ */
+@Value
+public class Actor {
+    public static final Actor SYSTEM = new Actor(null, "system");
+    
+    Long id;
+    String username;
+    
+    public static Actor current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return SYSTEM;
+        }
+        if (authentication.getPrincipal() instanceof UserDetailsImpl user) {
+            return new Actor(user.getId(), user.getUsername());
+        }
+        return new Actor(null, authentication.getName());
+    }
+}
@@ -0,0 +1,12 @@
+package com.sweetshop.event;
+
+import lombok.Value;
+
+/**
+ * Published when a price change is recorded or cancelled for a sweet whose schedule
+ * is tracked in memory, so the index reloads that sweet after commit.
+ */
+@Value
+public class PriceScheduleChangedEvent {
+    Long sweetId;
+}
@@ -0,0 +1,17 @@
+package com.sweetshop.event;
+
+import lombok.Value;
+
+/**
+ * Published when a sweet's quantity drops to or below its reorder threshold, or
+ * climbs back above it.
+ */
+@Value
+public class StockThresholdCrossedEvent {
+    Long sweetId;
+    String name;
+    String category;
+    int quantity;
+    int threshold;
+    boolean low;
+}
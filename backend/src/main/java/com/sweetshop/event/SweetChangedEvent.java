@@ -0,0 +1,49 @@
+package com.sweetshop.event;
+
+import com.sweetshop.entity.Sweet;
+import lombok.Value;
+
+/**
+ * Published by {@code SweetService} for every stock or catalog mutation.
+ * {@code before} is null for creations and {@code after} is null for deletions.
+ * The factories attribute the change to the user authenticated on the calling thread.
+ * Quantities are totals across stores; {@code storeId} names the store of a purchase or
+ * restock and is null for catalog changes.
+ */
+@Value
+public class SweetChangedEvent {
+    Action action;
+    SweetSnapshot before;
+    SweetSnapshot after;
+    Actor actor;
+    Long storeId;
+    
+    public static SweetChangedEvent created(Sweet sweet) {
+        return new SweetChangedEvent(Action.CREATED, null, SweetSnapshot.of(sweet), Actor.current(), null);
+    }
+    
+    public static SweetChangedEvent changed(Action action, SweetSnapshot before, Sweet sweet) {
+        return new SweetChangedEvent(action, before, SweetSnapshot.of(sweet), Actor.current(), null);
+    }
+    
+    public static SweetChangedEvent stockChanged(Action action, SweetSnapshot before, Sweet sweet, Long storeId) {
+        return new SweetChangedEvent(action, before, SweetSnapshot.of(sweet), Actor.current(), storeId);
+    }
+    
+    public static SweetChangedEvent stockChanged(Action action, SweetSnapshot before, SweetSnapshot after,
+                                                 Actor actor, Long storeId) {
+        return new SweetChangedEvent(action, before, after, actor, storeId);
+    }
+    
+    public static SweetChangedEvent deleted(SweetSnapshot before) {
+        return new SweetChangedEvent(Action.DELETED, before, null, Actor.current(), null);
+    }
+    
+    public Long getSweetId() {
+        return after != null ? after.getId() : before.getId();
+    }
+    
+    public enum Action {
+        CREATED, UPDATED, PURCHASED, RESTOCKED, DELETED
+    }
+}
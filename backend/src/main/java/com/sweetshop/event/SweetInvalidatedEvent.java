@@ -0,0 +1,22 @@
+package com.sweetshop.event;
+
+import lombok.Value;
+
+/**
+ * Published on a node when another node changed a sweet, so that whatever this node keeps
+ * of the sweet can be dropped or reloaded. A null {@code sweetId} means the node fell too far
+ * behind to replay the changes and everything it keeps of sweets is stale.
+ */
+@Value
+public class SweetInvalidatedEvent {
+    Long sweetId;
+    Long version;
+    
+    public static SweetInvalidatedEvent all() {
+        return new SweetInvalidatedEvent(null, null);
+    }
+    
+    public boolean isAll() {
+        return sweetId == null;
+    }
+}
@@ -0,0 +1,33 @@
+package com.sweetshop.event;
+
+import com.sweetshop.entity.Sweet;
+import lombok.Value;
+import lombok.With;
+
+import java.math.BigDecimal;
+
+@Value
+public class SweetSnapshot {
+    Long id;
+    String name;
+    String category;
+    BigDecimal price;
+    @With
+    Integer quantity;
+    Integer reorderThreshold;
+    // the row version once the change commits; later changes to a sweet carry higher versions
+    @With
+    Long version;
+    
+    public static SweetSnapshot of(Sweet sweet) {
+        return new SweetSnapshot(
+                sweet.getId(),
+                sweet.getName(),
+                sweet.getCategory(),
+                sweet.getPrice(),
+                sweet.getQuantity(),
+                sweet.getReorderThreshold(),
+                sweet.getVersion()
+        );
+    }
+}
@@ -1,7 +1,8 @@
 package com.sweetshop.exception;
 
+// an expected outcome mapped to 400, so the stack trace is never used and is not filled in
 public class InsufficientStockException extends RuntimeException {
     public InsufficientStockException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
@@ -0,0 +1,8 @@
+package com.sweetshop.exception;
+
+// a request the client has to change before it can succeed; the message is shown to the client
+public class InvalidRequestException extends RuntimeException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
@@ -1,7 +1,8 @@
 package com.sweetshop.exception;
 
+// an expected outcome mapped to 404, so the stack trace is never used and is not filled in
 public class ResourceNotFoundException extends RuntimeException {
     public ResourceNotFoundException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
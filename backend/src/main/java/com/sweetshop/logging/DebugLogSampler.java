@@ -0,0 +1,40 @@
+package com.sweetshop.logging;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which requests get DEBUG logging. The rate can be changed at runtime and is
+ * read with a single volatile load per request.
+ */
+@Component
+public class DebugLogSampler {
+    
+    public static final String MDC_KEY = "debugSample";
+    
+    private static final int SCALE = 1_000_000;
+    
+    private volatile int threshold;
+    
+    public DebugLogSampler(@Value("${logging.sampling.debug-rate:0.0}") double rate) {
+        setRate(rate);
+    }
+    
+    public boolean sample() {
+        int current = threshold;
+        return current > 0 && (current >= SCALE || ThreadLocalRandom.current().nextInt(SCALE) < current);
+    }
+    
+    public double getRate() {
+        return threshold / (double) SCALE;
+    }
+    
+    public void setRate(double rate) {
+        if (rate < 0.0 || rate > 1.0) {
+            throw new IllegalArgumentException("Sampling rate must be between 0 and 1");
+        }
+        threshold = (int) Math.round(rate * SCALE);
+    }
+}
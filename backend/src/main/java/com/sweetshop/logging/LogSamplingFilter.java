@@ -0,0 +1,43 @@
+package com.sweetshop.logging;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Marks sampled requests in the MDC so {@link SampledDebugTurboFilter} lets their DEBUG
+ * output through. Runs ahead of the security filter chain so its trace is sampled too.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class LogSamplingFilter extends OncePerRequestFilter {
+    
+    private final DebugLogSampler sampler;
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!sampler.sample()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        MDC.put(DebugLogSampler.MDC_KEY, "1");
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(DebugLogSampler.MDC_KEY);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.sweetshop.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accepts DEBUG events from the configured logger prefixes while the current request is
+ * sampled, and stays neutral otherwise. Configured in logback-spring.xml.
+ */
+public class SampledDebugTurboFilter extends TurboFilter {
+    
+    private final List<String> loggerPrefixes = new ArrayList<>();
+    
+    public void addLoggerPrefix(String prefix) {
+        loggerPrefixes.add(prefix);
+    }
+    
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level != Level.DEBUG || MDC.get(DebugLogSampler.MDC_KEY) == null) {
+            return FilterReply.NEUTRAL;
+        }
+        
+        String name = logger.getName();
+        for (int i = 0; i < loggerPrefixes.size(); i++) {
+            if (name.startsWith(loggerPrefixes.get(i))) {
+                return FilterReply.ACCEPT;
+            }
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
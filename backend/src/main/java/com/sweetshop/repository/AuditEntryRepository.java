@@ -0,0 +1,14 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.AuditEntry;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AuditEntryRepository extends JpaRepository<AuditEntry, Long> {
+    Page<AuditEntry> findAllByOrderByCreatedAtDesc(Pageable pageable);
+    
+    Page<AuditEntry> findBySweetIdOrderByCreatedAtDesc(Long sweetId, Pageable pageable);
+}
@@ -0,0 +1,9 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.CategoryThreshold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CategoryThresholdRepository extends JpaRepository<CategoryThreshold, String> {
+}
@@ -0,0 +1,30 @@
+package com.sweetshop.repository;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Adds {@code fulltext_match(name, description, query)} to HQL, the relevance of a row for a
+ * boolean-mode query such as {@code +dark* +choc*}; positive when the row matches. On MySQL it
+ * is {@code MATCH ... AGAINST}, served by the FULLTEXT index on the two columns. Databases
+ * without one (H2 in tests) get a substring match of the query's words, in order, instead.
+ * Registered through META-INF/services.
+ */
+public class FullTextFunctionContributor implements FunctionContributor {
+    
+    static final String FULLTEXT_MATCH = "fulltext_match";
+    
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicType<Double> relevance = functionContributions.getTypeConfiguration().getBasicTypeRegistry()
+                .resolve(StandardBasicTypes.DOUBLE);
+        String pattern = functionContributions.getDialect() instanceof MySQLDialect
+                ? "match(?1, ?2) against (?3 in boolean mode)"
+                : "case when lower(concat(?1, ' ', coalesce(?2, ''))) "
+                  + "like concat('%', replace(replace(?3, '+', ''), '*', ''), '%') then 1.0 else 0.0 end";
+        functionContributions.getFunctionRegistry().registerPattern(FULLTEXT_MATCH, pattern, relevance);
+    }
+}
@@ -0,0 +1,41 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    
+    /**
+     * Claims a key; the primary key makes a second claim fail, on any instance.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO idempotency_keys (key_hash, fingerprint, created_at) " +
+                   "VALUES (:keyHash, :fingerprint, :createdAt)", nativeQuery = true)
+    void insertClaim(@Param("keyHash") String keyHash,
+                     @Param("fingerprint") String fingerprint,
+                     @Param("createdAt") LocalDateTime createdAt);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.response = :response WHERE r.keyHash = :keyHash")
+    int complete(@Param("keyHash") String keyHash, @Param("response") String response);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.keyHash = :keyHash AND r.createdAt < :cutoff")
+    int deleteExpired(@Param("keyHash") String keyHash, @Param("cutoff") LocalDateTime cutoff);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
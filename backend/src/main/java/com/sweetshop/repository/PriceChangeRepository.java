@@ -0,0 +1,36 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.PriceChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PriceChangeRepository extends JpaRepository<PriceChange, Long> {
+    List<PriceChange> findBySweetIdOrderByEffectiveFromDescIdDesc(Long sweetId);
+    boolean existsBySweetId(Long sweetId);
+    
+    @Query("SELECT p FROM PriceChange p WHERE p.sweetId = :sweetId AND p.effectiveFrom <= :at " +
+           "AND (p.effectiveTo IS NULL OR p.effectiveTo > :at) ORDER BY p.effectiveFrom DESC, p.id DESC")
+    List<PriceChange> findEffectiveAt(
+        @Param("sweetId") Long sweetId,
+        @Param("at") LocalDateTime at,
+        Pageable pageable
+    );
+    
+    @Query("SELECT DISTINCT p.sweetId FROM PriceChange p WHERE p.effectiveFrom > :now OR p.effectiveTo > :now")
+    List<Long> findSweetIdsWithUpcomingChanges(@Param("now") LocalDateTime now);
+    
+    @Query("SELECT p FROM PriceChange p WHERE p.sweetId IN :sweetIds " +
+           "AND (p.effectiveTo IS NULL OR p.effectiveTo > :now)")
+    List<PriceChange> findNotEndedBySweetIds(
+        @Param("sweetIds") Collection<Long> sweetIds,
+        @Param("now") LocalDateTime now
+    );
+}
@@ -0,0 +1,42 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.RefreshTokenRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshTokenRecord, String> {
+    
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO refresh_tokens (token_id, user_id, expires_at) " +
+                   "VALUES (:tokenId, :userId, :expiresAt)", nativeQuery = true)
+    void insert(@Param("tokenId") String tokenId,
+                @Param("userId") Long userId,
+                @Param("expiresAt") LocalDateTime expiresAt);
+    
+    /**
+     * Consumes an unexpired token; of concurrent redemptions, on any instance, only one
+     * deletes the row and sees 1.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshTokenRecord r WHERE r.tokenId = :tokenId AND r.expiresAt > :now")
+    int redeem(@Param("tokenId") String tokenId, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshTokenRecord r WHERE r.tokenId = :tokenId")
+    int revoke(@Param("tokenId") String tokenId);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshTokenRecord r WHERE r.expiresAt <= :now")
+    int deleteExpiredBefore(@Param("now") LocalDateTime now);
+}
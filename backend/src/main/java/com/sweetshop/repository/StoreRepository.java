@@ -0,0 +1,10 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.Store;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StoreRepository extends JpaRepository<Store, Long> {
+    boolean existsByCode(String code);
+}
@@ -0,0 +1,33 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.StoreStock;
+import com.sweetshop.entity.StoreStockId;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StoreStockRepository extends JpaRepository<StoreStock, StoreStockId> {
+    List<StoreStock> findBySweetIdOrderByStoreId(Long sweetId);
+    
+    @Modifying
+    @Query("DELETE FROM StoreStock s WHERE s.sweetId = :sweetId")
+    void deleteBySweetId(@Param("sweetId") Long sweetId);
+    
+    // sweets written straight to the table (sample and synthetic data) get all their stock at one store;
+    // naming the table keeps Hibernate from clearing every cache region after this native statement
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "store_stock"))
+    @Query(value = "INSERT INTO store_stock (store_id, sweet_id, quantity, version, updated_at) " +
+                   "SELECT :storeId, s.id, s.quantity, 0, CURRENT_TIMESTAMP FROM sweets s " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM store_stock st WHERE st.sweet_id = s.id)",
+           nativeQuery = true)
+    int assignUnstockedSweets(@Param("storeId") Long storeId);
+}
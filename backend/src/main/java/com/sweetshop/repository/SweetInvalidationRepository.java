@@ -0,0 +1,27 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.SweetInvalidation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SweetInvalidationRepository extends JpaRepository<SweetInvalidation, Long> {
+    
+    List<SweetInvalidation> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    @Query("SELECT COALESCE(MAX(i.id), 0) FROM SweetInvalidation i")
+    long findMaxId();
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SweetInvalidation i WHERE i.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
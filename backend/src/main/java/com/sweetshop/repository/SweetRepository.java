@@ -10,17 +10,25 @@ import java.math.BigDecimal;
 import java.util.List;
 
 @Repository
-public interface SweetRepository extends JpaRepository<Sweet, Long> {
+public interface SweetRepository extends JpaRepository<Sweet, Long>, SweetRepositoryCustom {
     List<Sweet> findByCategory(String category);
-    List<Sweet> findByNameContainingIgnoreCase(String name);
     
+    /**
+     * Sweets whose lowercased name starts with the prefix, a range scan of idx_sweets_name_lower.
+     */
+    List<Sweet> findByNameLowerStartingWith(String prefix);
+    
+    /**
+     * Filters sweets; each argument may be null. {@code query} is a boolean-mode full-text
+     * query over name and description, served by ft_sweets_name_description.
+     */
     @Query("SELECT s FROM Sweet s WHERE " +
-           "(:name IS NULL OR LOWER(s.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
-           "(:category IS NULL OR LOWER(s.category) = LOWER(:category)) AND " +
+           "(:query IS NULL OR fulltext_match(s.name, s.description, :query) > 0) AND " +
+           "(:category IS NULL OR s.category = :category) AND " +
            "(:minPrice IS NULL OR s.price >= :minPrice) AND " +
            "(:maxPrice IS NULL OR s.price <= :maxPrice)")
     List<Sweet> searchSweets(
-        @Param("name") String name,
+        @Param("query") String query,
         @Param("category") String category,
         @Param("minPrice") BigDecimal minPrice,
         @Param("maxPrice") BigDecimal maxPrice
@@ -0,0 +1,13 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.Sweet;
+
+import java.util.Optional;
+
+public interface SweetRepositoryCustom {
+    /**
+     * Adds {@code delta} to the sweet's cross-store total in the database and returns the sweet
+     * as it is after the change, or empty when there is no such sweet.
+     */
+    Optional<Sweet> adjustQuantity(Long id, int delta);
+}
@@ -0,0 +1,77 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.Sweet;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Cache;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Changes the total with a relative update, so purchases of a sweet at different stores only
+ * wait for each other's row lock for the length of the statement, not for a read-modify-write.
+ * The statement goes through the session's connection rather than JPQL: a bulk update would
+ * drop the whole sweets cache region, while this drops just the one entry, and again once the
+ * transaction ends in case a concurrent load cached the old row in between.
+ */
+public class SweetRepositoryCustomImpl implements SweetRepositoryCustom {
+    
+    private static final String ADJUST_SQL =
+            "UPDATE sweets SET quantity = quantity + ?, version = version + 1, updated_at = ? WHERE id = ?";
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public Optional<Sweet> adjustQuantity(Long id, int delta) {
+        Session session = entityManager.unwrap(Session.class);
+        Sweet sweet = session.find(Sweet.class, id);
+        if (sweet == null) {
+            return Optional.empty();
+        }
+        // pending changes to the sweet would otherwise be lost to the refresh below
+        session.flush();
+        int updated = session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(ADJUST_SQL)) {
+                statement.setInt(1, delta);
+                statement.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                statement.setLong(3, id);
+                return statement.executeUpdate();
+            }
+        });
+        if (updated == 0) {
+            return Optional.empty();
+        }
+        evict(session, id);
+        
+        // the refreshed row is not committed yet, so it must not reach the shared cache
+        CacheMode cacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.IGNORE);
+        try {
+            session.refresh(sweet);
+        } finally {
+            session.setCacheMode(cacheMode);
+        }
+        return Optional.of(sweet);
+    }
+    
+    private static void evict(Session session, Long id) {
+        Cache cache = session.getSessionFactory().getCache();
+        cache.evictEntityData(Sweet.class, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evictEntityData(Sweet.class, id);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.User;
+
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+    Optional<User> findByUsername(String username);
+}
@@ -0,0 +1,28 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Looks users up by their natural id so the username-to-id resolution and the user itself
+ * come from the second-level cache; a derived query would always go to the database.
+ */
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    // unwrapping the shared EntityManager needs a transaction, otherwise the session is already closed
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<User> findByUsername(String username) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .loadOptional(username);
+    }
+}
@@ -1,59 +1,174 @@
 package com.sweetshop.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sweetshop.entity.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.Authentication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Date;
+import java.util.UUID;
 
+/**
+ * Issues and verifies HMAC-signed tokens. Access tokens are short-lived and carry the user
+ * id and role, so a request is authenticated from the token alone; refresh tokens live
+ * longer, are exchanged for a new pair and are the only point where the user is read
+ * again. Whether a refresh token is still unused is recorded in the database by the caller;
+ * access tokens are revoked by their id through {@link TokenRevocationList}.
+ * <p>
+ * Verifying a token with JJWT allocates tens of kilobytes (Base64 and JSON decoding), so
+ * access tokens that verified once are remembered with their principal and expiry; a
+ * client sending the same token again skips the parse. The whole token string, signature
+ * included, is the key, so only byte-identical tokens hit. Revocation is checked on hits too.
+ */
 @Component
+@ImportRuntimeHints(JjwtRuntimeHints.class)
 public class JwtTokenProvider {
     
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    private static final int VERIFIED_TOKEN_CACHE_SIZE = 10_000;
+    private static final String TYPE = "typ";
+    private static final String USER_ID = "uid";
+    private static final String ROLE = "role";
+    private static final String ACCESS = "access";
+    private static final String REFRESH = "refresh";
     
-    @Value("${jwt.expiration}")
-    private long jwtExpirationMs;
+    // the key and the parser are immutable and thread-safe, so they are built once instead of per token
+    private final SecretKey key;
+    private final JwtParser parser;
+    private final long jwtExpirationMs;
+    private final long refreshExpirationMs;
+    private final TokenRevocationList revocations;
+    private final Cache<String, VerifiedToken> verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(VERIFIED_TOKEN_CACHE_SIZE)
+            .build();
     
-    public String generateToken(Authentication authentication) {
-        UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
-        
-        Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
-        
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
-        
-        return Jwts.builder()
-                .subject(userPrincipal.getUsername())
-                .issuedAt(now)
-                .expiration(expiryDate)
-                .signWith(key)
+    public JwtTokenProvider(@Value("${jwt.secret}") String jwtSecret,
+                            @Value("${jwt.expiration}") long jwtExpirationMs,
+                            @Value("${jwt.refresh-expiration:604800000}") long refreshExpirationMs,
+                            TokenRevocationList revocations) {
+        this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.refreshExpirationMs = refreshExpirationMs;
+        this.revocations = revocations;
+    }
+    
+    public String generateAccessToken(User user) {
+        return build(user, ACCESS, UUID.randomUUID().toString(), new Date(System.currentTimeMillis() + jwtExpirationMs))
+                .claim(ROLE, user.getRole().name())
                 .compact();
     }
     
-    public String getUsernameFromToken(String token) {
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
-        
-        Claims claims = Jwts.parser()
-                .verifyWith(key)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        
-        return claims.getSubject();
+    public RefreshToken generateRefreshToken(User user) {
+        String tokenId = UUID.randomUUID().toString();
+        Date expiresAt = new Date(System.currentTimeMillis() + refreshExpirationMs);
+        String value = build(user, REFRESH, tokenId, expiresAt).compact();
+        return new RefreshToken(value, tokenId, user.getId(), toLocalDateTime(expiresAt));
     }
     
     public boolean validateToken(String authToken) {
+        return getPrincipalIfValid(authToken) != null;
+    }
+    
+    public String getUsernameIfValid(String token) {
+        UserDetailsImpl principal = getPrincipalIfValid(token);
+        return principal != null ? principal.getUsername() : null;
+    }
+    
+    /**
+     * Verifies an access token and returns the user it was issued to, or {@code null} when
+     * the token is invalid, expired, revoked or a refresh token. Roles are those at issue.
+     */
+    public UserDetailsImpl getPrincipalIfValid(String token) {
+        VerifiedToken verified = verifiedTokens.getIfPresent(token);
+        if (verified == null) {
+            Claims claims = parse(token, ACCESS);
+            if (claims == null) {
+                return null;
+            }
+            UserDetailsImpl principal = UserDetailsImpl.of(claims.get(USER_ID, Long.class), claims.getSubject(),
+                    User.Role.valueOf(claims.get(ROLE, String.class)));
+            verified = new VerifiedToken(principal, claims.getId(), claims.getExpiration().getTime());
+            verifiedTokens.put(token, verified);
+        }
+        
+        if (System.currentTimeMillis() >= verified.expiresAtMillis) {
+            verifiedTokens.invalidate(token);
+            return null;
+        }
+        return revocations.isRevoked(verified.tokenId) ? null : verified.principal;
+    }
+    
+    /**
+     * Verifies the signature and expiry of a refresh token, or returns {@code null}. Whether
+     * it has been redeemed already is not known here.
+     */
+    public RefreshToken readRefreshToken(String token) {
+        Claims claims = parse(token, REFRESH);
+        if (claims == null) {
+            return null;
+        }
+        return new RefreshToken(token, claims.getId(), claims.get(USER_ID, Long.class),
+                toLocalDateTime(claims.getExpiration()));
+    }
+    
+    /**
+     * Revokes an access token on this instance; anything else, or a token that is invalid
+     * or expired already, is ignored.
+     */
+    public void revokeAccessToken(String token) {
+        Claims claims = parse(token, ACCESS);
+        if (claims != null) {
+            revocations.revoke(claims.getId(), claims.getExpiration().getTime());
+        }
+    }
+    
+    private JwtBuilder build(User user, String type, String tokenId, Date expiresAt) {
+        return Jwts.builder()
+                .id(tokenId)
+                .subject(user.getUsername())
+                .claim(TYPE, type)
+                .claim(USER_ID, user.getId())
+                .issuedAt(new Date())
+                .expiration(expiresAt)
+                .signWith(key);
+    }
+    
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+    
+    // the claims of a valid token of the given type (any type if null), or null
+    private Claims parse(String token, String type) {
         try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
-            Jwts.parser().verifyWith(key).build().parseSignedClaims(authToken);
-            return true;
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            if (claims.getId() == null || claims.getExpiration() == null || claims.get(USER_ID) == null
+                    || (type != null && !type.equals(claims.get(TYPE, String.class)))
+                    || (ACCESS.equals(type) && claims.get(ROLE) == null)) {
+                return null;
+            }
+            return claims;
         } catch (JwtException | IllegalArgumentException e) {
-            // Log the exception in production
+            return null;
+        }
+    }
+    
+    private static final class VerifiedToken {
+        private final UserDetailsImpl principal;
+        private final String tokenId;
+        private final long expiresAtMillis;
+        
+        private VerifiedToken(UserDetailsImpl principal, String tokenId, long expiresAtMillis) {
+            this.principal = principal;
+            this.tokenId = tokenId;
+            this.expiresAtMillis = expiresAtMillis;
         }
-        return false;
     }
 }
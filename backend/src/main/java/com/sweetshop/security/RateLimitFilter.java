@@ -0,0 +1,117 @@
+package com.sweetshop.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-route token bucket rate limiting, applied after JWT authentication. Authenticated
+ * clients are keyed by user id, so one user shares a bucket across tokens and addresses;
+ * everyone else, including requests with a token that did not verify, is keyed by remote
+ * address. Rejections write a fixed body and never reach the rest of the chain.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    
+    private static final byte[] REJECTED_BODY =
+            "{\"status\":429,\"error\":\"Too Many Requests\"}".getBytes(StandardCharsets.UTF_8);
+    
+    private final boolean enabled;
+    private final List<RouteLimiter> limiters = new ArrayList<>();
+    
+    public RateLimitFilter(RateLimitProperties properties) {
+        this.enabled = properties.isEnabled();
+        PathPatternParser parser = new PathPatternParser();
+        for (RateLimitProperties.Route route : properties.getRoutes()) {
+            limiters.add(new RouteLimiter(parser.parse(route.getPattern()), route, properties));
+        }
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RouteLimiter limiter = enabled ? findLimiter(request) : null;
+        if (limiter == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        long waitNanos = limiter.tryAcquire(clientKey(request), System.nanoTime());
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", Long.toString(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(REJECTED_BODY.length);
+        response.getOutputStream().write(REJECTED_BODY);
+    }
+    
+    private RouteLimiter findLimiter(HttpServletRequest request) {
+        if (limiters.isEmpty()) {
+            return null;
+        }
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        String method = request.getMethod();
+        for (int i = 0; i < limiters.size(); i++) {
+            RouteLimiter limiter = limiters.get(i);
+            if ((limiter.method == null || limiter.method.equals(method)) && limiter.pattern.matches(path)) {
+                return limiter;
+            }
+        }
+        return null;
+    }
+    
+    // user ids are Longs and addresses Strings, so the two kinds of key never collide
+    private Object clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl user) {
+            return user.getId();
+        }
+        return request.getRemoteAddr();
+    }
+    
+    private static final class RouteLimiter {
+        private final PathPattern pattern;
+        private final String method;
+        private final long intervalNanos;
+        private final long burstToleranceNanos;
+        private final Cache<Object, TokenBucket> buckets;
+        
+        private RouteLimiter(PathPattern pattern, RateLimitProperties.Route route, RateLimitProperties properties) {
+            this.pattern = pattern;
+            this.method = route.getMethod();
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / route.getRefillPerSecond());
+            this.burstToleranceNanos = (route.getCapacity() - 1) * intervalNanos;
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(properties.getMaxClients())
+                    .expireAfterAccess(properties.getIdleExpiry())
+                    .build();
+        }
+        
+        private long tryAcquire(Object clientKey, long now) {
+            return buckets.get(clientKey, key -> new TokenBucket()).tryAcquire(now, intervalNanos, burstToleranceNanos);
+        }
+    }
+}
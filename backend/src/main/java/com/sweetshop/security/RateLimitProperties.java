@@ -0,0 +1,33 @@
+package com.sweetshop.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+    
+    private boolean enabled = true;
+    
+    // upper bound on tracked clients per route; least recently used buckets are evicted first
+    private long maxClients = 100_000;
+    
+    private Duration idleExpiry = Duration.ofMinutes(10);
+    
+    // evaluated in order, the first matching route applies
+    private List<Route> routes = new ArrayList<>();
+    
+    @Data
+    public static class Route {
+        private String pattern;
+        private String method;
+        private int capacity;
+        private double refillPerSecond;
+    }
+}
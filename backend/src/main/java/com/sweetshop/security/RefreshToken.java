@@ -0,0 +1,19 @@
+package com.sweetshop.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A signed refresh token with the claims needed to record and redeem it.
+ */
+@Getter
+@AllArgsConstructor
+public final class RefreshToken {
+    
+    private final String value;
+    private final String tokenId;
+    private final Long userId;
+    private final LocalDateTime expiresAt;
+}
@@ -0,0 +1,33 @@
+package com.sweetshop.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm: the whole bucket
+ * state is one "theoretical arrival time", updated with a CAS. Taking a token allocates
+ * nothing.
+ */
+public final class TokenBucket {
+    
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+    
+    /**
+     * @param now               current {@link System#nanoTime()}
+     * @param intervalNanos     time it takes to refill one token
+     * @param burstToleranceNanos {@code (capacity - 1) * intervalNanos}
+     * @return 0 if a token was taken, otherwise nanos until the next one is available
+     */
+    public long tryAcquire(long now, long intervalNanos, long burstToleranceNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long start = Math.max(current, now);
+            long waitNanos = start - burstToleranceNanos - now;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, start + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+}
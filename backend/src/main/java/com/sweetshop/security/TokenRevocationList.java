@@ -0,0 +1,41 @@
+package com.sweetshop.security;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Ids (jti) of access tokens that must no longer be accepted, each kept only until the
+ * token would have expired anyway, so the set holds at most one access-token lifetime of
+ * revocations. Checked on every authenticated request, hence a hash lookup. Kept in memory
+ * per node: a revoked access token stays usable on other nodes until it expires, which the
+ * short access lifetime bounds. Refresh tokens are tracked in the database instead.
+ */
+@Component
+public class TokenRevocationList {
+    
+    private final ConcurrentMap<String, Long> expiryByTokenId = new ConcurrentHashMap<>();
+    
+    /**
+     * Revokes the token; false if it was already revoked.
+     */
+    public boolean revoke(String tokenId, long expiresAtMillis) {
+        return expiryByTokenId.putIfAbsent(tokenId, expiresAtMillis) == null;
+    }
+    
+    public boolean isRevoked(String tokenId) {
+        return expiryByTokenId.containsKey(tokenId);
+    }
+    
+    @Scheduled(fixedDelayString = "${jwt.revocation.prune-interval-ms:60000}")
+    public void prune() {
+        long now = System.currentTimeMillis();
+        expiryByTokenId.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+    
+    public int size() {
+        return expiryByTokenId.size();
+    }
+}
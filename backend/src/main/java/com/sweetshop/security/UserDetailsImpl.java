@@ -9,12 +9,23 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
-import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 @Data
 @AllArgsConstructor
 public class UserDetailsImpl implements UserDetails {
     
+    // one immutable authority list per role, shared by every authenticated request
+    private static final Map<User.Role, List<GrantedAuthority>> AUTHORITIES = new EnumMap<>(User.Role.class);
+    
+    static {
+        for (User.Role role : User.Role.values()) {
+            AUTHORITIES.put(role, List.of(new SimpleGrantedAuthority("ROLE_" + role.name())));
+        }
+    }
+    
     private Long id;
     private String username;
     private String email;
@@ -25,17 +36,22 @@ public class UserDetailsImpl implements UserDetails {
     private Collection<? extends GrantedAuthority> authorities;
     
     public static UserDetailsImpl build(User user) {
-        GrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + user.getRole().name());
-        
         return new UserDetailsImpl(
                 user.getId(),
                 user.getUsername(),
                 user.getEmail(),
                 user.getPassword(),
-                Collections.singletonList(authority)
+                AUTHORITIES.get(user.getRole())
         );
     }
     
+    /**
+     * The principal of a verified access token, which carries no email or password.
+     */
+    public static UserDetailsImpl of(Long id, String username, User.Role role) {
+        return new UserDetailsImpl(id, username, null, null, AUTHORITIES.get(role));
+    }
+    
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
@@ -0,0 +1,69 @@
+package com.sweetshop.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue of rows that a scheduled flush writes in batches. {@link #offer} never
+ * blocks; what to do with a row that does not fit is up to the caller. A batch that fails
+ * to write is put back into the queue as far as it fits, and the rest is counted in
+ * {@code <prefix>.dropped}. Rows still queued are lost if the process dies, so this is only
+ * for records that may be lost. Publishes {@code <prefix>.queued}, {@code <prefix>.written}
+ * and {@code <prefix>.dropped}.
+ */
+@Slf4j
+final class AsyncBatchWriter<T> {
+    
+    private final String description;
+    private final BlockingQueue<T> pending;
+    private final int batchSize;
+    private final Consumer<List<T>> writer;
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    
+    AsyncBatchWriter(String description, int capacity, int batchSize, Consumer<List<T>> writer,
+                     MeterRegistry meterRegistry, String metricPrefix) {
+        this.description = description;
+        this.pending = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.writer = writer;
+        this.writtenCounter = meterRegistry.counter(metricPrefix + ".written");
+        this.droppedCounter = meterRegistry.counter(metricPrefix + ".dropped");
+        meterRegistry.gauge(metricPrefix + ".queued", pending, BlockingQueue::size);
+    }
+    
+    /**
+     * Queues {@code row} for the next flush; false if the queue is full.
+     */
+    boolean offer(T row) {
+        return pending.offer(row);
+    }
+    
+    synchronized void flush() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (pending.drainTo(batch, batchSize) > 0) {
+            try {
+                writer.accept(batch);
+                writtenCounter.increment(batch.size());
+            } catch (DataAccessException ex) {
+                int requeued = (int) batch.stream().filter(pending::offer).count();
+                droppedCounter.increment(batch.size() - requeued);
+                log.error("Could not write {} {}, {} requeued: {}", batch.size(), description, requeued, ex.getMessage());
+                return;
+            }
+            batch.clear();
+        }
+    }
+    
+    int size() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,119 @@
+package com.sweetshop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.entity.AuditEntry;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import com.sweetshop.repository.AuditEntryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Keeps an audit trail of every change to a sweet other than a purchase, which purchase
+ * history already records: who made it, the sweet before and after, and when. Changes are
+ * queued after commit and written by a scheduled flush as JDBC batches, and the snapshots
+ * are only turned into JSON there, so auditing adds no database work to the audited call.
+ * A change that finds the queue full, or whose batch fails to write and no longer fits back,
+ * is dropped and counted in {@code sweetshop.audit.dropped} rather than slowing the caller down.
+ */
+@Service
+public class AuditService {
+    
+    private static final String INSERT_SQL = "INSERT INTO audit_log "
+            + "(actor_id, actor, action, sweet_id, store_id, before_state, after_state, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private final AuditEntryRepository auditEntryRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final AsyncBatchWriter<Change> trail;
+    private final Counter droppedCounter;
+    
+    public AuditService(AuditEntryRepository auditEntryRepository,
+                        JdbcTemplate jdbcTemplate,
+                        ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry,
+                        @Value("${audit.queue-capacity:10000}") int queueCapacity,
+                        @Value("${audit.batch-size:500}") int batchSize) {
+        this.auditEntryRepository = auditEntryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.trail = new AsyncBatchWriter<>("audit entries", queueCapacity, batchSize, this::insert,
+                meterRegistry, "sweetshop.audit");
+        this.droppedCounter = meterRegistry.counter("sweetshop.audit.dropped");
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSweetChanged(SweetChangedEvent event) {
+        if (event.getAction() == SweetChangedEvent.Action.PURCHASED) {
+            return;
+        }
+        if (!trail.offer(new Change(event, LocalDateTime.now()))) {
+            droppedCounter.increment();
+        }
+    }
+    
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${audit.flush-interval-ms:1000}")
+    public void flush() {
+        trail.flush();
+    }
+    
+    @Transactional(readOnly = true)
+    public Page<AuditEntry> getEntries(Long sweetId, int page, int size) {
+        PageRequest pageable = PageRequest.of(page, size);
+        return sweetId != null
+                ? auditEntryRepository.findBySweetIdOrderByCreatedAtDesc(sweetId, pageable)
+                : auditEntryRepository.findAllByOrderByCreatedAtDesc(pageable);
+    }
+    
+    private void insert(List<Change> changes) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, changes, changes.size(), (ps, change) -> {
+            SweetChangedEvent event = change.event;
+            ps.setObject(1, event.getActor().getId(), Types.BIGINT);
+            ps.setString(2, event.getActor().getUsername());
+            ps.setString(3, event.getAction().name());
+            ps.setLong(4, event.getSweetId());
+            ps.setObject(5, event.getStoreId(), Types.BIGINT);
+            ps.setString(6, toJson(event.getBefore()));
+            ps.setString(7, toJson(event.getAfter()));
+            ps.setTimestamp(8, Timestamp.valueOf(change.at));
+        });
+    }
+    
+    private String toJson(SweetSnapshot snapshot) {
+        if (snapshot == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(snapshot);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialise sweet " + snapshot.getId(), ex);
+        }
+    }
+    
+    private static final class Change {
+        private final SweetChangedEvent event;
+        private final LocalDateTime at;
+        
+        private Change(SweetChangedEvent event, LocalDateTime at) {
+            this.event = event;
+            this.at = at;
+        }
+    }
+}
@@ -3,9 +3,14 @@ package com.sweetshop.service;
 import com.sweetshop.dto.LoginRequest;
 import com.sweetshop.dto.RegisterRequest;
 import com.sweetshop.entity.User;
+import com.sweetshop.exception.InvalidTokenException;
 import com.sweetshop.exception.UserAlreadyExistsException;
+import com.sweetshop.repository.RefreshTokenRepository;
 import com.sweetshop.repository.UserRepository;
+import com.sweetshop.security.JwtTokenProvider;
+import com.sweetshop.security.RefreshToken;
 import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -13,6 +18,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Service
@@ -22,6 +28,8 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
+    private final JwtTokenProvider tokenProvider;
+    private final RefreshTokenRepository refreshTokenRepository;
     
     @Transactional
     public User registerUser(RegisterRequest request) {
@@ -51,6 +59,47 @@ public class AuthService {
         );
     }
     
+    /**
+     * Issues a refresh token and records it as unused, so that any instance can redeem it.
+     */
+    @Transactional
+    public String issueRefreshToken(User user) {
+        RefreshToken refreshToken = tokenProvider.generateRefreshToken(user);
+        refreshTokenRepository.insert(refreshToken.getTokenId(), user.getId(), refreshToken.getExpiresAt());
+        return refreshToken.getValue();
+    }
+    
+    /**
+     * Exchanges a refresh token for the user it was issued to, re-read so that the new
+     * access token carries the current role. Redeeming deletes the token's row, so it
+     * cannot be used again on this or any other instance.
+     */
+    @Transactional
+    public User refresh(String refreshToken) {
+        RefreshToken token = tokenProvider.readRefreshToken(refreshToken);
+        if (token == null || refreshTokenRepository.redeem(token.getTokenId(), LocalDateTime.now()) == 0) {
+            throw new InvalidTokenException("Invalid or expired refresh token");
+        }
+        return userRepository.findById(token.getUserId())
+                .orElseThrow(() -> new InvalidTokenException("Invalid or expired refresh token"));
+    }
+    
+    @Transactional
+    public void logout(String accessToken, String refreshToken) {
+        if (accessToken != null) {
+            tokenProvider.revokeAccessToken(accessToken);
+        }
+        RefreshToken token = tokenProvider.readRefreshToken(refreshToken);
+        if (token != null) {
+            refreshTokenRepository.revoke(token.getTokenId());
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${jwt.refresh-prune-interval-ms:3600000}")
+    public void pruneRefreshTokens() {
+        refreshTokenRepository.deleteExpiredBefore(LocalDateTime.now());
+    }
+    
     public Optional<User> findByUsername(String username) {
         return userRepository.findByUsername(username);
     }
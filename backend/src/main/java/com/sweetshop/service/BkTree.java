@@ -0,0 +1,113 @@
+package com.sweetshop.service;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Burkhard-Keller tree of terms under Levenshtein distance. Each child hangs off its parent
+ * by their distance, so by the triangle inequality a lookup within {@code radius} of a query
+ * only descends into children whose edge lies within {@code radius} of the query's distance
+ * to the parent, and visits a small part of the vocabulary. Not thread-safe.
+ */
+final class BkTree {
+    
+    private Node root;
+    private int size;
+    
+    /**
+     * Adds {@code term} unless it is already present.
+     */
+    void add(String term) {
+        if (root == null) {
+            root = new Node(term);
+            size++;
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(term, node.term);
+            if (distance == 0) {
+                return;
+            }
+            Node child = node.child(distance);
+            if (child == null) {
+                node.setChild(distance, new Node(term));
+                size++;
+                return;
+            }
+            node = child;
+        }
+    }
+    
+    /**
+     * Passes every term within {@code radius} edits of {@code query} to {@code consumer},
+     * together with its distance.
+     */
+    void search(String query, int radius, ObjIntConsumer<String> consumer) {
+        if (root == null) {
+            return;
+        }
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(query, node.term);
+            if (distance <= radius) {
+                consumer.accept(node.term, distance);
+            }
+            int from = Math.max(1, distance - radius);
+            int to = Math.min(node.children.length - 1, distance + radius);
+            for (int edge = from; edge <= to; edge++) {
+                if (node.children[edge] != null) {
+                    pending.push(node.children[edge]);
+                }
+            }
+        }
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+    
+    private static final class Node {
+        private final String term;
+        private Node[] children = new Node[0];
+        
+        private Node(String term) {
+            this.term = term;
+        }
+        
+        private Node child(int distance) {
+            return distance < children.length ? children[distance] : null;
+        }
+        
+        private void setChild(int distance, Node child) {
+            if (distance >= children.length) {
+                children = Arrays.copyOf(children, distance + 1);
+            }
+            children[distance] = child;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.CacheRegionResponse;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hit, miss and put counts of the Hibernate second-level cache regions, including the
+ * natural-id region. Counts are kept since startup and only while
+ * {@code hibernate.generate_statistics} is on ({@code HIBERNATE_STATISTICS=true}); otherwise
+ * every count is zero. JCache regions cannot report their size, so only the counters are exposed.
+ */
+@Service
+public class CacheStatisticsService {
+    
+    private final Statistics statistics;
+    
+    public CacheStatisticsService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+    
+    public List<CacheRegionResponse> getRegions() {
+        List<CacheRegionResponse> regions = new ArrayList<>();
+        String[] names = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(names);
+        for (String name : names) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+            if (region != null) {
+                long lookups = region.getHitCount() + region.getMissCount();
+                double hitRatio = lookups == 0 ? 0 : (double) region.getHitCount() / lookups;
+                regions.add(new CacheRegionResponse(name, region.getHitCount(), region.getMissCount(),
+                        region.getPutCount(), hitRatio));
+            }
+        }
+        return regions;
+    }
+}
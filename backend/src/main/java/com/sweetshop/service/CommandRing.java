@@ -0,0 +1,81 @@
+package com.sweetshop.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer, single-consumer ring of commands. Producers claim a sequence
+ * with one atomic increment and publish by writing the slot; the consumer reads slots in
+ * sequence order and clears them. Neither side takes a lock: a full ring makes producers
+ * back off, an empty one makes the consumer park until a producer wakes it.
+ */
+final class CommandRing<T> {
+    
+    private static final long BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private volatile Thread consumer;
+    private volatile boolean consumerParked;
+    
+    CommandRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+    
+    void publish(T command) {
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed.get() >= slots.length()) {
+            LockSupport.parkNanos(this, BACKOFF_NANOS);
+        }
+        slots.set((int) sequence & mask, command);
+        if (consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+    }
+    
+    /**
+     * Moves up to {@code max} consecutive published commands into {@code batch}, parking up
+     * to {@code timeoutNanos} when none is available. Must only be called by the consumer.
+     */
+    int drainTo(List<T> batch, int max, long timeoutNanos) {
+        consumer = Thread.currentThread();
+        long next = consumed.get();
+        int index = (int) next & mask;
+        if (slots.get(index) == null) {
+            consumerParked = true;
+            // re-check after announcing the park so a concurrent publish is not missed
+            if (slots.get(index) == null) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            }
+            consumerParked = false;
+        }
+        
+        int drained = 0;
+        while (drained < max) {
+            index = (int) next & mask;
+            T command = slots.get(index);
+            if (command == null) {
+                break;
+            }
+            batch.add(command);
+            slots.set(index, null);
+            next++;
+            drained++;
+            consumed.lazySet(next);
+        }
+        return drained;
+    }
+    
+    int size() {
+        return (int) Math.max(0, claimed.get() - consumed.get());
+    }
+}
@@ -0,0 +1,28 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.SweetResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "catalog.off-heap.enabled", havingValue = "false", matchIfMissing = true)
+public class DatabaseSweetCatalog implements SweetCatalog {
+    
+    private final SweetService sweetService;
+    
+    @Override
+    public SweetResponse getSweet(Long id) {
+        return SweetResponse.of(sweetService.getSweetById(id));
+    }
+    
+    @Override
+    public List<SweetResponse> getAllSweets() {
+        return sweetService.getAllSweets().stream()
+                .map(SweetResponse::of)
+                .toList();
+    }
+}
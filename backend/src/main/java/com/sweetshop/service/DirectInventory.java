@@ -0,0 +1,53 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.SweetRequest;
+import com.sweetshop.entity.StoreStock;
+import com.sweetshop.entity.Sweet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Default {@link InventoryOperations}: every call is a transaction on the caller's thread,
+ * with purchases coalesced per sweet and store.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.engine.mode", havingValue = "database", matchIfMissing = true)
+@RequiredArgsConstructor
+public class DirectInventory implements InventoryOperations {
+    
+    private final SweetService sweetService;
+    private final PurchaseCoalescer purchaseCoalescer;
+    
+    @Override
+    public Sweet createSweet(SweetRequest request) {
+        return sweetService.createSweet(request);
+    }
+    
+    @Override
+    public Sweet updateSweet(Long id, SweetRequest request) {
+        return sweetService.updateSweet(id, request);
+    }
+    
+    @Override
+    public void deleteSweet(Long id) {
+        sweetService.deleteSweet(id);
+    }
+    
+    @Override
+    public PurchaseResult purchaseSweet(Long id, Long storeId, int quantity) {
+        return purchaseCoalescer.purchase(id, storeId, quantity);
+    }
+    
+    @Override
+    public Sweet restockSweet(Long id, Long storeId, int quantity) {
+        return sweetService.restockSweet(id, storeId, quantity);
+    }
+    
+    @Override
+    public List<StoreStock> getStoreStock(Long id) {
+        return sweetService.getStoreStock(id);
+    }
+}
@@ -0,0 +1,208 @@
+package com.sweetshop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sweetshop.dto.SweetResponse;
+import com.sweetshop.exception.IdempotencyConflictException;
+import com.sweetshop.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Replays the stored response for a repeated {@code Idempotency-Key} instead of running the
+ * operation again. Keys are scoped per user and kept in a bounded in-memory store that
+ * evicts after the TTL. Failed operations are not recorded, so the client can retry them
+ * with the same key.
+ *
+ * <p>With {@code idempotency.persist=true} a key is also claimed in {@code idempotency_keys}
+ * before the operation runs. The insert commits on its own, and the primary key lets only
+ * one instance win it; the response is written to the row once the operation succeeds.
+ * Purchases can be applied on another thread (coalesced or by the single writer), so the
+ * claim cannot share their transaction. A request cut short by a crash after its operation
+ * committed therefore leaves the key claimed without a response, and repeats are refused
+ * as in progress until it expires rather than risk applying the change twice.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+    
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final boolean persist;
+    private final ConcurrentMap<String, Entry> entries;
+    
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              ObjectMapper objectMapper,
+                              @Value("${idempotency.ttl:24h}") Duration ttl,
+                              @Value("${idempotency.max-entries:100000}") long maxEntries,
+                              @Value("${idempotency.persist:false}") boolean persist) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.persist = persist;
+        Cache<String, Entry> cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+        this.entries = cache.asMap();
+    }
+    
+    /**
+     * Runs {@code operation} once per {@code (username, key)}. A repeat with the same fingerprint
+     * returns the first response; a repeat while the first is still running, or with a
+     * different fingerprint, is rejected.
+     */
+    public SweetResponse execute(String username, String key, String fingerprint, Supplier<SweetResponse> operation) {
+        if (key == null || key.isBlank()) {
+            return operation.get();
+        }
+        
+        String scope = username + '\0' + key;
+        Entry pending = new Entry(fingerprint, null);
+        Entry existing = entries.putIfAbsent(scope, pending);
+        if (existing != null) {
+            return replay(existing, fingerprint);
+        }
+        
+        String keyHash = persist ? hash(scope) : null;
+        if (persist) {
+            Optional<Entry> owner;
+            try {
+                owner = claim(keyHash, fingerprint);
+            } catch (RuntimeException ex) {
+                entries.remove(scope, pending);
+                throw ex;
+            }
+            if (owner.isPresent()) {
+                if (owner.get().response != null) {
+                    entries.replace(scope, pending, owner.get());
+                } else {
+                    entries.remove(scope, pending);
+                }
+                return replay(owner.get(), fingerprint);
+            }
+        }
+        
+        SweetResponse response;
+        try {
+            response = operation.get();
+        } catch (RuntimeException ex) {
+            if (persist) {
+                release(keyHash);
+            }
+            entries.remove(scope, pending);
+            throw ex;
+        }
+        
+        entries.put(scope, new Entry(fingerprint, response));
+        if (persist) {
+            complete(keyHash, response);
+        }
+        return response;
+    }
+    
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        if (persist) {
+            int purged = repository.deleteCreatedBefore(LocalDateTime.now().minus(ttl));
+            if (purged > 0) {
+                log.debug("Purged {} expired idempotency keys", purged);
+            }
+        }
+    }
+    
+    private SweetResponse replay(Entry entry, String fingerprint) {
+        if (!entry.fingerprint.equals(fingerprint)) {
+            throw new IdempotencyConflictException("Idempotency-Key was already used for a different request");
+        }
+        if (entry.response == null) {
+            throw new IdempotencyConflictException("A request with this Idempotency-Key is still in progress");
+        }
+        return entry.response;
+    }
+    
+    /**
+     * Inserts the key's row, committed before the operation runs. Returns empty when this
+     * request now owns the key, otherwise the entry of the request that does.
+     */
+    private Optional<Entry> claim(String keyHash, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            try {
+                repository.insertClaim(keyHash, fingerprint, now);
+                return Optional.empty();
+            } catch (DataIntegrityViolationException ex) {
+                // an expired key the purge has not reached yet is claimed again
+                if (repository.deleteExpired(keyHash, now.minus(ttl)) == 0) {
+                    break;
+                }
+            }
+        }
+        // a row released between the insert and this read belonged to a request that just failed
+        return Optional.of(repository.findById(keyHash)
+                .map(record -> new Entry(record.getFingerprint(),
+                        record.getResponse() != null ? readResponse(record.getResponse()) : null))
+                .orElseGet(() -> new Entry(fingerprint, null)));
+    }
+    
+    private void complete(String keyHash, SweetResponse response) {
+        try {
+            repository.complete(keyHash, objectMapper.writeValueAsString(response));
+        } catch (DataAccessException | JsonProcessingException ex) {
+            // the operation has already committed; repeats are refused as in progress until the key expires
+            log.warn("Could not record the response for an idempotency key: {}", ex.getMessage());
+        }
+    }
+    
+    private void release(String keyHash) {
+        try {
+            repository.deleteById(keyHash);
+        } catch (DataAccessException ex) {
+            log.warn("Could not release idempotency key, it stays claimed until it expires: {}", ex.getMessage());
+        }
+    }
+    
+    private SweetResponse readResponse(String json) {
+        try {
+            return objectMapper.readValue(json, SweetResponse.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Corrupt idempotency record", ex);
+        }
+    }
+    
+    private static String hash(String scope) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(scope.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    private static final class Entry {
+        private final String fingerprint;
+        private final SweetResponse response;
+        
+        private Entry(String fingerprint, SweetResponse response) {
+            this.fingerprint = fingerprint;
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.sweetshop.service;
+
+/**
+ * Carries sweet changes between the nodes of a cluster, selected with
+ * {@code cluster.invalidation.bus}. {@link #publish} is called inside the transaction that
+ * made the change, once per changed sweet; changes made by other nodes are delivered on each
+ * node as {@link com.sweetshop.event.SweetInvalidatedEvent}s.
+ */
+public interface InvalidationBus {
+    
+    /**
+     * @param version the sweet's version after the change, or null if it was deleted
+     */
+    void publish(Long sweetId, Long version);
+}
@@ -0,0 +1,520 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.SweetRequest;
+import com.sweetshop.entity.StoreStock;
+import com.sweetshop.entity.StoreStockId;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.Actor;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.repository.StoreStockRepository;
+import com.sweetshop.repository.SweetRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Single-writer {@link InventoryOperations}, enabled with
+ * {@code inventory.engine.mode=single-writer}. Callers publish commands on a
+ * {@link CommandRing} and wait for their result; one writer thread owns an in-memory model
+ * of every sweet's stock per store and is the only thread that mutates stock.
+ *
+ * <p>Purchases and restocks are decided against the model, without reading or locking
+ * rows. Each drained batch of them is written in one transaction. Callers are answered
+ * only after that commit, so the database stays the system of record. The same goes for
+ * the events, which are published per command with the caller's actor. Catalog commands
+ * (create, update, delete) run through {@link SweetService} on the writer thread as the
+ * calling user, and the affected sweet is then reloaded into the model.
+ *
+ * <p>After every commit the writer publishes an immutable stock view of each sweet it
+ * touched. {@link #getStoreStock} reads those views without going to the database. The
+ * rows a batch writes are read inside its transaction and the change is applied to them
+ * as a delta; if they do not hold what the model expects, stock was changed outside the
+ * engine, so, as when a batch loses an optimistic lock (scheduled price changes), the
+ * sweets are reloaded and the batch retried. Any other failure reloads the sweets the
+ * batch touched and fails every command in it.
+ *
+ * <p>Callers wait at most {@code inventory.engine.command-timeout-ms} for their result. A
+ * command that times out may still be applied later, so the caller is told the outcome is
+ * unknown rather than that it failed. If the writer thread itself fails, every queued
+ * command is failed and the engine stops taking new ones.
+ *
+ * <p>The model only sees this node's writes, so the engine refuses to start alongside
+ * {@code cluster.invalidation.bus}, which is only set when other nodes write too.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "inventory.engine.mode", havingValue = "single-writer")
+public class InventoryEngine implements InventoryOperations {
+    
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int MAX_ATTEMPTS = 3;
+    
+    private final SweetService sweetService;
+    private final StoreService storeService;
+    private final SweetRepository sweetRepository;
+    private final StoreStockRepository storeStockRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final CommandRing<Command> ring;
+    private final int maxBatchSize;
+    private final long commandTimeoutMillis;
+    private final DistributionSummary batchSizes;
+    
+    // written by the writer thread only
+    private final Map<Long, SweetStock> model = new HashMap<>();
+    private final ConcurrentMap<Long, List<Level>> published = new ConcurrentHashMap<>();
+    
+    private volatile boolean running = true;
+    private Thread writer;
+    
+    public InventoryEngine(SweetService sweetService,
+                           StoreService storeService,
+                           SweetRepository sweetRepository,
+                           StoreStockRepository storeStockRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${inventory.engine.ring-size:8192}") int ringSize,
+                           @Value("${inventory.engine.max-batch-size:256}") int maxBatchSize,
+                           @Value("${inventory.engine.command-timeout-ms:30000}") long commandTimeoutMillis,
+                           @Value("${cluster.invalidation.bus:}") String invalidationBus) {
+        if (!invalidationBus.isEmpty()) {
+            throw new IllegalStateException("inventory.engine.mode=single-writer assumes a single instance and "
+                    + "cannot be combined with cluster.invalidation.bus=" + invalidationBus);
+        }
+        this.sweetService = sweetService;
+        this.storeService = storeService;
+        this.sweetRepository = sweetRepository;
+        this.storeStockRepository = storeStockRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ring = new CommandRing<>(ringSize);
+        this.maxBatchSize = maxBatchSize;
+        this.commandTimeoutMillis = commandTimeoutMillis;
+        this.batchSizes = meterRegistry.summary("sweetshop.inventory.engine.batch_size");
+        meterRegistry.gauge("sweetshop.inventory.engine.queued", ring, CommandRing::size);
+    }
+    
+    /**
+     * Loads the model and starts the writer. Commands published before this wait in the ring.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        load();
+        writer = new Thread(this::run, "inventory-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Inventory engine started with {} sweets", model.size());
+    }
+    
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+    
+    @Override
+    public Sweet createSweet(SweetRequest request) {
+        return (Sweet) submit(Command.catalog(Kind.CREATE, null, request));
+    }
+    
+    @Override
+    public Sweet updateSweet(Long id, SweetRequest request) {
+        return (Sweet) submit(Command.catalog(Kind.UPDATE, id, request));
+    }
+    
+    @Override
+    public void deleteSweet(Long id) {
+        submit(Command.catalog(Kind.DELETE, id, null));
+    }
+    
+    @Override
+    public PurchaseResult purchaseSweet(Long id, Long storeId, int quantity) {
+        return (PurchaseResult) submit(Command.stock(Kind.PURCHASE, id, storeService.resolve(storeId), quantity));
+    }
+    
+    @Override
+    public Sweet restockSweet(Long id, Long storeId, int quantity) {
+        return (Sweet) submit(Command.stock(Kind.RESTOCK, id, storeService.resolve(storeId), quantity));
+    }
+    
+    @Override
+    public List<StoreStock> getStoreStock(Long id) {
+        List<Level> levels = published.get(id);
+        if (levels == null) {
+            throw new ResourceNotFoundException("Sweet not found with id: " + id);
+        }
+        List<StoreStock> stock = new ArrayList<>(levels.size());
+        for (Level level : levels) {
+            stock.add(new StoreStock(level.storeId, id, level.quantity, null, level.updatedAt));
+        }
+        return stock;
+    }
+    
+    private Object submit(Command command) {
+        if (!running) {
+            throw new IllegalStateException("Inventory engine is shut down");
+        }
+        ring.publish(command);
+        try {
+            return command.result.get(commandTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new IllegalStateException("Inventory engine did not answer within " + commandTimeoutMillis
+                    + " ms; the command may still be applied");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the inventory engine; "
+                    + "the command may still be applied");
+        }
+    }
+    
+    private void run() {
+        List<Command> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || ring.size() > 0) {
+                if (ring.drainTo(batch, maxBatchSize, IDLE_PARK_NANOS) == 0) {
+                    continue;
+                }
+                batchSizes.record(batch.size());
+                try {
+                    process(batch);
+                } catch (RuntimeException ex) {
+                    log.error("Inventory engine failed to process a batch", ex);
+                    batch.forEach(command -> command.result.completeExceptionally(ex));
+                }
+                batch.clear();
+            }
+        } catch (Throwable ex) {
+            // the model may be half-applied, so the writer does not carry on with it
+            running = false;
+            log.error("Inventory writer failed, the engine no longer takes commands", ex);
+            batch.forEach(command -> command.result.completeExceptionally(ex));
+            batch.clear();
+            while (ring.drainTo(batch, Integer.MAX_VALUE, 0) > 0) {
+                batch.forEach(command -> command.result.completeExceptionally(ex));
+                batch.clear();
+            }
+            throw ex;
+        }
+    }
+    
+    // consecutive stock commands share a transaction; a catalog command runs on its own
+    private void process(List<Command> batch) {
+        int start = 0;
+        for (int i = 0; i <= batch.size(); i++) {
+            if (i == batch.size() || batch.get(i).kind.catalog) {
+                if (i > start) {
+                    applyStock(batch.subList(start, i));
+                }
+                if (i < batch.size()) {
+                    applyCatalog(batch.get(i));
+                }
+                start = i + 1;
+            }
+        }
+    }
+    
+    private void applyStock(List<Command> commands) {
+        Set<Long> touched = new HashSet<>();
+        List<Object> outcomes = new ArrayList<>(commands.size());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    outcomes.clear();
+                    Map<Long, Sweet> sweets = new HashMap<>();
+                    Map<StoreStockId, StoreStock> rows = new LinkedHashMap<>();
+                    List<StockChange> changes = new ArrayList<>();
+                    for (Command command : commands) {
+                        outcomes.add(applyStock(command, sweets, rows, touched, changes));
+                    }
+                    rows.values().forEach(storeStockRepository::save);
+                    // flushed first so the events carry the versions the sweets commit with
+                    sweetRepository.flush();
+                    for (StockChange change : changes) {
+                        eventPublisher.publishEvent(SweetChangedEvent.stockChanged(change.action, change.before,
+                                SweetSnapshot.of(change.sweet).withQuantity(change.quantity),
+                                change.command.actor, change.command.storeId));
+                    }
+                });
+                break;
+            } catch (OptimisticLockingFailureException | StaleModelException ex) {
+                // a sweet was changed outside the engine, e.g. by a scheduled price change
+                reload(touched);
+                if (attempt == MAX_ATTEMPTS) {
+                    commands.forEach(command -> command.result.completeExceptionally(ex));
+                    return;
+                }
+            } catch (RuntimeException ex) {
+                reload(touched);
+                commands.forEach(command -> command.result.completeExceptionally(ex));
+                return;
+            }
+        }
+        
+        publish(touched);
+        for (int i = 0; i < commands.size(); i++) {
+            Object outcome = outcomes.get(i);
+            if (outcome instanceof RuntimeException failure) {
+                commands.get(i).result.completeExceptionally(failure);
+            } else {
+                commands.get(i).result.complete(outcome);
+            }
+        }
+    }
+    
+    private Object applyStock(Command command, Map<Long, Sweet> sweets, Map<StoreStockId, StoreStock> rows,
+                              Set<Long> touched, List<StockChange> changes) {
+        Long id = command.sweetId;
+        Long store = command.storeId;
+        SweetStock stock = model.get(id);
+        if (stock == null) {
+            return command.kind == Kind.PURCHASE
+                    ? PurchaseResult.notFound(id)
+                    : new ResourceNotFoundException("Sweet not found with id: " + id);
+        }
+        int available = stock.quantity(store);
+        if (command.kind == Kind.PURCHASE && available < command.quantity) {
+            return PurchaseResult.insufficientStock(id, store, available, command.quantity);
+        }
+        
+        touched.add(id);
+        Sweet sweet = sweets.get(id);
+        if (sweet == null) {
+            sweet = sweetRepository.findById(id)
+                    .orElseThrow(() -> new StaleModelException("Sweet " + id + " is in the model but not stored"));
+            expect(id, "total", stock.total, sweet.getQuantity());
+            sweets.put(id, sweet);
+        }
+        StoreStockId rowId = new StoreStockId(store, id);
+        StoreStock row = rows.get(rowId);
+        if (row == null) {
+            row = storeStockRepository.findById(rowId).orElseGet(() -> new StoreStock(store, id, 0, null, null));
+            expect(id, "stock at store " + store, stock.quantity(store), row.getQuantity());
+            rows.put(rowId, row);
+        }
+        SweetSnapshot before = SweetSnapshot.of(sweet);
+        int delta = command.kind == Kind.PURCHASE ? -command.quantity : command.quantity;
+        stock.apply(store, delta);
+        sweet.setQuantity(sweet.getQuantity() + delta);
+        row.setQuantity(row.getQuantity() + delta);
+        
+        SweetChangedEvent.Action action = command.kind == Kind.PURCHASE
+                ? SweetChangedEvent.Action.PURCHASED : SweetChangedEvent.Action.RESTOCKED;
+        changes.add(new StockChange(command, action, sweet, before, sweet.getQuantity()));
+        return command.kind == Kind.PURCHASE ? PurchaseResult.success(sweet, store) : sweet;
+    }
+    
+    private static void expect(Long id, String what, int modelled, int stored) {
+        if (modelled != stored) {
+            throw new StaleModelException("Sweet " + id + " " + what + " is " + stored + ", the model has " + modelled);
+        }
+    }
+    
+    private void applyCatalog(Command command) {
+        SecurityContextHolder.setContext(command.securityContext);
+        try {
+            Object outcome = switch (command.kind) {
+                case CREATE -> sweetService.createSweet(command.request);
+                case UPDATE -> sweetService.updateSweet(command.sweetId, command.request);
+                case DELETE -> {
+                    sweetService.deleteSweet(command.sweetId);
+                    yield null;
+                }
+                default -> throw new IllegalStateException("Not a catalog command: " + command.kind);
+            };
+            Set<Long> ids = Set.of(command.kind == Kind.CREATE ? ((Sweet) outcome).getId() : command.sweetId);
+            reload(ids);
+            publish(ids);
+            command.result.complete(outcome);
+        } catch (RuntimeException ex) {
+            command.result.completeExceptionally(ex);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+    
+    private void load() {
+        transactionTemplate.executeWithoutResult(status -> {
+            model.clear();
+            for (Sweet sweet : sweetRepository.findAll()) {
+                model.put(sweet.getId(), new SweetStock(sweet.getQuantity()));
+            }
+            for (StoreStock row : storeStockRepository.findAll()) {
+                SweetStock stock = model.get(row.getSweetId());
+                if (stock != null) {
+                    stock.byStore.put(row.getStoreId(), new Level(row.getStoreId(), row.getQuantity(), row.getUpdatedAt()));
+                }
+            }
+        });
+        published.clear();
+        publish(model.keySet());
+    }
+    
+    private void reload(Set<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Long id : ids) {
+                Sweet sweet = sweetRepository.findById(id).orElse(null);
+                if (sweet == null) {
+                    model.remove(id);
+                    continue;
+                }
+                SweetStock stock = new SweetStock(sweet.getQuantity());
+                for (StoreStock row : storeStockRepository.findBySweetIdOrderByStoreId(id)) {
+                    stock.byStore.put(row.getStoreId(), new Level(row.getStoreId(), row.getQuantity(), row.getUpdatedAt()));
+                }
+                model.put(id, stock);
+            }
+        });
+    }
+    
+    private void publish(Set<Long> ids) {
+        for (Long id : ids) {
+            SweetStock stock = model.get(id);
+            if (stock == null) {
+                published.remove(id);
+            } else {
+                published.put(id, List.copyOf(stock.byStore.values()));
+            }
+        }
+    }
+    
+    private enum Kind {
+        CREATE(true), UPDATE(true), DELETE(true), PURCHASE(false), RESTOCK(false);
+        
+        private final boolean catalog;
+        
+        Kind(boolean catalog) {
+            this.catalog = catalog;
+        }
+    }
+    
+    private static final class Command {
+        private final Kind kind;
+        private final Long sweetId;
+        private final Long storeId;
+        private final int quantity;
+        private final SweetRequest request;
+        private final Actor actor;
+        private final SecurityContext securityContext;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        
+        private Command(Kind kind, Long sweetId, Long storeId, int quantity, SweetRequest request,
+                        Actor actor, SecurityContext securityContext) {
+            this.kind = kind;
+            this.sweetId = sweetId;
+            this.storeId = storeId;
+            this.quantity = quantity;
+            this.request = request;
+            this.actor = actor;
+            this.securityContext = securityContext;
+        }
+        
+        private static Command stock(Kind kind, Long sweetId, Long storeId, int quantity) {
+            return new Command(kind, sweetId, storeId, quantity, null, Actor.current(), null);
+        }
+        
+        private static Command catalog(Kind kind, Long sweetId, SweetRequest request) {
+            return new Command(kind, sweetId, null, 0, request, null, SecurityContextHolder.getContext());
+        }
+    }
+    
+    // stock was changed outside the engine; the batch is rolled back, reloaded and retried
+    private static final class StaleModelException extends RuntimeException {
+        private StaleModelException(String message) {
+            super(message, null, false, false);
+        }
+    }
+    
+    // a command's effect on a sweet, published once the batch has been flushed
+    private static final class StockChange {
+        private final Command command;
+        private final SweetChangedEvent.Action action;
+        private final Sweet sweet;
+        private final SweetSnapshot before;
+        private final int quantity;
+        
+        private StockChange(Command command, SweetChangedEvent.Action action, Sweet sweet, SweetSnapshot before,
+                            int quantity) {
+            this.command = command;
+            this.action = action;
+            this.sweet = sweet;
+            this.before = before;
+            this.quantity = quantity;
+        }
+    }
+    
+    private static final class SweetStock {
+        private final TreeMap<Long, Level> byStore = new TreeMap<>();
+        private int total;
+        
+        private SweetStock(int total) {
+            this.total = total;
+        }
+        
+        private int quantity(Long storeId) {
+            Level level = byStore.get(storeId);
+            return level != null ? level.quantity : 0;
+        }
+        
+        private void apply(Long storeId, int delta) {
+            byStore.put(storeId, new Level(storeId, quantity(storeId) + delta, LocalDateTime.now()));
+            total += delta;
+        }
+    }
+    
+    // immutable, so published views can share them with the model
+    private static final class Level {
+        private final Long storeId;
+        private final int quantity;
+        private final LocalDateTime updatedAt;
+        
+        private Level(Long storeId, int quantity, LocalDateTime updatedAt) {
+            this.storeId = storeId;
+            this.quantity = quantity;
+            this.updatedAt = updatedAt;
+        }
+    }
+}
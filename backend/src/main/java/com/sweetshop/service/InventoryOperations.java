@@ -0,0 +1,28 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.SweetRequest;
+import com.sweetshop.entity.StoreStock;
+import com.sweetshop.entity.Sweet;
+
+import java.util.List;
+
+/**
+ * The catalog and stock mutations behind the sweet endpoints, plus the per-store stock
+ * read. {@code inventory.engine.mode} selects the implementation: {@link DirectInventory}
+ * runs each call as its own transaction on the caller's thread, {@link InventoryEngine}
+ * hands them to a single writer thread.
+ */
+public interface InventoryOperations {
+    
+    Sweet createSweet(SweetRequest request);
+    
+    Sweet updateSweet(Long id, SweetRequest request);
+    
+    void deleteSweet(Long id);
+    
+    PurchaseResult purchaseSweet(Long id, Long storeId, int quantity);
+    
+    Sweet restockSweet(Long id, Long storeId, int quantity);
+    
+    List<StoreStock> getStoreStock(Long id);
+}
@@ -0,0 +1,276 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.LowStockResponse;
+import com.sweetshop.entity.CategoryThreshold;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.StockThresholdCrossedEvent;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetInvalidatedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import com.sweetshop.repository.CategoryThresholdRepository;
+import com.sweetshop.repository.SweetRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps every sweet ordered by its quantity/threshold ratio so the low-stock list is
+ * the head of an ordered set. Entries are updated from {@link SweetChangedEvent}s after
+ * commit; a red-black tree is used instead of a binary heap because entries have to be
+ * removed and re-inserted on every stock change. Sweets changed on other nodes of a cluster
+ * are reloaded from the database on {@link SweetInvalidatedEvent}s.
+ *
+ * <p>Each entry keeps the row version it was built from. After-commit events can arrive
+ * out of order, so a change older than the entry is ignored, and deleted sweets are
+ * remembered so a late update does not bring them back. Those markers are purged once they
+ * are older than {@code inventory.deleted-marker-retention-ms}, and on every rebuild.
+ */
+@Slf4j
+@Service
+public class LowStockService {
+    
+    private static final Comparator<Entry> BY_RATIO = (a, b) -> {
+        // compare quantity/threshold without division: a.q / a.t vs b.q / b.t
+        int cmp = Long.compare((long) a.quantity * b.threshold, (long) b.quantity * a.threshold);
+        return cmp != 0 ? cmp : Long.compare(a.id, b.id);
+    };
+    
+    private final SweetRepository sweetRepository;
+    private final CategoryThresholdRepository categoryThresholdRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int defaultThreshold;
+    private final long deletedMarkerRetentionMs;
+    
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> byRatio = new TreeSet<>(BY_RATIO);
+    private final Map<String, Set<Long>> idsByCategory = new HashMap<>();
+    private final Map<String, Integer> categoryThresholds = new HashMap<>();
+    // id of a deleted sweet -> when it was deleted
+    private final Map<Long, Long> deleted = new HashMap<>();
+    
+    public LowStockService(SweetRepository sweetRepository,
+                           CategoryThresholdRepository categoryThresholdRepository,
+                           ApplicationEventPublisher eventPublisher,
+                           @Value("${inventory.low-stock.default-threshold:10}") int defaultThreshold,
+                           @Value("${inventory.deleted-marker-retention-ms:600000}") long deletedMarkerRetentionMs) {
+        this.sweetRepository = sweetRepository;
+        this.categoryThresholdRepository = categoryThresholdRepository;
+        this.eventPublisher = eventPublisher;
+        this.defaultThreshold = defaultThreshold;
+        this.deletedMarkerRetentionMs = deletedMarkerRetentionMs;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        entries.clear();
+        byRatio.clear();
+        idsByCategory.clear();
+        categoryThresholds.clear();
+        deleted.clear();
+        
+        for (CategoryThreshold threshold : categoryThresholdRepository.findAll()) {
+            categoryThresholds.put(threshold.getCategory(), threshold.getThreshold());
+        }
+        for (Sweet sweet : sweetRepository.findAll()) {
+            put(SweetSnapshot.of(sweet), false);
+        }
+        log.info("Low-stock index initialised with {} sweets", entries.size());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSweetChanged(SweetChangedEvent event) {
+        List<StockThresholdCrossedEvent> crossings = new ArrayList<>(1);
+        synchronized (this) {
+            if (isStale(event.getSweetId(), event.getAfter())) {
+                log.debug("Ignoring out-of-order change to sweet {}", event.getSweetId());
+            } else if (event.getAfter() == null) {
+                delete(event.getSweetId());
+            } else {
+                StockThresholdCrossedEvent crossing = put(event.getAfter(), true);
+                if (crossing != null) {
+                    crossings.add(crossing);
+                }
+            }
+        }
+        crossings.forEach(this::publish);
+    }
+    
+    @EventListener
+    public void onSweetInvalidated(SweetInvalidatedEvent event) {
+        if (event.isAll()) {
+            rebuild();
+            return;
+        }
+        // the node that made the change has already reported any threshold crossing
+        Sweet sweet = sweetRepository.findById(event.getSweetId()).orElse(null);
+        synchronized (this) {
+            if (sweet == null) {
+                delete(event.getSweetId());
+            } else if (!isStale(sweet.getId(), SweetSnapshot.of(sweet))) {
+                put(SweetSnapshot.of(sweet), false);
+            }
+        }
+    }
+    
+    public synchronized List<LowStockResponse> getLowStock(int limit) {
+        List<LowStockResponse> result = new ArrayList<>(Math.min(limit, byRatio.size()));
+        for (Entry entry : byRatio) {
+            if (result.size() >= limit || !entry.isLow()) {
+                break;
+            }
+            result.add(new LowStockResponse(entry.id, entry.name, entry.category, entry.quantity, entry.threshold));
+        }
+        return result;
+    }
+    
+    @Scheduled(fixedDelayString = "${inventory.deleted-marker-retention-ms:600000}")
+    public void purgeDeletedMarkers() {
+        purgeDeletedMarkers(System.currentTimeMillis());
+    }
+    
+    synchronized void purgeDeletedMarkers(long nowMillis) {
+        long cutoff = nowMillis - deletedMarkerRetentionMs;
+        deleted.values().removeIf(deletedAt -> deletedAt <= cutoff);
+    }
+    
+    synchronized int deletedMarkers() {
+        return deleted.size();
+    }
+    
+    @Transactional
+    public void setCategoryThreshold(String category, Integer threshold) {
+        if (threshold == null) {
+            categoryThresholdRepository.deleteById(category);
+        } else {
+            categoryThresholdRepository.save(new CategoryThreshold(category, threshold));
+        }
+        
+        List<StockThresholdCrossedEvent> crossings = new ArrayList<>();
+        synchronized (this) {
+            if (threshold == null) {
+                categoryThresholds.remove(category);
+            } else {
+                categoryThresholds.put(category, threshold);
+            }
+            for (Long id : new ArrayList<>(idsByCategory.getOrDefault(category, Set.of()))) {
+                Entry entry = entries.get(id);
+                StockThresholdCrossedEvent crossing = put(entry.toSnapshot(), true);
+                if (crossing != null) {
+                    crossings.add(crossing);
+                }
+            }
+        }
+        crossings.forEach(this::publish);
+    }
+    
+    // a null after-image is a deletion, which is never stale
+    private boolean isStale(Long id, SweetSnapshot after) {
+        if (after == null) {
+            return false;
+        }
+        if (deleted.containsKey(id)) {
+            return true;
+        }
+        Entry current = entries.get(id);
+        return current != null && current.version != null && after.getVersion() != null
+                && after.getVersion() < current.version;
+    }
+    
+    private void delete(Long id) {
+        remove(id);
+        deleted.put(id, System.currentTimeMillis());
+    }
+    
+    private StockThresholdCrossedEvent put(SweetSnapshot sweet, boolean detectCrossing) {
+        Entry previous = remove(sweet.getId());
+        Entry entry = new Entry(sweet.getId(), sweet.getName(), sweet.getCategory(), sweet.getQuantity(),
+                sweet.getReorderThreshold(), resolveThreshold(sweet), sweet.getVersion());
+        
+        entries.put(entry.id, entry);
+        idsByCategory.computeIfAbsent(entry.category, k -> new HashSet<>()).add(entry.id);
+        if (entry.threshold > 0) {
+            byRatio.add(entry);
+        }
+        
+        boolean wasLow = previous != null && previous.isLow();
+        if (detectCrossing && wasLow != entry.isLow()) {
+            return new StockThresholdCrossedEvent(entry.id, entry.name, entry.category,
+                    entry.quantity, entry.threshold, entry.isLow());
+        }
+        return null;
+    }
+    
+    private Entry remove(Long id) {
+        Entry previous = entries.remove(id);
+        if (previous != null) {
+            byRatio.remove(previous);
+            Set<Long> ids = idsByCategory.get(previous.category);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    idsByCategory.remove(previous.category);
+                }
+            }
+        }
+        return previous;
+    }
+    
+    private int resolveThreshold(SweetSnapshot sweet) {
+        if (sweet.getReorderThreshold() != null) {
+            return sweet.getReorderThreshold();
+        }
+        return categoryThresholds.getOrDefault(sweet.getCategory(), defaultThreshold);
+    }
+    
+    private void publish(StockThresholdCrossedEvent event) {
+        if (event.isLow()) {
+            log.warn("Sweet {} ({}) is low on stock: {} left, threshold {}",
+                    event.getSweetId(), event.getName(), event.getQuantity(), event.getThreshold());
+        }
+        eventPublisher.publishEvent(event);
+    }
+    
+    private static final class Entry {
+        private final long id;
+        private final String name;
+        private final String category;
+        private final int quantity;
+        private final Integer sweetThreshold;
+        private final int threshold;
+        private final Long version;
+        
+        private Entry(long id, String name, String category, int quantity, Integer sweetThreshold, int threshold,
+                      Long version) {
+            this.id = id;
+            this.name = name;
+            this.category = category;
+            this.quantity = quantity;
+            this.sweetThreshold = sweetThreshold;
+            this.threshold = threshold;
+            this.version = version;
+        }
+        
+        private boolean isLow() {
+            return threshold > 0 && quantity <= threshold;
+        }
+        
+        private SweetSnapshot toSnapshot() {
+            return new SweetSnapshot(id, name, category, null, quantity, sweetThreshold, version);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.SweetResponse;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetInvalidatedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Catalog served from a {@link SweetRecordStore}, so that millions of sweets cost the heap
+ * little more than their id index. The database stays the source of truth: the store is
+ * filled from {@code sweets} on startup and on a full invalidation, and each changed sweet
+ * is re-read by primary key after its transaction commits. Purchases and restocks are the
+ * exception: their events carry the new quantity and version, so the record is patched in
+ * place without a query or the write lock. Every fill goes into a new
+ * directory that replaces the live store when complete, and sweets changed meanwhile are
+ * re-read once it is in place. Reads go to the database until the first fill is done, and
+ * for sweets the store does not hold.
+ *
+ * <p>A re-read queries before it takes the write lock, so the re-read after an update can
+ * arrive after the one after a later delete. Removed ids are therefore remembered, and a
+ * re-read that finds a removed sweet is dropped instead of inserting it again; ids are never
+ * reused. The markers are purged after {@code inventory.deleted-marker-retention-ms}.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "catalog.off-heap.enabled", havingValue = "true")
+public class OffHeapSweetCatalog implements SweetCatalog {
+    
+    private static final String SELECT_SQL = "SELECT id, name, category, price, quantity, description, "
+            + "reorder_threshold, created_at, updated_at, version FROM sweets";
+    private static final String GENERATION_PREFIX = "generation-";
+    private static final int FILL_PAGE_SIZE = 10_000;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final SweetService sweetService;
+    private final Path directory;
+    private final long deletedMarkerRetentionMs;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildLock = new Object();
+    private SweetRecordStore store;
+    private boolean rebuilding;
+    private long generation;
+    // added to under the read lock by stock patches
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    // id of a removed sweet -> when it was removed
+    private final Map<Long, Long> removed = new ConcurrentHashMap<>();
+    
+    public OffHeapSweetCatalog(JdbcTemplate jdbcTemplate,
+                               SweetService sweetService,
+                               MeterRegistry meterRegistry,
+                               @Value("${catalog.off-heap.directory:data/catalog}") String directory,
+                               @Value("${inventory.deleted-marker-retention-ms:600000}") long deletedMarkerRetentionMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sweetService = sweetService;
+        this.directory = Paths.get(directory);
+        this.deletedMarkerRetentionMs = deletedMarkerRetentionMs;
+        meterRegistry.gauge("sweetshop.catalog.records", this, catalog -> catalog.read(SweetRecordStore::size, 0));
+        meterRegistry.gauge("sweetshop.catalog.mapped_bytes", this,
+                catalog -> catalog.read(SweetRecordStore::mappedBytes, 0L));
+    }
+    
+    @Override
+    public SweetResponse getSweet(Long id) {
+        SweetResponse sweet = read(current -> current.get(id), null);
+        return sweet != null ? sweet : SweetResponse.of(sweetService.getSweetById(id));
+    }
+    
+    @Override
+    public List<SweetResponse> getAllSweets() {
+        List<SweetResponse> sweets = read(current -> {
+            List<SweetResponse> all = new ArrayList<>(current.size());
+            current.forEach(all::add);
+            return all;
+        }, null);
+        if (sweets != null) {
+            return sweets;
+        }
+        return sweetService.getAllSweets().stream()
+                .map(SweetResponse::of)
+                .toList();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                rebuilding = true;
+                changedDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            
+            SweetRecordStore fresh = null;
+            SweetRecordStore replaced;
+            List<Long> changed;
+            try {
+                deleteStaleGenerations();
+                fresh = new SweetRecordStore(directory.resolve(GENERATION_PREFIX + ++generation));
+                // pages by id so the driver never holds more than one page of rows
+                SweetRecordStore target = fresh;
+                long[] lastId = {0};
+                int read;
+                do {
+                    read = jdbcTemplate.query(SELECT_SQL + " WHERE id > ? ORDER BY id LIMIT " + FILL_PAGE_SIZE,
+                            (rs, rowNum) -> {
+                                lastId[0] = rs.getLong("id");
+                                target.put(toResponse(rs));
+                                return lastId[0];
+                            }, lastId[0]).size();
+                } while (read == FILL_PAGE_SIZE);
+            } catch (IOException | RuntimeException ex) {
+                closeQuietly(fresh);
+                lock.writeLock().lock();
+                try {
+                    rebuilding = false;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                log.error("Could not fill the off-heap catalog; reads keep their current source", ex);
+                return;
+            }
+            
+            lock.writeLock().lock();
+            try {
+                replaced = store;
+                store = fresh;
+                rebuilding = false;
+                changed = new ArrayList<>(changedDuringRebuild);
+                changedDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            closeQuietly(replaced);
+            changed.forEach(this::reload);
+            log.info("Off-heap catalog filled with {} sweets", fresh.size());
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSweetChanged(SweetChangedEvent event) {
+        if (!isStockChange(event) || !patch(event.getAfter())) {
+            reload(event.getSweetId());
+        }
+    }
+    
+    @EventListener
+    public void onSweetInvalidated(SweetInvalidatedEvent event) {
+        if (event.isAll()) {
+            rebuild();
+        } else {
+            reload(event.getSweetId());
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${inventory.deleted-marker-retention-ms:600000}")
+    public void purgeRemovedMarkers() {
+        long cutoff = System.currentTimeMillis() - deletedMarkerRetentionMs;
+        removed.values().removeIf(removedAt -> removedAt <= cutoff);
+    }
+    
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            closeQuietly(store);
+            store = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void reload(Long id) {
+        List<SweetResponse> rows = jdbcTemplate.query(SELECT_SQL + " WHERE id = ?",
+                (rs, rowNum) -> toResponse(rs), id);
+        
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                changedDuringRebuild.add(id);
+            }
+            if (rows.isEmpty()) {
+                removed.put(id, System.currentTimeMillis());
+            }
+            if (store == null) {
+                return;
+            }
+            if (rows.isEmpty()) {
+                store.remove(id);
+            } else if (!removed.containsKey(id)) {
+                store.put(rows.get(0));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private static boolean isStockChange(SweetChangedEvent event) {
+        return (event.getAction() == SweetChangedEvent.Action.PURCHASED
+                || event.getAction() == SweetChangedEvent.Action.RESTOCKED)
+                && event.getAfter() != null && event.getAfter().getVersion() != null;
+    }
+    
+    // only the stock fields change, so the record is patched under the shared lock
+    private boolean patch(SweetSnapshot after) {
+        lock.readLock().lock();
+        try {
+            if (rebuilding) {
+                changedDuringRebuild.add(after.getId());
+            }
+            return store != null && store.patchStock(after.getId(), after.getQuantity(), after.getVersion(),
+                    LocalDateTime.now());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private <T> T read(Function<SweetRecordStore, T> reader, T fallback) {
+        lock.readLock().lock();
+        try {
+            return store != null ? reader.apply(store) : fallback;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private void deleteStaleGenerations() throws IOException {
+        if (store != null || !Files.isDirectory(directory)) {
+            return;
+        }
+        // left behind by a previous run that did not shut down cleanly
+        try (Stream<Path> generations = Files.list(directory)) {
+            for (Path stale : generations.filter(path -> path.getFileName().toString()
+                    .startsWith(GENERATION_PREFIX)).toList()) {
+                try (Stream<Path> files = Files.list(stale)) {
+                    for (Path file : files.toList()) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+                Files.deleteIfExists(stale);
+            }
+        }
+    }
+    
+    private static SweetResponse toResponse(ResultSet rs) throws SQLException {
+        return new SweetResponse(
+                rs.getLong("id"),
+                rs.getString("name"),
+                rs.getString("category"),
+                rs.getBigDecimal("price"),
+                rs.getInt("quantity"),
+                rs.getString("description"),
+                rs.getObject("reorder_threshold", Integer.class),
+                rs.getObject("created_at", LocalDateTime.class),
+                rs.getObject("updated_at", LocalDateTime.class),
+                rs.getLong("version"));
+    }
+    
+    private static void closeQuietly(SweetRecordStore store) {
+        if (store == null) {
+            return;
+        }
+        try {
+            store.close();
+        } catch (IOException ex) {
+            log.warn("Could not delete off-heap catalog files", ex);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.sweetshop.service;
+
+import com.sweetshop.entity.SweetInvalidation;
+import com.sweetshop.event.SweetInvalidatedEvent;
+import com.sweetshop.repository.SweetInvalidationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * {@link InvalidationBus} over the {@code sweet_invalidations} outbox table, enabled with
+ * {@code cluster.invalidation.bus=outbox}. Changes are inserted in the transaction that made
+ * them, and every node polls for rows above the highest id it has seen, skipping its own.
+ *
+ * <p>Ids are assigned on insert but become visible on commit, so a transaction that commits
+ * late leaves a gap below rows that are already applied. Missing ids are looked up again on
+ * every poll until they show up or are older than the maximum lag; a rolled-back insert
+ * never shows up. A node that has not caught up within the maximum lag (a long database
+ * outage, a backlog of old rows) stops replaying and invalidates everything instead, so no
+ * node serves a change later than the lag allows.
+ *
+ * <p>Lag is measured from the inserting node's clock to the applying node's, so the nodes'
+ * clocks are expected to be synchronised.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "cluster.invalidation.bus", havingValue = "outbox")
+public class OutboxInvalidationBus implements InvalidationBus {
+    
+    // gaps wider than this are a sequence jump (e.g. after a restart), not in-flight commits
+    private static final int MAX_TRACKED_GAP = 1000;
+    
+    private final SweetInvalidationRepository repository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId;
+    private final Duration maxLag;
+    private final Duration retention;
+    private final int batchSize;
+    private final Clock clock;
+    private final Timer lag;
+    private final Counter resyncs;
+    
+    // guarded by this
+    private Long highestSeen;
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    private volatile long lastCaughtUpMillis;
+    
+    @Autowired
+    public OutboxInvalidationBus(SweetInvalidationRepository repository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${cluster.node-id:}") String nodeId,
+                                 @Value("${cluster.invalidation.max-lag:30s}") Duration maxLag,
+                                 @Value("${cluster.invalidation.retention:1h}") Duration retention,
+                                 @Value("${cluster.invalidation.batch-size:500}") int batchSize) {
+        this(repository, eventPublisher, meterRegistry, nodeId, maxLag, retention, batchSize, Clock.systemDefaultZone());
+    }
+    
+    OutboxInvalidationBus(SweetInvalidationRepository repository,
+                          ApplicationEventPublisher eventPublisher,
+                          MeterRegistry meterRegistry,
+                          String nodeId,
+                          Duration maxLag,
+                          Duration retention,
+                          int batchSize,
+                          Clock clock) {
+        this.repository = repository;
+        this.eventPublisher = eventPublisher;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.maxLag = maxLag;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.clock = clock;
+        this.lastCaughtUpMillis = clock.millis();
+        this.lag = Timer.builder("sweetshop.invalidation.lag")
+                .description("Time from a change committing on another node to this node applying it")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.resyncs = meterRegistry.counter("sweetshop.invalidation.resyncs");
+        meterRegistry.gauge("sweetshop.invalidation.staleness_seconds", this,
+                bus -> (bus.clock.millis() - bus.lastCaughtUpMillis) / 1000.0);
+        log.info("Sweet invalidations are exchanged through the outbox as node {}", this.nodeId);
+    }
+    
+    @Override
+    public void publish(Long sweetId, Long version) {
+        repository.save(new SweetInvalidation(null, sweetId, version, nodeId, LocalDateTime.now(clock)));
+    }
+    
+    @Scheduled(fixedDelayString = "${cluster.invalidation.poll-interval-ms:100}")
+    public synchronized void poll() {
+        long now = clock.millis();
+        try {
+            if (highestSeen == null) {
+                // nothing is cached yet, so only later changes matter
+                highestSeen = repository.findMaxId();
+            } else if (now - lastCaughtUpMillis > maxLag.toMillis()) {
+                resync();
+            } else {
+                applyLateCommits();
+                List<SweetInvalidation> page;
+                do {
+                    page = repository.findByIdGreaterThanOrderByIdAsc(highestSeen, PageRequest.of(0, batchSize));
+                    if (!page.isEmpty() && isTooOld(page.get(0))) {
+                        resync();
+                        break;
+                    }
+                    for (SweetInvalidation row : page) {
+                        trackGap(row.getId(), now);
+                        apply(row);
+                        highestSeen = row.getId();
+                    }
+                } while (page.size() == batchSize);
+                gaps.values().removeIf(seenAt -> now - seenAt > maxLag.toMillis());
+            }
+            lastCaughtUpMillis = now;
+        } catch (DataAccessException ex) {
+            log.warn("Could not poll sweet invalidations: {}", ex.getMessage());
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${cluster.invalidation.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        int purged = repository.deleteCreatedBefore(LocalDateTime.now(clock).minus(retention));
+        if (purged > 0) {
+            log.debug("Purged {} sweet invalidations", purged);
+        }
+    }
+    
+    private void applyLateCommits() {
+        if (gaps.isEmpty()) {
+            return;
+        }
+        for (SweetInvalidation row : repository.findAllById(gaps.keySet())) {
+            gaps.remove(row.getId());
+            apply(row);
+        }
+    }
+    
+    private void trackGap(long id, long now) {
+        if (id - highestSeen - 1 > MAX_TRACKED_GAP) {
+            return;
+        }
+        for (long missing = highestSeen + 1; missing < id; missing++) {
+            gaps.put(missing, now);
+        }
+    }
+    
+    private void apply(SweetInvalidation row) {
+        if (nodeId.equals(row.getNodeId())) {
+            return;
+        }
+        lag.record(Duration.between(row.getCreatedAt(), LocalDateTime.now(clock)));
+        eventPublisher.publishEvent(new SweetInvalidatedEvent(row.getSweetId(), row.getVersion()));
+    }
+    
+    private boolean isTooOld(SweetInvalidation row) {
+        return Duration.between(row.getCreatedAt(), LocalDateTime.now(clock)).compareTo(maxLag) > 0;
+    }
+    
+    private void resync() {
+        log.warn("Sweet invalidations fell more than {} behind, invalidating all cached sweets", maxLag);
+        highestSeen = repository.findMaxId();
+        gaps.clear();
+        resyncs.increment();
+        eventPublisher.publishEvent(SweetInvalidatedEvent.all());
+    }
+}
@@ -0,0 +1,296 @@
+package com.sweetshop.service;
+
+import com.sweetshop.entity.PriceChange;
+import com.sweetshop.event.Actor;
+import com.sweetshop.event.PriceScheduleChangedEvent;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.exception.InvalidRequestException;
+import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.repository.PriceChangeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Price history plus an in-memory interval index of the sweets whose price is going to
+ * change. The price in effect now lives in {@code sweets.price}, so catalog reads never
+ * look at schedules; the index only holds the not-yet-ended intervals of sweets with an
+ * upcoming boundary (a start or an end), keyed by boundary time. {@link #pollDue()}
+ * hands out the new prices of sweets whose boundary has passed and
+ * {@code PriceScheduler} writes them.
+ */
+@Slf4j
+@Service
+public class PriceScheduleService {
+    
+    private static final Comparator<Interval> BY_START = Comparator
+            .comparing((Interval interval) -> interval.from)
+            .thenComparingLong(interval -> interval.id);
+    
+    private final PriceChangeRepository priceChangeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final TreeMap<LocalDateTime, Set<Long>> boundaries = new TreeMap<>();
+    
+    @Autowired
+    public PriceScheduleService(PriceChangeRepository priceChangeRepository,
+                                ApplicationEventPublisher eventPublisher) {
+        this(priceChangeRepository, eventPublisher, Clock.systemDefaultZone());
+    }
+    
+    PriceScheduleService(PriceChangeRepository priceChangeRepository,
+                         ApplicationEventPublisher eventPublisher,
+                         Clock clock) {
+        this.priceChangeRepository = priceChangeRepository;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        LocalDateTime now = now();
+        List<Long> sweetIds = priceChangeRepository.findSweetIdsWithUpcomingChanges(now);
+        Map<Long, List<PriceChange>> rows = load(sweetIds, now);
+        synchronized (this) {
+            entries.clear();
+            boundaries.clear();
+            rows.forEach((sweetId, changes) -> putRows(sweetId, changes, now));
+        }
+        log.info("Price schedule index initialised with {} sweets", entries.size());
+    }
+    
+    @Transactional
+    public PriceChange record(Long sweetId, BigDecimal price, LocalDateTime from, LocalDateTime to) {
+        PriceChange change = new PriceChange();
+        change.setSweetId(sweetId);
+        change.setPrice(price);
+        change.setEffectiveFrom(from);
+        change.setEffectiveTo(to);
+        change.setCreatedBy(Actor.current().getUsername());
+        PriceChange saved = priceChangeRepository.save(change);
+        
+        // a plain price change starting now only matters to sweets that already have a schedule
+        if (to != null || from.isAfter(now()) || isTracked(sweetId)) {
+            eventPublisher.publishEvent(new PriceScheduleChangedEvent(sweetId));
+        }
+        return saved;
+    }
+    
+    @Transactional
+    public void cancel(Long sweetId, Long priceChangeId) {
+        PriceChange change = priceChangeRepository.findById(priceChangeId)
+                .filter(c -> c.getSweetId().equals(sweetId))
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Price change not found with id: " + priceChangeId));
+        if (!change.getEffectiveFrom().isAfter(now())) {
+            throw new InvalidRequestException("Only price changes that have not started yet can be cancelled");
+        }
+        priceChangeRepository.delete(change);
+        eventPublisher.publishEvent(new PriceScheduleChangedEvent(sweetId));
+    }
+    
+    @Transactional(readOnly = true)
+    public List<PriceChange> getHistory(Long sweetId) {
+        return priceChangeRepository.findBySweetIdOrderByEffectiveFromDescIdDesc(sweetId);
+    }
+    
+    @Transactional(readOnly = true)
+    public boolean hasHistory(Long sweetId) {
+        return priceChangeRepository.existsBySweetId(sweetId);
+    }
+    
+    @Transactional(readOnly = true)
+    public Optional<PriceChange> findEffectiveAt(Long sweetId, LocalDateTime at) {
+        return priceChangeRepository.findEffectiveAt(sweetId, at, PageRequest.of(0, 1)).stream().findFirst();
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(PriceScheduleChangedEvent event) {
+        LocalDateTime now = now();
+        List<PriceChange> rows = load(List.of(event.getSweetId()), now)
+                .getOrDefault(event.getSweetId(), List.of());
+        synchronized (this) {
+            putRows(event.getSweetId(), rows, now);
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSweetChanged(SweetChangedEvent event) {
+        if (event.getAction() == SweetChangedEvent.Action.DELETED) {
+            synchronized (this) {
+                remove(event.getSweetId());
+            }
+        }
+    }
+    
+    /**
+     * Advances every sweet whose next boundary has passed and returns the price each of
+     * them should now have. Cheap when nothing is due: one look at the earliest boundary.
+     */
+    public synchronized Map<Long, BigDecimal> pollDue() {
+        LocalDateTime now = now();
+        if (boundaries.isEmpty() || boundaries.firstKey().isAfter(now)) {
+            return Map.of();
+        }
+        
+        Set<Long> due = new HashSet<>();
+        Map<LocalDateTime, Set<Long>> passed = boundaries.headMap(now, true);
+        passed.values().forEach(due::addAll);
+        passed.clear();
+        
+        Map<Long, BigDecimal> prices = new LinkedHashMap<>();
+        for (Long sweetId : due) {
+            Entry entry = entries.get(sweetId);
+            if (entry == null) {
+                continue;
+            }
+            Interval current = put(sweetId, entry.intervals, now);
+            if (current != null) {
+                prices.put(sweetId, current.price);
+            }
+        }
+        return prices;
+    }
+    
+    public synchronized int getTrackedSweetCount() {
+        return entries.size();
+    }
+    
+    private synchronized boolean isTracked(Long sweetId) {
+        return entries.containsKey(sweetId);
+    }
+    
+    private Map<Long, List<PriceChange>> load(Collection<Long> sweetIds, LocalDateTime now) {
+        Map<Long, List<PriceChange>> rows = new HashMap<>();
+        if (!sweetIds.isEmpty()) {
+            for (PriceChange change : priceChangeRepository.findNotEndedBySweetIds(sweetIds, now)) {
+                rows.computeIfAbsent(change.getSweetId(), k -> new ArrayList<>()).add(change);
+            }
+        }
+        return rows;
+    }
+    
+    private void putRows(Long sweetId, List<PriceChange> rows, LocalDateTime now) {
+        List<Interval> intervals = new ArrayList<>(rows.size());
+        for (PriceChange row : rows) {
+            intervals.add(new Interval(row.getId(), row.getPrice(), row.getEffectiveFrom(), row.getEffectiveTo()));
+        }
+        put(sweetId, intervals, now);
+    }
+    
+    /**
+     * Drops intervals that can no longer win, re-registers the sweet's future boundaries
+     * and returns the interval in effect at {@code now}.
+     */
+    private Interval put(Long sweetId, Collection<Interval> candidates, LocalDateTime now) {
+        remove(sweetId);
+        
+        List<Interval> intervals = new ArrayList<>(candidates.size());
+        for (Interval interval : candidates) {
+            if (interval.to == null || interval.to.isAfter(now)) {
+                intervals.add(interval);
+            }
+        }
+        intervals.sort(BY_START);
+        
+        // nothing that started before the latest started open-ended price can win again
+        int base = -1;
+        for (int i = 0; i < intervals.size() && !intervals.get(i).from.isAfter(now); i++) {
+            if (intervals.get(i).to == null) {
+                base = i;
+            }
+        }
+        if (base > 0) {
+            intervals = new ArrayList<>(intervals.subList(base, intervals.size()));
+        }
+        
+        Interval current = null;
+        TreeSet<LocalDateTime> upcoming = new TreeSet<>();
+        for (Interval interval : intervals) {
+            if (interval.from.isAfter(now)) {
+                upcoming.add(interval.from);
+            } else {
+                current = interval;
+            }
+            if (interval.to != null) {
+                upcoming.add(interval.to);
+            }
+        }
+        
+        if (!upcoming.isEmpty()) {
+            entries.put(sweetId, new Entry(intervals, upcoming));
+            for (LocalDateTime boundary : upcoming) {
+                boundaries.computeIfAbsent(boundary, k -> new HashSet<>()).add(sweetId);
+            }
+        }
+        return current;
+    }
+    
+    private void remove(Long sweetId) {
+        Entry previous = entries.remove(sweetId);
+        if (previous == null) {
+            return;
+        }
+        for (LocalDateTime boundary : previous.boundaries) {
+            Set<Long> ids = boundaries.get(boundary);
+            if (ids != null) {
+                ids.remove(sweetId);
+                if (ids.isEmpty()) {
+                    boundaries.remove(boundary);
+                }
+            }
+        }
+    }
+    
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+    
+    private static final class Entry {
+        private final List<Interval> intervals;
+        private final Set<LocalDateTime> boundaries;
+        
+        private Entry(List<Interval> intervals, Set<LocalDateTime> boundaries) {
+            this.intervals = intervals;
+            this.boundaries = boundaries;
+        }
+    }
+    
+    private static final class Interval {
+        private final long id;
+        private final BigDecimal price;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        
+        private Interval(long id, BigDecimal price, LocalDateTime from, LocalDateTime to) {
+            this.id = id;
+            this.price = price;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.sweetshop.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes scheduled prices into {@code sweets.price} once their boundary has passed.
+ * Each sweet is switched in its own transaction; a failed switch is retried on the next
+ * tick unless a later boundary has produced a newer price in the meantime.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PriceScheduler {
+    
+    private final PriceScheduleService priceScheduleService;
+    private final SweetService sweetService;
+    
+    private final Map<Long, BigDecimal> failed = new LinkedHashMap<>();
+    
+    @Scheduled(fixedDelayString = "${pricing.schedule.poll-interval-ms:1000}")
+    public synchronized void applyDuePrices() {
+        Map<Long, BigDecimal> due = new LinkedHashMap<>(failed);
+        due.putAll(priceScheduleService.pollDue());
+        failed.clear();
+        
+        due.forEach((sweetId, price) -> {
+            try {
+                sweetService.applyScheduledPrice(sweetId, price);
+                log.info("Scheduled price of sweet {} is now {}", sweetId, price);
+            } catch (RuntimeException ex) {
+                log.warn("Could not apply scheduled price {} to sweet {}, retrying: {}", price, sweetId, ex.getMessage());
+                failed.put(sweetId, price);
+            }
+        });
+    }
+}
@@ -0,0 +1,203 @@
+package com.sweetshop.service;
+
+import com.sweetshop.event.Actor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Groups concurrent purchases of the same sweet at the same store so that one transaction
+ * serves all of them. The first caller opens a batch, waits up to the coalescing window
+ * for others to join and applies the batch with {@link SweetService#purchaseBatch}; the
+ * callers that joined block until their own result is ready. Results follow arrival
+ * order, so a purchase that joined earlier is served first when stock runs out. A batch
+ * that reaches the maximum size is applied without waiting for the rest of the window.
+ * Batches of one sweet and store are applied one at a time, since they would only fail
+ * each other's optimistic lock; while one commits, the next keeps collecting purchases.
+ * The locks are a fixed set of stripes rather than one per sweet and store, so they take
+ * no memory per key; keys that share a stripe are applied one at a time as well.
+ */
+@Service
+public class PurchaseCoalescer {
+    
+    private static final int LOCK_STRIPES = 256;
+    
+    private final SweetService sweetService;
+    private final StoreService storeService;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSizes;
+    
+    private final ConcurrentMap<Key, Batch> open = new ConcurrentHashMap<>();
+    private final ReentrantLock[] applying = new ReentrantLock[LOCK_STRIPES];
+    
+    public PurchaseCoalescer(SweetService sweetService,
+                             StoreService storeService,
+                             MeterRegistry meterRegistry,
+                             @Value("${inventory.purchase-coalescing.enabled:true}") boolean enabled,
+                             @Value("${inventory.purchase-coalescing.window-micros:200}") long windowMicros,
+                             @Value("${inventory.purchase-coalescing.max-batch-size:64}") int maxBatchSize) {
+        this.sweetService = sweetService;
+        this.storeService = storeService;
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizes = meterRegistry.summary("sweetshop.purchases.batch_size");
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            applying[i] = new ReentrantLock(true);
+        }
+    }
+    
+    public PurchaseResult purchase(Long sweetId, Long storeId, int quantity) {
+        if (!enabled) {
+            return sweetService.purchaseSweet(sweetId, storeId, quantity);
+        }
+        
+        Key key = new Key(sweetId, storeService.resolve(storeId));
+        Pending pending = new Pending(new PurchaseLine(quantity, Actor.current()));
+        while (true) {
+            Batch batch = open.computeIfAbsent(key, k -> new Batch());
+            int position = batch.add(pending);
+            if (position < 0) {
+                // closed between the lookup and the add; the next lookup opens a new batch
+                open.remove(key, batch);
+                continue;
+            }
+            if (position == maxBatchSize - 1) {
+                open.remove(key, batch);
+                LockSupport.unpark(batch.leader);
+            }
+            if (position == 0) {
+                lead(key, batch);
+            }
+            return await(pending);
+        }
+    }
+    
+    private void lead(Key key, Batch batch) {
+        long deadline = System.nanoTime() + windowNanos;
+        for (long left = windowNanos; left > 0 && !batch.isFull(); left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(this, left);
+        }
+        
+        ReentrantLock lock = applying[stripe(key)];
+        lock.lock();
+        List<Pending> members = batch.close();
+        try {
+            open.remove(key, batch);
+            batchSizes.record(members.size());
+            apply(key, members);
+        } finally {
+            lock.unlock();
+            // the callers that joined wait on their result alone, so none may be left without one
+            for (Pending member : members) {
+                if (!member.result.isDone()) {
+                    member.result.completeExceptionally(new IllegalStateException("Purchase batch was not applied"));
+                }
+            }
+        }
+    }
+    
+    private void apply(Key key, List<Pending> members) {
+        List<PurchaseLine> lines = new ArrayList<>(members.size());
+        for (Pending member : members) {
+            lines.add(member.line);
+        }
+        try {
+            List<PurchaseResult> results = sweetService.purchaseBatch(key.sweetId, key.storeId, lines);
+            for (int i = 0; i < members.size(); i++) {
+                members.get(i).result.complete(results.get(i));
+            }
+        } catch (Throwable ex) {
+            members.forEach(member -> member.result.completeExceptionally(ex));
+        }
+    }
+    
+    private static int stripe(Key key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1);
+    }
+    
+    private static PurchaseResult await(Pending pending) {
+        try {
+            return pending.result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw ex;
+        }
+    }
+    
+    private static final class Key {
+        private final Long sweetId;
+        private final Long storeId;
+        
+        private Key(Long sweetId, Long storeId) {
+            this.sweetId = sweetId;
+            this.storeId = storeId;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && sweetId.equals(other.sweetId) && storeId.equals(other.storeId);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(sweetId, storeId);
+        }
+    }
+    
+    private static final class Pending {
+        private final PurchaseLine line;
+        private final CompletableFuture<PurchaseResult> result = new CompletableFuture<>();
+        
+        private Pending(PurchaseLine line) {
+            this.line = line;
+        }
+    }
+    
+    private final class Batch {
+        private final List<Pending> members = new ArrayList<>();
+        private Thread leader;
+        private boolean closed;
+        
+        // position of the new member, or -1 if the batch no longer takes members
+        private synchronized int add(Pending pending) {
+            if (closed || members.size() >= maxBatchSize) {
+                return -1;
+            }
+            if (members.isEmpty()) {
+                leader = Thread.currentThread();
+            }
+            members.add(pending);
+            return members.size() - 1;
+        }
+        
+        private synchronized boolean isFull() {
+            return members.size() >= maxBatchSize;
+        }
+        
+        private synchronized List<Pending> close() {
+            closed = true;
+            return members;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.sweetshop.service;
+
+import com.sweetshop.event.Actor;
+import lombok.Value;
+
+/**
+ * One purchase in a {@link SweetService#purchaseBatch} call, attributed to the user who
+ * made it rather than to the thread that applies the batch.
+ */
+@Value
+public class PurchaseLine {
+    int quantity;
+    Actor actor;
+}
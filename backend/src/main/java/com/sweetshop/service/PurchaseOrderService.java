@@ -0,0 +1,196 @@
+package com.sweetshop.service;
+
+import com.sweetshop.entity.PurchaseOrder;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import com.sweetshop.repository.PurchaseOrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records purchase history through an outbox. The orders of a transaction are collected as
+ * its purchase events arrive and appended to {@code purchase_order_outbox} as one JDBC batch
+ * just before it commits, so an order exists exactly when its purchase committed and a
+ * coalesced batch of purchases costs a single round trip to a table with no secondary index.
+ * A scheduled drain moves outbox rows into the partitioned, indexed {@code purchase_orders}
+ * in batches, off the request path; nodes lock the rows they move, skipping those another
+ * node holds, so each row is moved once.
+ */
+@Slf4j
+@Service
+public class PurchaseOrderService {
+    
+    private static final String COLUMNS =
+            "user_id, sweet_id, sweet_name, category, quantity, unit_price, total_price, created_at";
+    private static final String INSERT_SQL = "INSERT INTO purchase_order_outbox (" + COLUMNS + ") "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String LOCK_PENDING_SQL =
+            "SELECT id FROM purchase_order_outbox ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String COPY_SQL = "INSERT INTO purchase_orders (" + COLUMNS + ") "
+            + "SELECT " + COLUMNS + " FROM purchase_order_outbox WHERE id IN ";
+    private static final String DELETE_SQL = "DELETE FROM purchase_order_outbox WHERE id IN ";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final int PARTITIONS_AHEAD = 2;
+    
+    private final PurchaseOrderRepository purchaseOrderRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean managePartitions;
+    private final int drainBatchSize;
+    private final Counter queuedCounter;
+    private final Counter writtenCounter;
+    
+    public PurchaseOrderService(PurchaseOrderRepository purchaseOrderRepository,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${orders.history.manage-partitions:false}") boolean managePartitions,
+                                @Value("${orders.history.drain-batch-size:500}") int drainBatchSize) {
+        this.purchaseOrderRepository = purchaseOrderRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.managePartitions = managePartitions;
+        this.drainBatchSize = drainBatchSize;
+        this.queuedCounter = meterRegistry.counter("sweetshop.orders.history.queued");
+        this.writtenCounter = meterRegistry.counter("sweetshop.orders.history.written");
+    }
+    
+    @EventListener
+    public void onSweetChanged(SweetChangedEvent event) {
+        if (event.getAction() != SweetChangedEvent.Action.PURCHASED || event.getActor().getId() == null) {
+            return;
+        }
+        SweetSnapshot after = event.getAfter();
+        int quantity = event.getBefore().getQuantity() - after.getQuantity();
+        PurchaseOrder order = new PurchaseOrder(null, event.getActor().getId(), after.getId(), after.getName(),
+                after.getCategory(), quantity, after.getPrice(),
+                after.getPrice().multiply(BigDecimal.valueOf(quantity)), LocalDateTime.now());
+        
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(List.of(order));
+            return;
+        }
+        Orders orders = (Orders) TransactionSynchronizationManager.getResource(this);
+        if (orders == null) {
+            orders = new Orders();
+            TransactionSynchronizationManager.bindResource(this, orders);
+            TransactionSynchronizationManager.registerSynchronization(orders);
+        }
+        orders.pending.add(order);
+    }
+    
+    /**
+     * Moves committed purchases from the outbox into the history until the outbox is empty.
+     */
+    @Scheduled(fixedDelayString = "${orders.history.drain-interval-ms:200}")
+    public void drain() {
+        try {
+            Integer moved;
+            do {
+                moved = transactionTemplate.execute(status -> moveBatch());
+            } while (moved != null && moved == drainBatchSize);
+        } catch (DataAccessException ex) {
+            log.warn("Could not move purchases into the order history: {}", ex.getMessage());
+        }
+    }
+    
+    @Transactional(readOnly = true)
+    public Page<PurchaseOrder> getHistory(Long userId, int page, int size) {
+        return purchaseOrderRepository.findByUserIdOrderByCreatedAtDesc(userId, PageRequest.of(page, size));
+    }
+    
+    /**
+     * Keeps {@value #PARTITIONS_AHEAD} months of empty partitions ahead of the current month
+     * by splitting them off {@code pmax}, which stays empty as long as this runs.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${orders.history.partition-cron:0 0 3 * * *}")
+    public void ensurePartitions() {
+        if (!managePartitions) {
+            return;
+        }
+        List<String> existing = jdbcTemplate.queryForList(
+                "SELECT partition_name FROM information_schema.partitions "
+                        + "WHERE table_schema = DATABASE() AND table_name = 'purchase_orders' "
+                        + "AND partition_name <> 'pmax' ORDER BY partition_ordinal_position",
+                String.class);
+        if (existing.isEmpty()) {
+            return;
+        }
+        
+        YearMonth last = YearMonth.parse(existing.get(existing.size() - 1), PARTITION_NAME);
+        YearMonth target = YearMonth.now().plusMonths(PARTITIONS_AHEAD);
+        for (YearMonth month = last.plusMonths(1); !month.isAfter(target); month = month.plusMonths(1)) {
+            jdbcTemplate.execute("ALTER TABLE purchase_orders REORGANIZE PARTITION pmax INTO ("
+                    + "PARTITION " + month.format(PARTITION_NAME)
+                    + " VALUES LESS THAN ('" + month.plusMonths(1).atDay(1) + "'), "
+                    + "PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+            log.info("Added purchase_orders partition {}", month.format(PARTITION_NAME));
+        }
+    }
+    
+    private void insert(List<PurchaseOrder> orders) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, orders, orders.size(), (ps, order) -> {
+            ps.setLong(1, order.getUserId());
+            ps.setLong(2, order.getSweetId());
+            ps.setString(3, order.getSweetName());
+            ps.setString(4, order.getCategory());
+            ps.setInt(5, order.getQuantity());
+            ps.setBigDecimal(6, order.getUnitPrice());
+            ps.setBigDecimal(7, order.getTotalPrice());
+            ps.setTimestamp(8, Timestamp.valueOf(order.getCreatedAt()));
+        });
+        queuedCounter.increment(orders.size());
+    }
+    
+    private int moveBatch() {
+        List<Long> ids = jdbcTemplate.queryForList(LOCK_PENDING_SQL, Long.class, drainBatchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String in = "(" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        Object[] args = ids.toArray();
+        jdbcTemplate.update(COPY_SQL + in, args);
+        jdbcTemplate.update(DELETE_SQL + in, args);
+        writtenCounter.increment(ids.size());
+        return ids.size();
+    }
+    
+    private final class Orders implements TransactionSynchronization {
+        private final List<PurchaseOrder> pending = new ArrayList<>();
+        
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            insert(pending);
+        }
+        
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(PurchaseOrderService.this);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.sweetshop.service;
+
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.exception.InsufficientStockException;
+import com.sweetshop.exception.ResourceNotFoundException;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Outcome of {@link SweetService#purchaseSweet}. Running out of stock is an expected result
+ * during sales peaks, so it is returned rather than thrown; callers that want an exception
+ * can use {@link #toException()}. {@code sweet} is only set on success, {@code available}
+ * and {@code requested} only when stock was insufficient.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class PurchaseResult {
+    Status status;
+    Long sweetId;
+    Long storeId;
+    Sweet sweet;
+    int available;
+    int requested;
+    
+    public static PurchaseResult success(Sweet sweet, Long storeId) {
+        return new PurchaseResult(Status.SUCCESS, sweet.getId(), storeId, sweet, 0, 0);
+    }
+    
+    public static PurchaseResult insufficientStock(Long sweetId, Long storeId, int available, int requested) {
+        return new PurchaseResult(Status.INSUFFICIENT_STOCK, sweetId, storeId, null, available, requested);
+    }
+    
+    public static PurchaseResult notFound(Long sweetId) {
+        return new PurchaseResult(Status.NOT_FOUND, sweetId, null, null, 0, 0);
+    }
+    
+    public boolean isSuccess() {
+        return status == Status.SUCCESS;
+    }
+    
+    public String getMessage() {
+        return switch (status) {
+            case SUCCESS -> null;
+            case INSUFFICIENT_STOCK -> "Insufficient stock at store " + storeId
+                    + ". Available: " + available + ", Requested: " + requested;
+            case NOT_FOUND -> "Sweet not found with id: " + sweetId;
+        };
+    }
+    
+    public RuntimeException toException() {
+        return switch (status) {
+            case SUCCESS -> throw new IllegalStateException("Purchase succeeded");
+            case INSUFFICIENT_STOCK -> new InsufficientStockException(getMessage());
+            case NOT_FOUND -> new ResourceNotFoundException(getMessage());
+        };
+    }
+    
+    public enum Status {
+        SUCCESS, INSUFFICIENT_STOCK, NOT_FOUND
+    }
+}
@@ -0,0 +1,366 @@
+package com.sweetshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.dto.HourlySalesResponse;
+import com.sweetshop.dto.SalesWindowResponse;
+import com.sweetshop.dto.TopSellerResponse;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import com.sweetshop.exception.InvalidRequestException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rolling sales aggregates kept in two rings of time buckets: 60 one-minute buckets for the
+ * last hour and 168 one-hour buckets for the last week. Each purchase adds to the current
+ * bucket with {@link LongAdder}s; a slot is reused by swapping in a fresh bucket once its
+ * time has passed, so queries only ever sum a fixed number of buckets and never read
+ * purchase rows. Windows have bucket granularity, e.g. "24h" is the current hour plus the
+ * 23 before it. The rings are checkpointed to {@code analytics.checkpoint-path} and
+ * reloaded on startup.
+ */
+@Slf4j
+@Service
+@RegisterReflectionForBinding({
+        SalesAnalyticsService.Checkpoint.class,
+        SalesAnalyticsService.BucketState.class,
+        SalesAnalyticsService.SweetLabel.class
+})
+public class SalesAnalyticsService {
+    
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final long HOUR_MILLIS = 3_600_000L;
+    
+    private final AtomicReferenceArray<Bucket> minutes = new AtomicReferenceArray<>(60);
+    private final AtomicReferenceArray<Bucket> hours = new AtomicReferenceArray<>(24 * 7);
+    private final ConcurrentMap<Long, SweetLabel> labels = new ConcurrentHashMap<>();
+    
+    private final ObjectMapper objectMapper;
+    private final Path checkpointPath;
+    private final Clock clock;
+    
+    @Autowired
+    public SalesAnalyticsService(ObjectMapper objectMapper,
+                                 @Value("${analytics.checkpoint-path:}") String checkpointPath) {
+        this(objectMapper, checkpointPath, Clock.systemDefaultZone());
+    }
+    
+    SalesAnalyticsService(ObjectMapper objectMapper, String checkpointPath, Clock clock) {
+        this.objectMapper = objectMapper;
+        this.checkpointPath = checkpointPath == null || checkpointPath.isBlank() ? null : Path.of(checkpointPath);
+        this.clock = clock;
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSweetChanged(SweetChangedEvent event) {
+        SweetSnapshot after = event.getAfter();
+        if (after == null) {
+            return;
+        }
+        labels.put(after.getId(), new SweetLabel(after.getName(), after.getCategory()));
+        if (event.getAction() == SweetChangedEvent.Action.PURCHASED) {
+            int quantity = event.getBefore().getQuantity() - after.getQuantity();
+            recordSale(after.getId(), after.getCategory(), quantity,
+                    after.getPrice().multiply(BigDecimal.valueOf(quantity)));
+        }
+    }
+    
+    void recordSale(Long sweetId, String category, int quantity, BigDecimal revenue) {
+        long now = clock.millis();
+        long cents = revenue.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        Bucket minute = bucket(minutes, Math.floorDiv(now, MINUTE_MILLIS));
+        Bucket hour = bucket(hours, Math.floorDiv(now, HOUR_MILLIS));
+        if (minute != null) {
+            minute.add(sweetId, category, quantity, cents);
+        }
+        if (hour != null) {
+            hour.add(sweetId, category, quantity, cents);
+        }
+    }
+    
+    public List<SalesWindowResponse> getRevenue() {
+        List<SalesWindowResponse> result = new ArrayList<>(Window.values().length);
+        for (Window window : Window.values()) {
+            long units = 0;
+            long cents = 0;
+            for (Bucket bucket : buckets(window)) {
+                units += bucket.units.sum();
+                cents += bucket.revenueCents.sum();
+            }
+            result.add(new SalesWindowResponse(window.label, units, toAmount(cents)));
+        }
+        return result;
+    }
+    
+    public List<TopSellerResponse> getTopSellers(Window window, int limit) {
+        Map<Long, long[]> totals = new HashMap<>();
+        for (Bucket bucket : buckets(window)) {
+            bucket.bySweet.forEach((sweetId, sales) -> {
+                long[] total = totals.computeIfAbsent(sweetId, k -> new long[2]);
+                total[0] += sales.units.sum();
+                total[1] += sales.revenueCents.sum();
+            });
+        }
+        return totals.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<Long, long[]>>comparingLong(e -> e.getValue()[0]).reversed()
+                        .thenComparing(Map.Entry::getKey))
+                .limit(limit)
+                .map(e -> {
+                    SweetLabel label = labels.getOrDefault(e.getKey(), SweetLabel.UNKNOWN);
+                    return new TopSellerResponse(e.getKey(), label.name, label.category,
+                            e.getValue()[0], toAmount(e.getValue()[1]));
+                })
+                .toList();
+    }
+    
+    /**
+     * Units sold per sweet in the window; sweets without sales are left out.
+     */
+    public Map<Long, Long> getUnitsBySweet(Window window) {
+        Map<Long, Long> units = new HashMap<>();
+        for (Bucket bucket : buckets(window)) {
+            bucket.bySweet.forEach((sweetId, sales) -> units.merge(sweetId, sales.units.sum(), Long::sum));
+        }
+        return units;
+    }
+    
+    public List<HourlySalesResponse> getHourlySalesByCategory(int hourCount) {
+        long current = Math.floorDiv(clock.millis(), HOUR_MILLIS);
+        int count = Math.min(Math.max(hourCount, 1), hours.length());
+        List<HourlySalesResponse> result = new ArrayList<>(count);
+        for (long epoch = current - count + 1; epoch <= current; epoch++) {
+            Bucket bucket = hours.get(slot(hours, epoch));
+            Map<String, Long> byCategory = new TreeMap<>();
+            long units = 0;
+            if (bucket != null && bucket.epoch == epoch) {
+                bucket.unitsByCategory.forEach((category, adder) -> byCategory.put(category, adder.sum()));
+                units = bucket.units.sum();
+            }
+            result.add(new HourlySalesResponse(
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(epoch * HOUR_MILLIS), clock.getZone()),
+                    units, byCategory));
+        }
+        return result;
+    }
+    
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${analytics.checkpoint-interval-ms:60000}",
+            initialDelayString = "${analytics.checkpoint-interval-ms:60000}")
+    public synchronized void checkpoint() {
+        if (checkpointPath == null) {
+            return;
+        }
+        Checkpoint checkpoint = new Checkpoint(snapshot(minutes), snapshot(hours), new HashMap<>(labels));
+        try {
+            Path parent = checkpointPath.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, "sales-analytics", ".tmp");
+            objectMapper.writeValue(tmp.toFile(), checkpoint);
+            Files.move(tmp, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            log.warn("Could not checkpoint sales analytics to {}: {}", checkpointPath, ex.getMessage());
+        }
+    }
+    
+    @PostConstruct
+    public synchronized void restore() {
+        if (checkpointPath == null || !Files.exists(checkpointPath)) {
+            return;
+        }
+        try {
+            Checkpoint checkpoint = objectMapper.readValue(checkpointPath.toFile(), Checkpoint.class);
+            restore(minutes, checkpoint.getMinutes());
+            restore(hours, checkpoint.getHours());
+            checkpoint.getLabels().forEach(labels::putIfAbsent);
+            log.info("Sales analytics restored from {}", checkpointPath);
+        } catch (IOException ex) {
+            log.warn("Could not restore sales analytics from {}: {}", checkpointPath, ex.getMessage());
+        }
+    }
+    
+    private List<Bucket> buckets(Window window) {
+        AtomicReferenceArray<Bucket> ring = window.hourly ? hours : minutes;
+        long current = Math.floorDiv(clock.millis(), window.hourly ? HOUR_MILLIS : MINUTE_MILLIS);
+        List<Bucket> result = new ArrayList<>(window.buckets);
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket != null && bucket.epoch <= current && bucket.epoch > current - window.buckets) {
+                result.add(bucket);
+            }
+        }
+        return result;
+    }
+    
+    private static Bucket bucket(AtomicReferenceArray<Bucket> ring, long epoch) {
+        int slot = slot(ring, epoch);
+        while (true) {
+            Bucket current = ring.get(slot);
+            if (current != null && current.epoch == epoch) {
+                return current;
+            }
+            if (current != null && current.epoch > epoch) {
+                // the slot has already moved on to a later period
+                return null;
+            }
+            Bucket fresh = new Bucket(epoch);
+            if (ring.compareAndSet(slot, current, fresh)) {
+                return fresh;
+            }
+        }
+    }
+    
+    private static int slot(AtomicReferenceArray<Bucket> ring, long epoch) {
+        return (int) Math.floorMod(epoch, (long) ring.length());
+    }
+    
+    private static List<BucketState> snapshot(AtomicReferenceArray<Bucket> ring) {
+        List<BucketState> states = new ArrayList<>();
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket != null) {
+                states.add(bucket.toState());
+            }
+        }
+        return states;
+    }
+    
+    private static void restore(AtomicReferenceArray<Bucket> ring, List<BucketState> states) {
+        for (BucketState state : states) {
+            Bucket bucket = bucket(ring, state.getEpoch());
+            if (bucket != null) {
+                state.getBySweet().forEach((sweetId, sales) -> {
+                    SweetSales target = bucket.bySweet.computeIfAbsent(sweetId, k -> new SweetSales());
+                    target.units.add(sales[0]);
+                    target.revenueCents.add(sales[1]);
+                });
+                state.getUnitsByCategory().forEach((category, units) ->
+                        bucket.unitsByCategory.computeIfAbsent(category, k -> new LongAdder()).add(units));
+                bucket.units.add(state.getUnits());
+                bucket.revenueCents.add(state.getRevenueCents());
+            }
+        }
+    }
+    
+    private static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+    
+    public enum Window {
+        LAST_HOUR("1h", false, 60),
+        LAST_DAY("24h", true, 24),
+        LAST_WEEK("7d", true, 24 * 7);
+        
+        private final String label;
+        private final boolean hourly;
+        private final int buckets;
+        
+        Window(String label, boolean hourly, int buckets) {
+            this.label = label;
+            this.hourly = hourly;
+            this.buckets = buckets;
+        }
+        
+        public static Window fromLabel(String label) {
+            return Arrays.stream(values())
+                    .filter(window -> window.label.equalsIgnoreCase(label))
+                    .findFirst()
+                    .orElseThrow(() -> new InvalidRequestException(
+                            "Unknown window '" + label + "', expected one of 1h, 24h, 7d"));
+        }
+    }
+    
+    private static final class Bucket {
+        private final long epoch;
+        private final LongAdder units = new LongAdder();
+        private final LongAdder revenueCents = new LongAdder();
+        private final ConcurrentMap<Long, SweetSales> bySweet = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, LongAdder> unitsByCategory = new ConcurrentHashMap<>();
+        
+        private Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+        
+        private void add(Long sweetId, String category, int quantity, long cents) {
+            SweetSales sales = bySweet.computeIfAbsent(sweetId, k -> new SweetSales());
+            sales.units.add(quantity);
+            sales.revenueCents.add(cents);
+            unitsByCategory.computeIfAbsent(category, k -> new LongAdder()).add(quantity);
+            units.add(quantity);
+            revenueCents.add(cents);
+        }
+        
+        private BucketState toState() {
+            Map<Long, long[]> sweets = new HashMap<>();
+            bySweet.forEach((id, sales) -> sweets.put(id, new long[]{sales.units.sum(), sales.revenueCents.sum()}));
+            Map<String, Long> categories = new HashMap<>();
+            unitsByCategory.forEach((category, adder) -> categories.put(category, adder.sum()));
+            return new BucketState(epoch, units.sum(), revenueCents.sum(), sweets, categories);
+        }
+    }
+    
+    private static final class SweetSales {
+        private final LongAdder units = new LongAdder();
+        private final LongAdder revenueCents = new LongAdder();
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class SweetLabel {
+        static final SweetLabel UNKNOWN = new SweetLabel(null, null);
+        
+        private String name;
+        private String category;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class BucketState {
+        private long epoch;
+        private long units;
+        private long revenueCents;
+        private Map<Long, long[]> bySweet;
+        private Map<String, Long> unitsByCategory;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Checkpoint {
+        private List<BucketState> minutes;
+        private List<BucketState> hours;
+        private Map<Long, SweetLabel> labels;
+    }
+}
@@ -0,0 +1,36 @@
+package com.sweetshop.service;
+
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetInvalidatedEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops sweets changed on other nodes from this node's second-level cache. Hibernate keeps
+ * its own writes consistent but never sees another node's. Runs before the other listeners
+ * so they reload from the database.
+ */
+@Component
+public class SecondLevelCacheInvalidator {
+    
+    private final Cache cache;
+    
+    public SecondLevelCacheInvalidator(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+    
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onSweetInvalidated(SweetInvalidatedEvent event) {
+        if (event.isAll()) {
+            cache.evictEntityData(Sweet.class);
+        } else {
+            cache.evictEntityData(Sweet.class, event.getSweetId());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.sweetshop.service;
+
+import com.sweetshop.entity.Store;
+import com.sweetshop.exception.InvalidRequestException;
+import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.repository.StoreRepository;
+import com.sweetshop.repository.StoreStockRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores that hold stock. Purchases and restocks without a store go to
+ * {@code inventory.default-store-id}; known store ids are cached so routing a request
+ * does not need a lookup.
+ */
+@Slf4j
+@Service
+public class StoreService {
+    
+    private final StoreRepository storeRepository;
+    private final StoreStockRepository storeStockRepository;
+    private final Set<Long> storeIds = ConcurrentHashMap.newKeySet();
+    private volatile long defaultStoreId;
+    
+    public StoreService(StoreRepository storeRepository,
+                        StoreStockRepository storeStockRepository,
+                        @Value("${inventory.default-store-id:1}") long defaultStoreId) {
+        this.storeRepository = storeRepository;
+        this.storeStockRepository = storeStockRepository;
+        this.defaultStoreId = defaultStoreId;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initialise() {
+        if (!storeRepository.existsById(defaultStoreId)) {
+            if (storeRepository.count() > 0) {
+                throw new IllegalStateException("inventory.default-store-id " + defaultStoreId + " does not exist");
+            }
+            // databases created from the entities (tests) start without the migration's main store
+            Store main = new Store();
+            main.setCode("MAIN");
+            main.setName("Main Store");
+            defaultStoreId = storeRepository.save(main).getId();
+        }
+        storeRepository.findAll().forEach(store -> storeIds.add(store.getId()));
+        
+        int assigned = storeStockRepository.assignUnstockedSweets(defaultStoreId);
+        if (assigned > 0) {
+            log.info("Assigned the stock of {} sweets without store stock to store {}", assigned, defaultStoreId);
+        }
+    }
+    
+    public long getDefaultStoreId() {
+        return defaultStoreId;
+    }
+    
+    /**
+     * Returns the store a stock change goes to, the default store when {@code storeId} is null.
+     */
+    public Long resolve(Long storeId) {
+        long id = storeId != null ? storeId : defaultStoreId;
+        if (!storeIds.contains(id)) {
+            if (!storeRepository.existsById(id)) {
+                throw new ResourceNotFoundException("Store not found with id: " + id);
+            }
+            storeIds.add(id);
+        }
+        return id;
+    }
+    
+    @Transactional(readOnly = true)
+    public List<Store> getAllStores() {
+        return storeRepository.findAll();
+    }
+    
+    @Transactional
+    public Store createStore(String code, String name) {
+        if (storeRepository.existsByCode(code)) {
+            throw new InvalidRequestException("Store code already exists: " + code);
+        }
+        Store store = new Store();
+        store.setCode(code);
+        store.setName(name);
+        return storeRepository.save(store);
+    }
+}
@@ -0,0 +1,16 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.SweetResponse;
+
+import java.util.List;
+
+/**
+ * Serves the catalog reads of single sweets and of the full list. Backed by the database
+ * by default, or by {@link OffHeapSweetCatalog} for inventories too large to keep on heap.
+ */
+public interface SweetCatalog {
+    
+    SweetResponse getSweet(Long id);
+    
+    List<SweetResponse> getAllSweets();
+}
@@ -0,0 +1,70 @@
+package com.sweetshop.service;
+
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import jakarta.persistence.EntityManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Hands every changed sweet to the {@link InvalidationBus} just before the changing
+ * transaction commits, so a rolled-back change is never broadcast. A transaction that changes
+ * a sweet several times (a coalesced purchase batch) publishes it once, with the version it
+ * commits.
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.invalidation.bus")
+public class SweetInvalidationPublisher {
+    
+    private final InvalidationBus bus;
+    private final EntityManager entityManager;
+    
+    public SweetInvalidationPublisher(InvalidationBus bus, EntityManager entityManager) {
+        this.bus = bus;
+        this.entityManager = entityManager;
+    }
+    
+    @EventListener
+    public void onSweetChanged(SweetChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bus.publish(event.getSweetId(), currentVersion(event.getSweetId()));
+            return;
+        }
+        Changed changed = (Changed) TransactionSynchronizationManager.getResource(this);
+        if (changed == null) {
+            changed = new Changed();
+            TransactionSynchronizationManager.bindResource(this, changed);
+            TransactionSynchronizationManager.registerSynchronization(changed);
+        }
+        changed.sweetIds.add(event.getSweetId());
+    }
+    
+    private Long currentVersion(Long sweetId) {
+        Sweet sweet = entityManager.find(Sweet.class, sweetId);
+        return sweet != null ? sweet.getVersion() : null;
+    }
+    
+    private final class Changed implements TransactionSynchronization {
+        private final Set<Long> sweetIds = new LinkedHashSet<>();
+        
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // versions are only incremented when the changes are flushed
+            entityManager.flush();
+            for (Long sweetId : sweetIds) {
+                bus.publish(sweetId, currentVersion(sweetId));
+            }
+        }
+        
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(SweetInvalidationPublisher.this);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.SweetResponse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Sweets kept outside the heap in two memory-mapped files under one directory. Every sweet
+ * is a fixed-size record in {@code records.bin}:
+ *
+ * <pre>
+ *  0 id            8 version       16 price cents   24 created at    32 updated at
+ * 40 name ref     48 description ref                56 quantity      60 reorder threshold
+ * 64 category     68 unused
+ * </pre>
+ *
+ * Times are microseconds since the epoch in UTC, refs are offsets into {@code strings.bin}
+ * where a string is its UTF-8 length followed by its bytes, and categories are indexes into
+ * a small on-heap table. Absent values are stored as a sentinel. Both files are mapped in
+ * fixed-size segments as they grow, so the operating system decides which pages stay in
+ * memory. A slot freed by a removal is reused; a string that is replaced stays in the arena
+ * until the store is rebuilt. The heap holds only the id-to-slot index, as primitives.
+ * Not thread-safe, except that {@link #patchStock}, {@link #get} and {@link #forEach} may run
+ * concurrently with each other: a patch changes no structure and each record is read and
+ * patched under one of a fixed set of stripe locks.
+ */
+final class SweetRecordStore implements Closeable {
+    
+    static final int RECORD_BYTES = 72;
+    
+    private static final int RECORDS_PER_SEGMENT = 1 << 20;
+    private static final int ARENA_SEGMENT_BYTES = 64 << 20;
+    private static final long NO_REF = -1;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final int NO_THRESHOLD = Integer.MIN_VALUE;
+    
+    private static final int ID = 0;
+    private static final int VERSION = 8;
+    private static final int PRICE = 16;
+    private static final int CREATED_AT = 24;
+    private static final int UPDATED_AT = 32;
+    private static final int NAME = 40;
+    private static final int DESCRIPTION = 48;
+    private static final int QUANTITY = 56;
+    private static final int THRESHOLD = 60;
+    private static final int CATEGORY = 64;
+    private static final int LOCK_STRIPES = 64;
+    
+    private final Path directory;
+    private final FileChannel records;
+    private final FileChannel strings;
+    private final List<MappedByteBuffer> recordSegments = new ArrayList<>();
+    private final List<MappedByteBuffer> arenaSegments = new ArrayList<>();
+    private final LongIntHashMap slots = new LongIntHashMap(1024);
+    private final List<String> categories = new ArrayList<>();
+    private final Map<String, Integer> categoryIndex = new HashMap<>();
+    private final Object[] stripes = new Object[LOCK_STRIPES];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int nextSlot;
+    private long arenaEnd;
+    
+    SweetRecordStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.records = open(directory.resolve("records.bin"));
+        this.strings = open(directory.resolve("strings.bin"));
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+    
+    /**
+     * Stores {@code sweet}, replacing the stored one unless that has a newer version.
+     */
+    void put(SweetResponse sweet) {
+        long version = sweet.getVersion() != null ? sweet.getVersion() : 0;
+        int slot = slots.get(sweet.getId());
+        if (slot == LongIntHashMap.MISSING) {
+            slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot++;
+            slots.put(sweet.getId(), slot);
+        } else if (record(slot).getLong(offset(slot) + VERSION) > version) {
+            return;
+        }
+        
+        MappedByteBuffer record = record(slot);
+        int at = offset(slot);
+        boolean existing = record.getLong(at + ID) == sweet.getId();
+        long nameRef = existing && sweet.getName().equals(readString(record.getLong(at + NAME)))
+                ? record.getLong(at + NAME) : writeString(sweet.getName());
+        long descriptionRef = existing && Objects.equals(sweet.getDescription(),
+                readString(record.getLong(at + DESCRIPTION)))
+                ? record.getLong(at + DESCRIPTION) : writeString(sweet.getDescription());
+        
+        record.putLong(at + ID, sweet.getId());
+        record.putLong(at + VERSION, version);
+        record.putLong(at + PRICE, sweet.getPrice().movePointRight(2).longValueExact());
+        record.putLong(at + CREATED_AT, toMicros(sweet.getCreatedAt()));
+        record.putLong(at + UPDATED_AT, toMicros(sweet.getUpdatedAt()));
+        record.putLong(at + NAME, nameRef);
+        record.putLong(at + DESCRIPTION, descriptionRef);
+        record.putInt(at + QUANTITY, sweet.getQuantity());
+        record.putInt(at + THRESHOLD, sweet.getReorderThreshold() != null ? sweet.getReorderThreshold() : NO_THRESHOLD);
+        record.putInt(at + CATEGORY, category(sweet.getCategory()));
+    }
+    
+    /**
+     * Sets the quantity, version and update time of a stored sweet in place, unless the stored
+     * version is newer. Returns false when the sweet is not stored.
+     */
+    boolean patchStock(long id, int quantity, long version, LocalDateTime updatedAt) {
+        int slot = slots.get(id);
+        if (slot == LongIntHashMap.MISSING) {
+            return false;
+        }
+        MappedByteBuffer record = record(slot);
+        int at = offset(slot);
+        synchronized (stripes[slot & (LOCK_STRIPES - 1)]) {
+            if (record.getLong(at + VERSION) <= version) {
+                record.putLong(at + VERSION, version);
+                record.putInt(at + QUANTITY, quantity);
+                record.putLong(at + UPDATED_AT, toMicros(updatedAt));
+            }
+        }
+        return true;
+    }
+    
+    SweetResponse get(long id) {
+        int slot = slots.get(id);
+        return slot == LongIntHashMap.MISSING ? null : read(slot);
+    }
+    
+    boolean remove(long id) {
+        int slot = slots.remove(id);
+        if (slot == LongIntHashMap.MISSING) {
+            return false;
+        }
+        record(slot).putLong(offset(slot) + ID, 0);
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        return true;
+    }
+    
+    /**
+     * Passes every stored sweet to {@code consumer}, in slot order.
+     */
+    void forEach(Consumer<SweetResponse> consumer) {
+        for (int slot = 0; slot < nextSlot; slot++) {
+            if (record(slot).getLong(offset(slot) + ID) != 0) {
+                consumer.accept(read(slot));
+            }
+        }
+    }
+    
+    int size() {
+        return slots.size();
+    }
+    
+    long mappedBytes() {
+        return (long) recordSegments.size() * RECORDS_PER_SEGMENT * RECORD_BYTES
+                + (long) arenaSegments.size() * ARENA_SEGMENT_BYTES;
+    }
+    
+    /**
+     * Closes and deletes the files; the mapped memory is released once the segments are
+     * garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        records.close();
+        strings.close();
+        recordSegments.clear();
+        arenaSegments.clear();
+        Files.deleteIfExists(directory.resolve("records.bin"));
+        Files.deleteIfExists(directory.resolve("strings.bin"));
+        Files.deleteIfExists(directory);
+    }
+    
+    private SweetResponse read(int slot) {
+        MappedByteBuffer record = record(slot);
+        int at = offset(slot);
+        int quantity;
+        long updatedAt;
+        long version;
+        synchronized (stripes[slot & (LOCK_STRIPES - 1)]) {
+            quantity = record.getInt(at + QUANTITY);
+            updatedAt = record.getLong(at + UPDATED_AT);
+            version = record.getLong(at + VERSION);
+        }
+        int threshold = record.getInt(at + THRESHOLD);
+        return new SweetResponse(
+                record.getLong(at + ID),
+                readString(record.getLong(at + NAME)),
+                categories.get(record.getInt(at + CATEGORY)),
+                BigDecimal.valueOf(record.getLong(at + PRICE), 2),
+                quantity,
+                readString(record.getLong(at + DESCRIPTION)),
+                threshold != NO_THRESHOLD ? threshold : null,
+                fromMicros(record.getLong(at + CREATED_AT)),
+                fromMicros(updatedAt),
+                version);
+    }
+    
+    private MappedByteBuffer record(int slot) {
+        int segment = slot / RECORDS_PER_SEGMENT;
+        while (recordSegments.size() <= segment) {
+            recordSegments.add(map(records, (long) recordSegments.size() * RECORDS_PER_SEGMENT * RECORD_BYTES,
+                    RECORDS_PER_SEGMENT * RECORD_BYTES));
+        }
+        return recordSegments.get(segment);
+    }
+    
+    private static int offset(int slot) {
+        return (slot % RECORDS_PER_SEGMENT) * RECORD_BYTES;
+    }
+    
+    private int category(String category) {
+        return categoryIndex.computeIfAbsent(category, key -> {
+            categories.add(key);
+            return categories.size() - 1;
+        });
+    }
+    
+    private long writeString(String value) {
+        if (value == null) {
+            return NO_REF;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Integer.BYTES + bytes.length;
+        if (length > ARENA_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("String of " + bytes.length + " bytes does not fit an arena segment");
+        }
+        // a string never spans two segments
+        if (arenaEnd % ARENA_SEGMENT_BYTES + length > ARENA_SEGMENT_BYTES) {
+            arenaEnd += ARENA_SEGMENT_BYTES - arenaEnd % ARENA_SEGMENT_BYTES;
+        }
+        long ref = arenaEnd;
+        MappedByteBuffer segment = arena(ref);
+        int at = (int) (ref % ARENA_SEGMENT_BYTES);
+        segment.putInt(at, bytes.length);
+        segment.put(at + Integer.BYTES, bytes);
+        arenaEnd += length;
+        return ref;
+    }
+    
+    private String readString(long ref) {
+        if (ref == NO_REF) {
+            return null;
+        }
+        MappedByteBuffer segment = arena(ref);
+        int at = (int) (ref % ARENA_SEGMENT_BYTES);
+        byte[] bytes = new byte[segment.getInt(at)];
+        segment.get(at + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private MappedByteBuffer arena(long ref) {
+        int segment = (int) (ref / ARENA_SEGMENT_BYTES);
+        while (arenaSegments.size() <= segment) {
+            arenaSegments.add(map(strings, (long) arenaSegments.size() * ARENA_SEGMENT_BYTES, ARENA_SEGMENT_BYTES));
+        }
+        return arenaSegments.get(segment);
+    }
+    
+    private static long toMicros(LocalDateTime time) {
+        if (time == null) {
+            return NO_TIME;
+        }
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+    
+    private static LocalDateTime fromMicros(long micros) {
+        if (micros == NO_TIME) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+    
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    
+    private static MappedByteBuffer map(FileChannel channel, long position, int size) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not map " + size + " bytes at " + position, ex);
+        }
+    }
+}
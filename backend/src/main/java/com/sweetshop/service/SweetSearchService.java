@@ -0,0 +1,436 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.SearchHitResponse;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetInvalidatedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import com.sweetshop.repository.SweetRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Ranked, typo-tolerant search over sweet names, answered from memory. Names are split into
+ * lower-cased, accent-free terms held in a sorted term dictionary. A query term matches a
+ * name term that equals it, that starts with it (autocomplete), or that is within one edit of
+ * it (two for terms of eight or more characters), found through a {@link BkTree} over the
+ * dictionary. A name matches when every query term does.
+ *
+ * <p>Relevance is the average match quality of the query terms, plus a bonus for names that
+ * start with the query. It is blended with popularity: units sold over the last week from
+ * {@link SalesAnalyticsService}, on a log scale, refreshed every
+ * {@code search.popularity-refresh-ms}. Each term lists its sweets most popular first. A short
+ * prefix can complete to many terms; it keeps those whose most popular sweet sells best.
+ * Candidates are taken from the heads of those lists, in rounds, until enough of them match or
+ * a fixed number has been scored. A query therefore costs about the same on a large catalog as
+ * on a small one, but a rarely sold sweet that matches only very common terms can be left out.
+ *
+ * <p>The index is built on startup and kept current from {@link SweetChangedEvent}s after
+ * commit and, in a cluster, {@link SweetInvalidatedEvent}s. Stock changes leave names alone
+ * and do not touch the index. Searches share a read lock.
+ */
+@Slf4j
+@Service
+public class SweetSearchService {
+    
+    private static final double EXACT = 1.0;
+    private static final double PREFIX = 0.8;
+    private static final double[] FUZZY = {EXACT, 0.6, 0.4};
+    private static final double NAME_PREFIX_BONUS = 0.1;
+    private static final double POPULARITY_WEIGHT = 0.2;
+    private static final int MAX_TERMS_PER_TOKEN = 64;
+    private static final int CANDIDATES_PER_ROUND = 256;
+    private static final int MAX_CANDIDATES = 2048;
+    private static final int MAX_LIMIT = 50;
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Comparator<Doc> BY_POPULARITY = Comparator.comparingDouble((Doc doc) -> -doc.popularity)
+            .thenComparingLong(doc -> doc.id);
+    private static final Comparator<Hit> BY_SCORE = Comparator.comparingDouble((Hit hit) -> hit.score)
+            .thenComparing(hit -> hit.doc.name, Comparator.reverseOrder())
+            .thenComparingLong(hit -> -hit.doc.id);
+    
+    private final SweetRepository sweetRepository;
+    private final SalesAnalyticsService salesAnalyticsService;
+    private final Timer latency;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // guarded by lock
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private final TreeMap<String, List<Doc>> postings = new TreeMap<>();
+    private BkTree vocabulary = new BkTree();
+    // a posting list's head is its most popular sweet; alphabetically earlier terms win ties
+    private final Comparator<String> byBestPopularity = Comparator
+            .comparingDouble((String term) -> postings.get(term).get(0).popularity)
+            .thenComparing(Comparator.<String>reverseOrder());
+    
+    public SweetSearchService(SweetRepository sweetRepository,
+                              SalesAnalyticsService salesAnalyticsService,
+                              MeterRegistry meterRegistry) {
+        this.sweetRepository = sweetRepository;
+        this.salesAnalyticsService = salesAnalyticsService;
+        this.latency = Timer.builder("sweetshop.search.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Sweet> sweets = sweetRepository.findAll();
+        Map<Long, Double> popularity = popularity();
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            postings.clear();
+            vocabulary = new BkTree();
+            for (Sweet sweet : sweets) {
+                add(new Doc(SweetSnapshot.of(sweet), popularity.getOrDefault(sweet.getId(), 0.0)), false);
+            }
+            postings.values().forEach(list -> list.sort(BY_POPULARITY));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Search index initialised with {} sweets and {} terms", sweets.size(), postings.size());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSweetChanged(SweetChangedEvent event) {
+        if (event.getAfter() == null) {
+            remove(event.getSweetId());
+        } else {
+            put(event.getAfter());
+        }
+    }
+    
+    @EventListener
+    public void onSweetInvalidated(SweetInvalidatedEvent event) {
+        if (event.isAll()) {
+            rebuild();
+            return;
+        }
+        sweetRepository.findById(event.getSweetId()).ifPresentOrElse(
+                sweet -> put(SweetSnapshot.of(sweet)),
+                () -> remove(event.getSweetId()));
+    }
+    
+    @Scheduled(fixedDelayString = "${search.popularity-refresh-ms:60000}",
+            initialDelayString = "${search.popularity-refresh-ms:60000}")
+    public void refreshPopularity() {
+        Map<Long, Double> popularity = popularity();
+        lock.writeLock().lock();
+        try {
+            Set<String> changed = new HashSet<>();
+            for (Doc doc : docs.values()) {
+                double value = popularity.getOrDefault(doc.id, 0.0);
+                if (value != doc.popularity) {
+                    doc.popularity = value;
+                    changed.addAll(Arrays.asList(doc.terms));
+                }
+            }
+            for (String term : changed) {
+                postings.get(term).sort(BY_POPULARITY);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Sweets whose name matches {@code query}, best first. The last word may be incomplete.
+     */
+    public List<SearchHitResponse> search(String query, int limit) {
+        long started = System.nanoTime();
+        String[] tokens = tokenize(query);
+        if (tokens.length == 0) {
+            return List.of();
+        }
+        String phrase = String.join(" ", tokens);
+        int size = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        
+        PriorityQueue<Hit> top = new PriorityQueue<>(size + 1, BY_SCORE);
+        lock.readLock().lock();
+        try {
+            // candidates come from the query term with the fewest, the others only filter and score
+            List<Map<String, Double>> matches = new ArrayList<>(tokens.length);
+            Map<String, Double> driver = null;
+            long driverCost = Long.MAX_VALUE;
+            for (String token : tokens) {
+                Map<String, Double> match = match(token);
+                if (match.isEmpty()) {
+                    return List.of();
+                }
+                long cost = 0;
+                for (String term : match.keySet()) {
+                    cost += postings.get(term).size();
+                }
+                if (cost < driverCost) {
+                    driver = match;
+                    driverCost = cost;
+                }
+                matches.add(match);
+            }
+            
+            // take the most popular candidates of every term in rounds until enough match
+            Set<Long> seen = new HashSet<>();
+            int scanned = 0;
+            for (int from = 0; top.size() < size && scanned < MAX_CANDIDATES && from < driverCost;
+                 from += CANDIDATES_PER_ROUND) {
+                for (Map.Entry<String, Double> term : driver.entrySet()) {
+                    List<Doc> list = postings.get(term.getKey());
+                    double bestRelevance = (term.getValue() + tokens.length - 1) / tokens.length + NAME_PREFIX_BONUS;
+                    for (int i = from; i < Math.min(list.size(), from + CANDIDATES_PER_ROUND)
+                            && scanned < MAX_CANDIDATES; i++, scanned++) {
+                        Doc doc = list.get(i);
+                        // the rest of the list is less popular and cannot beat the current results
+                        if (top.size() == size && score(bestRelevance, doc) <= top.peek().score) {
+                            break;
+                        }
+                        if (!seen.add(doc.id)) {
+                            continue;
+                        }
+                        double relevance = relevance(doc, matches, phrase);
+                        if (relevance > 0) {
+                            top.add(new Hit(doc, score(relevance, doc)));
+                            if (top.size() > size) {
+                                top.poll();
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+            latency.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+        
+        List<SearchHitResponse> hits = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            Hit hit = top.poll();
+            hits.add(new SearchHitResponse(hit.doc.id, hit.doc.name, hit.doc.category, hit.doc.price, hit.score));
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+    
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(SEPARATORS.split(folded))
+                .filter(token -> !token.isEmpty())
+                .toArray(String[]::new);
+    }
+    
+    // index terms the token matches, with the quality of each match
+    private Map<String, Double> match(String token) {
+        Map<String, Double> match = new LinkedHashMap<>();
+        if (postings.containsKey(token)) {
+            match.put(token, EXACT);
+        }
+        // every completion is considered, only the most popular are kept
+        PriorityQueue<String> completions = new PriorityQueue<>(MAX_TERMS_PER_TOKEN + 1, byBestPopularity);
+        for (String term : postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+            completions.add(term);
+            if (completions.size() > MAX_TERMS_PER_TOKEN) {
+                completions.poll();
+            }
+        }
+        for (String term : completions) {
+            match.put(term, PREFIX);
+        }
+        int radius = isNumber(token) ? 0 : token.length() >= 8 ? 2 : token.length() >= 4 ? 1 : 0;
+        if (radius > 0) {
+            vocabulary.search(token, radius, (term, distance) -> {
+                // the tree keeps terms of deleted names until it is rebuilt
+                if (distance > 0 && postings.containsKey(term)) {
+                    match.merge(term, FUZZY[distance], Math::max);
+                }
+            });
+        }
+        return match;
+    }
+    
+    private static double relevance(Doc doc, List<Map<String, Double>> matches, String phrase) {
+        double total = 0;
+        for (Map<String, Double> match : matches) {
+            double best = 0;
+            for (String term : doc.terms) {
+                best = Math.max(best, match.getOrDefault(term, 0.0));
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        double relevance = total / matches.size();
+        return doc.normalized.startsWith(phrase) ? relevance + NAME_PREFIX_BONUS : relevance;
+    }
+    
+    private static double score(double relevance, Doc doc) {
+        return (1 - POPULARITY_WEIGHT) * relevance + POPULARITY_WEIGHT * doc.popularity;
+    }
+    
+    private Map<Long, Double> popularity() {
+        Map<Long, Long> units = salesAnalyticsService.getUnitsBySweet(SalesAnalyticsService.Window.LAST_WEEK);
+        long max = units.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        Map<Long, Double> popularity = new HashMap<>();
+        if (max > 0) {
+            double scale = Math.log1p(max);
+            units.forEach((id, sold) -> popularity.put(id, Math.log1p(sold) / scale));
+        }
+        return popularity;
+    }
+    
+    private void put(SweetSnapshot sweet) {
+        lock.readLock().lock();
+        try {
+            Doc existing = docs.get(sweet.getId());
+            if (existing != null && existing.matches(sweet)) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        lock.writeLock().lock();
+        try {
+            Doc existing = docs.get(sweet.getId());
+            if (existing != null && existing.name.equals(sweet.getName())) {
+                existing.category = sweet.getCategory();
+                existing.price = sweet.getPrice();
+                return;
+            }
+            double popularity = existing != null ? existing.popularity : 0.0;
+            removeDoc(sweet.getId());
+            add(new Doc(sweet, popularity), true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeDoc(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void add(Doc doc, boolean keepOrder) {
+        docs.put(doc.id, doc);
+        for (String term : doc.terms) {
+            List<Doc> list = postings.computeIfAbsent(term, key -> {
+                if (!isNumber(key)) {
+                    vocabulary.add(key);
+                }
+                return new ArrayList<>();
+            });
+            if (keepOrder) {
+                int position = Collections.binarySearch(list, doc, BY_POPULARITY);
+                list.add(position < 0 ? -position - 1 : position, doc);
+            } else {
+                list.add(doc);
+            }
+        }
+    }
+    
+    private void removeDoc(Long id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        for (String term : doc.terms) {
+            List<Doc> list = postings.get(term);
+            list.remove(doc);
+            if (list.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        if (vocabulary.size() > 2 * postings.size() + 1000) {
+            vocabulary = new BkTree();
+            for (String term : postings.keySet()) {
+                if (!isNumber(term)) {
+                    vocabulary.add(term);
+                }
+            }
+        }
+    }
+    
+    // numbers are only looked up exactly, a typo in one makes another number
+    private static boolean isNumber(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            if (!Character.isDigit(term.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static final class Doc {
+        private final long id;
+        private final String name;
+        private final String normalized;
+        private final String[] terms;
+        private String category;
+        private BigDecimal price;
+        private double popularity;
+        
+        private Doc(SweetSnapshot sweet, double popularity) {
+            String[] tokens = tokenize(sweet.getName());
+            this.id = sweet.getId();
+            this.name = sweet.getName();
+            this.normalized = String.join(" ", tokens);
+            this.terms = Arrays.stream(tokens).distinct().toArray(String[]::new);
+            this.category = sweet.getCategory();
+            this.price = sweet.getPrice();
+            this.popularity = popularity;
+        }
+        
+        private boolean matches(SweetSnapshot sweet) {
+            return name.equals(sweet.getName())
+                    && Objects.equals(category, sweet.getCategory())
+                    && (price == null ? sweet.getPrice() == null
+                    : sweet.getPrice() != null && price.compareTo(sweet.getPrice()) == 0);
+        }
+    }
+    
+    private static final class Hit {
+        private final Doc doc;
+        private final double score;
+        
+        private Hit(Doc doc, double score) {
+            this.doc = doc;
+            this.score = score;
+        }
+    }
+}
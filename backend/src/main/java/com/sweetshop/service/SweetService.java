@@ -1,22 +1,47 @@
 package com.sweetshop.service;
 
+import com.sweetshop.dto.PriceScheduleRequest;
 import com.sweetshop.dto.SweetRequest;
+import com.sweetshop.entity.PriceChange;
+import com.sweetshop.entity.StoreStock;
+import com.sweetshop.entity.StoreStockId;
 import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.Actor;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetSnapshot;
 import com.sweetshop.exception.InsufficientStockException;
+import com.sweetshop.exception.InvalidRequestException;
 import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.repository.StoreStockRepository;
 import com.sweetshop.repository.SweetRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class SweetService {
     
+    // innodb_ft_min_token_size: shorter words are not in the FULLTEXT index
+    private static final int MIN_FULLTEXT_WORD_LENGTH = 3;
+    
     private final SweetRepository sweetRepository;
+    private final StoreStockRepository storeStockRepository;
+    private final StoreService storeService;
+    private final PriceScheduleService priceScheduleService;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Transactional
     public Sweet createSweet(SweetRequest request) {
@@ -27,13 +52,20 @@ public class SweetService {
         sweet.setQuantity(request.getQuantity());
         sweet.setDescription(request.getDescription());
         
-        return sweetRepository.save(sweet);
+        Sweet saved = sweetRepository.save(sweet);
+        storeStockRepository.save(new StoreStock(storeService.getDefaultStoreId(), saved.getId(),
+                saved.getQuantity(), null, null));
+        priceScheduleService.record(saved.getId(), saved.getPrice(), saved.getCreatedAt(), null);
+        eventPublisher.publishEvent(SweetChangedEvent.created(saved));
+        return saved;
     }
     
+    @Transactional(readOnly = true)
     public List<Sweet> getAllSweets() {
         return sweetRepository.findAll();
     }
     
+    @Transactional(readOnly = true)
     public Sweet getSweetById(Long id) {
         return sweetRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Sweet not found with id: " + id));
@@ -42,6 +74,26 @@ public class SweetService {
     @Transactional
     public Sweet updateSweet(Long id, SweetRequest request) {
         Sweet sweet = getSweetById(id);
+        // the flush would catch a change made while this runs; this catches one made since the client read
+        if (request.getVersion() != null && !request.getVersion().equals(sweet.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Sweet.class, id);
+        }
+        SweetSnapshot before = SweetSnapshot.of(sweet);
+        // a new price replaces whatever is in effect now, including a running promotion
+        if (sweet.getPrice().compareTo(request.getPrice()) != 0) {
+            priceScheduleService.record(id, request.getPrice(), LocalDateTime.now(), null);
+        }
+        // the quantity is the total across stores; the difference is taken up by the default store
+        int delta = request.getQuantity() - sweet.getQuantity();
+        if (delta != 0) {
+            StoreStock stock = findStock(storeService.getDefaultStoreId(), id);
+            if (stock.getQuantity() + delta < 0) {
+                throw new InsufficientStockException("Insufficient stock at the default store. Available: "
+                        + stock.getQuantity() + ", Requested reduction: " + -delta);
+            }
+            stock.setQuantity(stock.getQuantity() + delta);
+            storeStockRepository.save(stock);
+        }
         
         sweet.setName(request.getName());
         sweet.setCategory(request.getCategory());
@@ -49,44 +101,270 @@ public class SweetService {
         sweet.setQuantity(request.getQuantity());
         sweet.setDescription(request.getDescription());
         
-        return sweetRepository.save(sweet);
+        // flushed so the event carries the version the row commits with; listeners order by it
+        Sweet saved = sweetRepository.saveAndFlush(sweet);
+        eventPublisher.publishEvent(SweetChangedEvent.changed(SweetChangedEvent.Action.UPDATED, before, saved));
+        return saved;
     }
     
     @Transactional
     public void deleteSweet(Long id) {
         Sweet sweet = getSweetById(id);
+        SweetSnapshot before = SweetSnapshot.of(sweet);
+        storeStockRepository.deleteBySweetId(id);
         sweetRepository.delete(sweet);
+        eventPublisher.publishEvent(SweetChangedEvent.deleted(before));
+    }
+    
+    @Retryable(
+            label = "purchaseSweet",
+            retryFor = OptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${inventory.optimistic-retry.max-attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${inventory.optimistic-retry.initial-delay-ms:5}",
+                    maxDelayExpression = "${inventory.optimistic-retry.max-delay-ms:50}",
+                    multiplier = 2,
+                    random = true),
+            listeners = "optimisticLockRetryListener")
+    @Transactional
+    public PurchaseResult purchaseSweet(Long id, Long storeId, Integer quantity) {
+        return applyPurchases(id, storeId, List.of(new PurchaseLine(quantity, Actor.current()))).get(0);
+    }
+    
+    /**
+     * Applies several purchases of one sweet at one store with a single stock row update and
+     * a single total update. Lines are served in order while stock lasts; each gets its own
+     * result and, on success, its own {@link SweetChangedEvent} attributed to its actor.
+     * Successful results all carry the sweet as it is after the whole batch.
+     */
+    @Retryable(
+            label = "purchaseBatch",
+            retryFor = OptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${inventory.optimistic-retry.max-attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${inventory.optimistic-retry.initial-delay-ms:5}",
+                    maxDelayExpression = "${inventory.optimistic-retry.max-delay-ms:50}",
+                    multiplier = 2,
+                    random = true),
+            listeners = "optimisticLockRetryListener")
+    @Transactional
+    public List<PurchaseResult> purchaseBatch(Long id, Long storeId, List<PurchaseLine> lines) {
+        return applyPurchases(id, storeId, lines);
+    }
+    
+    @Retryable(
+            label = "restockSweet",
+            retryFor = OptimisticLockingFailureException.class,
+            maxAttemptsExpression = "${inventory.optimistic-retry.max-attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${inventory.optimistic-retry.initial-delay-ms:5}",
+                    maxDelayExpression = "${inventory.optimistic-retry.max-delay-ms:50}",
+                    multiplier = 2,
+                    random = true),
+            listeners = "optimisticLockRetryListener")
+    @Transactional
+    public Sweet restockSweet(Long id, Long storeId, Integer quantity) {
+        Long store = storeService.resolve(storeId);
+        StoreStock stock = findStock(store, id);
+        stock.setQuantity(stock.getQuantity() + quantity);
+        storeStockRepository.save(stock);
+        return adjustTotal(SweetChangedEvent.Action.RESTOCKED, id, store, quantity);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<StoreStock> getStoreStock(Long id) {
+        getSweetById(id);
+        return storeStockRepository.findBySweetIdOrderByStoreId(id);
     }
     
     @Transactional
-    public Sweet purchaseSweet(Long id, Integer quantity) {
+    public Sweet setReorderThreshold(Long id, Integer threshold) {
         Sweet sweet = getSweetById(id);
-        
-        if (sweet.getQuantity() < quantity) {
-            throw new InsufficientStockException(
-                    "Insufficient stock. Available: " + sweet.getQuantity() + ", Requested: " + quantity);
+        SweetSnapshot before = SweetSnapshot.of(sweet);
+        sweet.setReorderThreshold(threshold);
+        Sweet saved = sweetRepository.saveAndFlush(sweet);
+        eventPublisher.publishEvent(SweetChangedEvent.changed(SweetChangedEvent.Action.UPDATED, before, saved));
+        return saved;
+    }
+    
+    @Transactional
+    public PriceChange schedulePrice(Long id, PriceScheduleRequest request) {
+        Sweet sweet = getSweetById(id);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = request.getEffectiveFrom() != null ? request.getEffectiveFrom() : now;
+        if (from.isBefore(now)) {
+            throw new InvalidRequestException("effectiveFrom must not be in the past");
+        }
+        if (request.getEffectiveTo() != null && !request.getEffectiveTo().isAfter(from)) {
+            throw new InvalidRequestException("effectiveTo must be after effectiveFrom");
         }
         
-        sweet.setQuantity(sweet.getQuantity() - quantity);
-        return sweetRepository.save(sweet);
+        // sweets seeded outside the service have no history; the price they have now is their base
+        if (!priceScheduleService.hasHistory(id)) {
+            priceScheduleService.record(id, sweet.getPrice(), sweet.getCreatedAt(), null);
+        }
+        PriceChange change = priceScheduleService.record(id, request.getPrice(), from, request.getEffectiveTo());
+        if (!from.isAfter(now)) {
+            applyPrice(sweet, request.getPrice());
+        }
+        return change;
     }
     
     @Transactional
-    public Sweet restockSweet(Long id, Integer quantity) {
+    public void cancelScheduledPrice(Long id, Long priceChangeId) {
+        getSweetById(id);
+        priceScheduleService.cancel(id, priceChangeId);
+    }
+    
+    /**
+     * Switches the price in effect at a schedule boundary; called by {@link PriceScheduler}.
+     */
+    @Transactional
+    public void applyScheduledPrice(Long id, BigDecimal price) {
+        sweetRepository.findById(id).ifPresent(sweet -> applyPrice(sweet, price));
+    }
+    
+    @Transactional(readOnly = true)
+    public List<PriceChange> getPriceHistory(Long id) {
+        getSweetById(id);
+        return priceScheduleService.getHistory(id);
+    }
+    
+    @Transactional(readOnly = true)
+    public BigDecimal getPriceAt(Long id, LocalDateTime at) {
         Sweet sweet = getSweetById(id);
-        sweet.setQuantity(sweet.getQuantity() + quantity);
-        return sweetRepository.save(sweet);
+        if (at == null) {
+            return sweet.getPrice();
+        }
+        Optional<PriceChange> change = priceScheduleService.findEffectiveAt(id, at);
+        if (change.isPresent()) {
+            return change.get().getPrice();
+        }
+        // without recorded history the sweet has had its current price since it was created
+        if (!priceScheduleService.hasHistory(id) && !at.isBefore(sweet.getCreatedAt())) {
+            return sweet.getPrice();
+        }
+        throw new ResourceNotFoundException("No price recorded for sweet " + id + " at " + at);
+    }
+    
+    private List<PurchaseResult> applyPurchases(Long id, Long storeId, List<PurchaseLine> lines) {
+        Long store = storeService.resolve(storeId);
+        Optional<StoreStock> existing = storeStockRepository.findById(new StoreStockId(store, id));
+        StoreStock stock = existing.orElseGet(() -> new StoreStock(store, id, 0, null, null));
+        
+        int available = stock.getQuantity();
+        int remaining = available;
+        int sold = 0;
+        for (PurchaseLine line : lines) {
+            if (line.getQuantity() <= remaining) {
+                remaining -= line.getQuantity();
+                sold += line.getQuantity();
+            }
+        }
+        
+        List<PurchaseResult> results = new ArrayList<>(lines.size());
+        if (sold == 0) {
+            // a stock row implies the sweet exists; otherwise the entity lookup is usually a cache hit
+            boolean found = existing.isPresent() || sweetRepository.findById(id).isPresent();
+            for (PurchaseLine line : lines) {
+                results.add(found
+                        ? PurchaseResult.insufficientStock(id, store, available, line.getQuantity())
+                        : PurchaseResult.notFound(id));
+            }
+            return results;
+        }
+        
+        stock.setQuantity(remaining);
+        storeStockRepository.save(stock);
+        Sweet saved = sweetRepository.adjustQuantity(id, -sold)
+                .orElseThrow(() -> new ResourceNotFoundException("Sweet not found with id: " + id));
+        
+        // replay the lines so each event and result sees the stock left after the lines before it
+        int storeQuantity = available;
+        int total = saved.getQuantity() + sold;
+        SweetSnapshot after = SweetSnapshot.of(saved);
+        for (PurchaseLine line : lines) {
+            if (line.getQuantity() <= storeQuantity) {
+                storeQuantity -= line.getQuantity();
+                eventPublisher.publishEvent(SweetChangedEvent.stockChanged(SweetChangedEvent.Action.PURCHASED,
+                        after.withQuantity(total), after.withQuantity(total - line.getQuantity()),
+                        line.getActor(), store));
+                total -= line.getQuantity();
+                results.add(PurchaseResult.success(saved, store));
+            } else {
+                results.add(PurchaseResult.insufficientStock(id, store, storeQuantity, line.getQuantity()));
+            }
+        }
+        return results;
+    }
+    
+    private StoreStock findStock(Long storeId, Long sweetId) {
+        return storeStockRepository.findById(new StoreStockId(storeId, sweetId))
+                .orElseGet(() -> new StoreStock(storeId, sweetId, 0, null, null));
+    }
+    
+    /**
+     * Applies a store's stock change to the cross-store total. The store row has already been
+     * checked, so the total is changed relative to what is in the database instead of being
+     * read and locked first; the before snapshot is derived from the row after the change.
+     */
+    private Sweet adjustTotal(SweetChangedEvent.Action action, Long id, Long storeId, int delta) {
+        Sweet saved = sweetRepository.adjustQuantity(id, delta)
+                .orElseThrow(() -> new ResourceNotFoundException("Sweet not found with id: " + id));
+        SweetSnapshot after = SweetSnapshot.of(saved);
+        SweetSnapshot before = after.withQuantity(after.getQuantity() - delta).withVersion(after.getVersion() - 1);
+        eventPublisher.publishEvent(SweetChangedEvent.stockChanged(action, before, saved, storeId));
+        return saved;
+    }
+    
+    private void applyPrice(Sweet sweet, BigDecimal price) {
+        if (sweet.getPrice().compareTo(price) == 0) {
+            return;
+        }
+        SweetSnapshot before = SweetSnapshot.of(sweet);
+        sweet.setPrice(price);
+        Sweet saved = sweetRepository.saveAndFlush(sweet);
+        eventPublisher.publishEvent(SweetChangedEvent.changed(SweetChangedEvent.Action.UPDATED, before, saved));
     }
     
+    /**
+     * Filters sweets by category and price range, and by name: every word of {@code name}
+     * must start a word of the sweet's name or description. Words shorter than the full-text
+     * index's minimum token size are not indexed, so a name made only of those finds nothing.
+     */
+    @Transactional(readOnly = true)
     public List<Sweet> searchSweets(String name, String category, BigDecimal minPrice, BigDecimal maxPrice) {
-        return sweetRepository.searchSweets(name, category, minPrice, maxPrice);
+        String query = fullTextQuery(name);
+        if (query == null && name != null && !name.isBlank()) {
+            return List.of();
+        }
+        return sweetRepository.searchSweets(query, category, minPrice, maxPrice);
     }
     
+    @Transactional(readOnly = true)
     public List<Sweet> getSweetsByCategory(String category) {
         return sweetRepository.findByCategory(category);
     }
     
-    public List<Sweet> searchSweetsByName(String name) {
-        return sweetRepository.findByNameContainingIgnoreCase(name);
+    @Transactional(readOnly = true)
+    public List<Sweet> searchSweetsByName(String prefix) {
+        return sweetRepository.findByNameLowerStartingWith(prefix.toLowerCase(Locale.ROOT));
+    }
+    
+    // "Dark choc" -> "+dark* +choc*", or null when no word is long enough to be indexed
+    static String fullTextQuery(String name) {
+        if (name == null) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        for (String word : name.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() >= MIN_FULLTEXT_WORD_LENGTH) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                query.append('+').append(word).append('*');
+            }
+        }
+        return query.length() > 0 ? query.toString() : null;
     }
 }
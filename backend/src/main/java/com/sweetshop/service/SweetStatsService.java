@@ -0,0 +1,235 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.CategoryStatsResponse;
+import com.sweetshop.dto.SweetStatsResponse;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetInvalidatedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import com.sweetshop.repository.SweetRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps per-category inventory aggregates in memory. The aggregates are built once at
+ * startup and then adjusted from {@link SweetChangedEvent}s after each commit, so
+ * serving the stats endpoint never touches the database.
+ *
+ * <p>After-commit events from concurrent transactions can arrive out of order, so the
+ * service remembers what it last counted for each sweet and the row version it came from.
+ * An event older than that is ignored, and a change always removes what was counted
+ * rather than the event's own before-image. A deleted sweet leaves a marker behind so a
+ * late update cannot bring it back; markers are purged once they are older than
+ * {@code inventory.deleted-marker-retention-ms}, long after any such event has arrived.
+ *
+ * <p>Changes made on other nodes arrive as {@link SweetInvalidatedEvent}s: the sweet is
+ * re-read and counted like a local change, and a node that fell behind rebuilds everything.
+ */
+@Slf4j
+@Service
+public class SweetStatsService {
+    
+    private static final long DELETED = Long.MAX_VALUE;
+    
+    private final SweetRepository sweetRepository;
+    private final long deletedMarkerRetentionMs;
+    
+    private volatile ConcurrentMap<String, CategoryAggregate> categories = new ConcurrentHashMap<>();
+    private volatile ConcurrentMap<Long, Counted> sweets = new ConcurrentHashMap<>();
+    
+    public SweetStatsService(SweetRepository sweetRepository,
+                             @Value("${inventory.deleted-marker-retention-ms:600000}") long deletedMarkerRetentionMs) {
+        this.sweetRepository = sweetRepository;
+        this.deletedMarkerRetentionMs = deletedMarkerRetentionMs;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        ConcurrentMap<String, CategoryAggregate> rebuilt = new ConcurrentHashMap<>();
+        ConcurrentMap<Long, Counted> counted = new ConcurrentHashMap<>();
+        for (Sweet sweet : sweetRepository.findAll()) {
+            rebuilt.computeIfAbsent(sweet.getCategory(), k -> new CategoryAggregate())
+                    .add(sweet.getPrice(), sweet.getQuantity());
+            counted.put(sweet.getId(), new Counted(sweet.getCategory(), sweet.getPrice(), sweet.getQuantity(),
+                    sweet.getVersion()));
+        }
+        sweets = counted;
+        categories = rebuilt;
+        log.info("Sweet statistics initialised for {} categories", rebuilt.size());
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSweetChanged(SweetChangedEvent event) {
+        apply(event.getSweetId(), event.getAfter());
+    }
+    
+    @EventListener
+    public void onSweetInvalidated(SweetInvalidatedEvent event) {
+        if (event.isAll()) {
+            rebuild();
+            return;
+        }
+        Sweet sweet = sweetRepository.findById(event.getSweetId()).orElse(null);
+        apply(event.getSweetId(), sweet != null ? SweetSnapshot.of(sweet) : null);
+    }
+    
+    void apply(Long id, SweetSnapshot after) {
+        Long version = after != null ? after.getVersion() : Long.valueOf(DELETED);
+        // compute runs under the entry's lock, so two events for one sweet never interleave
+        sweets.compute(id, (key, current) -> {
+            if (current != null && current.isNewerThan(version)) {
+                return current;
+            }
+            if (current != null && current.category != null) {
+                CategoryAggregate aggregate = categories.get(current.category);
+                if (aggregate != null) {
+                    aggregate.remove(current.price, current.quantity);
+                }
+            }
+            if (after == null) {
+                return Counted.deleted(System.currentTimeMillis());
+            }
+            categories.computeIfAbsent(after.getCategory(), k -> new CategoryAggregate())
+                    .add(after.getPrice(), after.getQuantity());
+            return new Counted(after.getCategory(), after.getPrice(), after.getQuantity(), version);
+        });
+    }
+    
+    @Scheduled(fixedDelayString = "${inventory.deleted-marker-retention-ms:600000}")
+    public void purgeDeletedMarkers() {
+        purgeDeletedMarkers(System.currentTimeMillis());
+    }
+    
+    void purgeDeletedMarkers(long nowMillis) {
+        long cutoff = nowMillis - deletedMarkerRetentionMs;
+        // removes an entry only if it still holds the marker, so a racing compute is not lost
+        sweets.entrySet().removeIf(entry -> entry.getValue().isDeletedBefore(cutoff));
+    }
+    
+    int trackedSweets() {
+        return sweets.size();
+    }
+    
+    public SweetStatsResponse getStats() {
+        List<CategoryStatsResponse> responses = new ArrayList<>(categories.size());
+        CategoryAggregate total = new CategoryAggregate();
+        
+        for (Map.Entry<String, CategoryAggregate> entry : categories.entrySet()) {
+            CategoryStatsResponse response = entry.getValue().toResponse(entry.getKey());
+            if (response.getItemCount() > 0) {
+                responses.add(response);
+                total.merge(entry.getValue());
+            }
+        }
+        responses.sort(Comparator.comparing(CategoryStatsResponse::getCategory));
+        
+        CategoryStatsResponse overall = total.toResponse(null);
+        return new SweetStatsResponse(
+                overall.getItemCount(),
+                overall.getTotalUnits(),
+                overall.getInventoryValue(),
+                overall.getMinPrice(),
+                overall.getMaxPrice(),
+                overall.getAvgPrice(),
+                responses
+        );
+    }
+    
+    // what a sweet contributes to its category; a null category marks a deleted sweet
+    private static final class Counted {
+        private final String category;
+        private final BigDecimal price;
+        private final int quantity;
+        private final Long version;
+        private final long deletedAtMillis;
+        
+        private Counted(String category, BigDecimal price, int quantity, Long version) {
+            this(category, price, quantity, version, 0);
+        }
+        
+        private Counted(String category, BigDecimal price, int quantity, Long version, long deletedAtMillis) {
+            this.category = category;
+            this.price = price;
+            this.quantity = quantity;
+            this.version = version;
+            this.deletedAtMillis = deletedAtMillis;
+        }
+        
+        private static Counted deleted(long nowMillis) {
+            return new Counted(null, null, 0, DELETED, nowMillis);
+        }
+        
+        private boolean isDeletedBefore(long cutoffMillis) {
+            return category == null && deletedAtMillis <= cutoffMillis;
+        }
+        
+        private boolean isNewerThan(Long other) {
+            return version != null && other != null && version > other;
+        }
+    }
+    
+    private static class CategoryAggregate {
+        private long itemCount;
+        private long totalUnits;
+        private BigDecimal inventoryValue = BigDecimal.ZERO;
+        private BigDecimal priceSum = BigDecimal.ZERO;
+        // price -> number of sweets at that price, so min/max survive removals
+        private final TreeMap<BigDecimal, Integer> prices = new TreeMap<>();
+        
+        synchronized void add(BigDecimal price, int quantity) {
+            itemCount++;
+            totalUnits += quantity;
+            inventoryValue = inventoryValue.add(price.multiply(BigDecimal.valueOf(quantity)));
+            priceSum = priceSum.add(price);
+            prices.merge(price, 1, Integer::sum);
+        }
+        
+        synchronized void remove(BigDecimal price, int quantity) {
+            itemCount--;
+            totalUnits -= quantity;
+            inventoryValue = inventoryValue.subtract(price.multiply(BigDecimal.valueOf(quantity)));
+            priceSum = priceSum.subtract(price);
+            prices.computeIfPresent(price, (p, count) -> count > 1 ? count - 1 : null);
+        }
+        
+        synchronized void merge(CategoryAggregate other) {
+            synchronized (other) {
+                itemCount += other.itemCount;
+                totalUnits += other.totalUnits;
+                inventoryValue = inventoryValue.add(other.inventoryValue);
+                priceSum = priceSum.add(other.priceSum);
+                other.prices.forEach((price, count) -> prices.merge(price, count, Integer::sum));
+            }
+        }
+        
+        synchronized CategoryStatsResponse toResponse(String category) {
+            if (itemCount == 0) {
+                return new CategoryStatsResponse(category, 0, 0, BigDecimal.ZERO, null, null, null);
+            }
+            return new CategoryStatsResponse(
+                    category,
+                    itemCount,
+                    totalUnits,
+                    inventoryValue,
+                    prices.firstKey(),
+                    prices.lastKey(),
+                    priceSum.divide(BigDecimal.valueOf(itemCount), 2, RoundingMode.HALF_UP)
+            );
+        }
+    }
+}
@@ -0,0 +1,11 @@
+-- Outbox of sweet changes for nodes that cache sweets. Every node polls rows with an id above
+-- the last one it applied; rows are purged after cluster.invalidation.retention.
+CREATE TABLE sweet_invalidations (
+    id         BIGINT      NOT NULL AUTO_INCREMENT,
+    sweet_id   BIGINT      NOT NULL,
+    version    BIGINT,
+    node_id    VARCHAR(64) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_sweet_invalidations_created_at (created_at)
+) ENGINE = InnoDB;
@@ -0,0 +1,16 @@
+-- Who changed which sweet and how. Appended in batches by AuditService and never updated;
+-- before_state and after_state hold the sweet as JSON, null for a creation or deletion.
+CREATE TABLE audit_log (
+    id           BIGINT        NOT NULL AUTO_INCREMENT,
+    actor_id     BIGINT        NULL,
+    actor        VARCHAR(255)  NOT NULL,
+    action       VARCHAR(20)   NOT NULL,
+    sweet_id     BIGINT        NOT NULL,
+    store_id     BIGINT        NULL,
+    before_state VARCHAR(2000) NULL,
+    after_state  VARCHAR(2000) NULL,
+    created_at   DATETIME(6)   NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_audit_log_sweet_created (sweet_id, created_at),
+    INDEX idx_audit_log_created (created_at)
+) ENGINE = InnoDB;
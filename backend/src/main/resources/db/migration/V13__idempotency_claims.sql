@@ -0,0 +1,3 @@
+-- A key is claimed with a row before its operation runs; the response is filled in once the
+-- operation has succeeded, so a row without one is a request still in progress.
+ALTER TABLE idempotency_keys MODIFY response TEXT NULL;
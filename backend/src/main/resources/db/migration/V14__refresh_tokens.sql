@@ -0,0 +1,11 @@
+-- Refresh tokens that can still be exchanged, one row per token id (jti). Redeeming deletes the
+-- row, so each token is exchanged at most once whichever instance receives it; rows of tokens
+-- that expired unused are pruned.
+CREATE TABLE refresh_tokens (
+    token_id   CHAR(36)    NOT NULL,
+    user_id    BIGINT      NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (token_id),
+    INDEX idx_refresh_tokens_expires (expires_at),
+    CONSTRAINT fk_refresh_tokens_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+) ENGINE = InnoDB;
@@ -0,0 +1,16 @@
+-- Purchases not yet copied into purchase_orders. A row is written in the purchase's own
+-- transaction, so it exists exactly when the purchase committed, and PurchaseOrderService moves
+-- rows into the partitioned history in batches off the request path. Only the primary key is
+-- indexed, so the insert a purchase pays for is an append.
+CREATE TABLE purchase_order_outbox (
+    id          BIGINT         NOT NULL AUTO_INCREMENT,
+    user_id     BIGINT         NOT NULL,
+    sweet_id    BIGINT         NOT NULL,
+    sweet_name  VARCHAR(255)   NOT NULL,
+    category    VARCHAR(255)   NOT NULL,
+    quantity    INT            NOT NULL,
+    unit_price  DECIMAL(10, 2) NOT NULL,
+    total_price DECIMAL(12, 2) NOT NULL,
+    created_at  DATETIME(6)    NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,27 @@
+-- Schema as previously created by spring.jpa.hibernate.ddl-auto=update.
+-- Existing databases are baselined at this version and skip this script.
+
+CREATE TABLE users (
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    username   VARCHAR(255) NOT NULL,
+    email      VARCHAR(255) NOT NULL,
+    password   VARCHAR(255) NOT NULL,
+    role       ENUM('ADMIN', 'USER') NOT NULL,
+    created_at DATETIME(6)  NOT NULL,
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+) ENGINE = InnoDB;
+
+CREATE TABLE sweets (
+    id          BIGINT         NOT NULL AUTO_INCREMENT,
+    name        VARCHAR(255)   NOT NULL,
+    category    VARCHAR(255)   NOT NULL,
+    price       DECIMAL(10, 2) NOT NULL,
+    quantity    INT            NOT NULL,
+    description VARCHAR(1000),
+    created_at  DATETIME(6)    NOT NULL,
+    updated_at  DATETIME(6),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
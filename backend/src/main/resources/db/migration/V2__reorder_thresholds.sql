@@ -0,0 +1,7 @@
+ALTER TABLE sweets ADD COLUMN reorder_threshold INT NULL;
+
+CREATE TABLE category_thresholds (
+    category  VARCHAR(255) NOT NULL,
+    threshold INT          NOT NULL,
+    PRIMARY KEY (category)
+) ENGINE = InnoDB;
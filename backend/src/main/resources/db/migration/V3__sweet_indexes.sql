@@ -0,0 +1,9 @@
+-- findByCategory and the category/price filters of searchSweets
+CREATE INDEX idx_sweets_category_price ON sweets (category, price);
+
+-- case-insensitive name lookups without LOWER() on every row
+ALTER TABLE sweets ADD COLUMN name_lower VARCHAR(255) GENERATED ALWAYS AS (LOWER(name)) STORED;
+CREATE INDEX idx_sweets_name_lower ON sweets (name_lower);
+
+-- word search over name and description
+CREATE FULLTEXT INDEX ft_sweets_name_description ON sweets (name, description);
@@ -0,0 +1,2 @@
+-- optimistic locking for concurrent updates, purchases and restocks
+ALTER TABLE sweets ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,9 @@
+-- responses of completed purchase/restock requests, keyed by SHA-256 of username + Idempotency-Key
+CREATE TABLE idempotency_keys (
+    key_hash    CHAR(64)     NOT NULL,
+    fingerprint VARCHAR(255) NOT NULL,
+    response    TEXT         NOT NULL,
+    created_at  DATETIME(6)  NOT NULL,
+    PRIMARY KEY (key_hash),
+    INDEX idx_idempotency_keys_created_at (created_at)
+) ENGINE = InnoDB;
@@ -0,0 +1,22 @@
+-- Append-only purchase history, partitioned by month so old months can be archived or dropped
+-- without touching recent data. The partitioning column has to be part of the primary key.
+-- PurchaseOrderService adds next month's partition ahead of time by splitting pmax.
+CREATE TABLE purchase_orders (
+    id          BIGINT         NOT NULL AUTO_INCREMENT,
+    user_id     BIGINT         NOT NULL,
+    sweet_id    BIGINT         NOT NULL,
+    sweet_name  VARCHAR(255)   NOT NULL,
+    category    VARCHAR(255)   NOT NULL,
+    quantity    INT            NOT NULL,
+    unit_price  DECIMAL(10, 2) NOT NULL,
+    total_price DECIMAL(12, 2) NOT NULL,
+    created_at  DATETIME(6)    NOT NULL,
+    PRIMARY KEY (id, created_at),
+    INDEX idx_purchase_orders_user_created (user_id, created_at)
+) ENGINE = InnoDB
+PARTITION BY RANGE COLUMNS (created_at) (
+    PARTITION p202610 VALUES LESS THAN ('2026-11-01'),
+    PARTITION p202611 VALUES LESS THAN ('2026-12-01'),
+    PARTITION p202612 VALUES LESS THAN ('2027-01-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+);
@@ -0,0 +1,9 @@
+-- Chunks written by the synthetic data seeder; a chunk's rows and its progress row commit together
+CREATE TABLE seed_progress (
+    chunk_key    VARCHAR(191) NOT NULL,
+    dataset      VARCHAR(160) NOT NULL,
+    row_count    INT          NOT NULL,
+    completed_at DATETIME(6)  NOT NULL,
+    PRIMARY KEY (chunk_key),
+    INDEX idx_seed_progress_dataset (dataset)
+) ENGINE = InnoDB;
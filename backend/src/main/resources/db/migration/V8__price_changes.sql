@@ -0,0 +1,18 @@
+-- Price history and scheduled price changes. A row applies from effective_from until
+-- effective_to (open-ended when NULL); where rows overlap, the one that started last wins.
+-- sweets.price holds the price in effect now and is switched by PriceScheduler at boundaries.
+CREATE TABLE price_changes (
+    id             BIGINT         NOT NULL AUTO_INCREMENT,
+    sweet_id       BIGINT         NOT NULL,
+    price          DECIMAL(10, 2) NOT NULL,
+    effective_from DATETIME(6)    NOT NULL,
+    effective_to   DATETIME(6),
+    created_by     VARCHAR(255),
+    created_at     DATETIME(6)    NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_price_changes_sweet_from (sweet_id, effective_from)
+) ENGINE = InnoDB;
+
+-- every existing sweet starts its history with the price it has today
+INSERT INTO price_changes (sweet_id, price, effective_from, created_by, created_at)
+SELECT id, price, created_at, 'system', NOW(6) FROM sweets;
@@ -0,0 +1,132 @@
+package com.sweetshop.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SyntheticDataSeederTest {
+    
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    @Mock
+    private PasswordEncoder passwordEncoder;
+    
+    private SyntheticSeedProperties properties;
+    private List<Object[]> insertedRows;
+    private List<String> completedChunks;
+    
+    @BeforeEach
+    void setUp() {
+        properties = new SyntheticSeedProperties();
+        properties.setUsers(25);
+        properties.setSweets(25);
+        properties.setChunkSize(10);
+        properties.setThreads(2);
+        insertedRows = Collections.synchronizedList(new ArrayList<>());
+        completedChunks = Collections.synchronizedList(new ArrayList<>());
+        
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(passwordEncoder.encode("password123")).thenReturn("hash");
+        lenient().when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            insertedRows.addAll(rows);
+            return new int[rows.size()];
+        });
+        lenient().when(jdbcTemplate.update(startsWith("INSERT INTO seed_progress"), any(Object[].class)))
+                .thenAnswer(invocation -> {
+                    completedChunks.add(invocation.getArgument(1));
+                    return 1;
+                });
+    }
+    
+    @Test
+    @DisplayName("Should insert every row in chunks and hash the shared password once")
+    void testRun_InsertsAllChunks() throws Exception {
+        // Arrange
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), anyString())).thenReturn(List.of());
+        
+        // Act
+        new SyntheticDataSeeder(jdbcTemplate, transactionManager, passwordEncoder, properties).run();
+        
+        // Assert
+        assertEquals(50, insertedRows.size());
+        assertEquals(6, completedChunks.size());
+        assertTrue(completedChunks.contains("users:seed=42:chunk=10#2"));
+        assertTrue(completedChunks.contains("sweets:seed=42:chunk=10#0"));
+        verify(passwordEncoder, times(1)).encode("password123");
+        assertTrue(insertedRows.stream()
+                .filter(row -> row.length == 6)
+                .allMatch(row -> "hash".equals(row[2])));
+    }
+    
+    @Test
+    @DisplayName("Should skip chunks recorded in seed_progress")
+    void testRun_SkipsCompletedChunks() throws Exception {
+        // Arrange
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("users:seed=42:chunk=10")))
+                .thenReturn(List.of("users:seed=42:chunk=10#0", "users:seed=42:chunk=10#1", "users:seed=42:chunk=10#2"));
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("sweets:seed=42:chunk=10")))
+                .thenReturn(List.of("sweets:seed=42:chunk=10#1"));
+        
+        // Act
+        new SyntheticDataSeeder(jdbcTemplate, transactionManager, passwordEncoder, properties).run();
+        
+        // Assert
+        assertEquals(15, insertedRows.size());
+        assertEquals(List.of("sweets:seed=42:chunk=10#0", "sweets:seed=42:chunk=10#2"),
+                completedChunks.stream().sorted().toList());
+        assertTrue(insertedRows.stream().noneMatch(row -> row.length == 6));
+    }
+    
+    @Test
+    @DisplayName("Should generate the same sweets for the same seed")
+    void testRun_IsDeterministic() throws Exception {
+        // Arrange
+        properties.setUsers(0);
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), anyString())).thenReturn(List.of());
+        
+        // Act
+        new SyntheticDataSeeder(jdbcTemplate, transactionManager, passwordEncoder, properties).run();
+        List<String> first = names();
+        insertedRows.clear();
+        new SyntheticDataSeeder(jdbcTemplate, transactionManager, passwordEncoder, properties).run();
+        
+        // Assert
+        assertEquals(25, first.size());
+        assertEquals(first, names());
+        assertEquals("#1", first.get(0).substring(first.get(0).lastIndexOf(' ') + 1));
+    }
+    
+    private List<String> names() {
+        synchronized (insertedRows) {
+            return insertedRows.stream()
+                    .map(row -> (String) row[0])
+                    .sorted((a, b) -> Integer.compare(number(a), number(b)))
+                    .toList();
+        }
+    }
+    
+    private static int number(String name) {
+        return Integer.parseInt(name.substring(name.lastIndexOf('#') + 1));
+    }
+}
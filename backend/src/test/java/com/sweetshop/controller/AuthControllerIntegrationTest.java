@@ -2,13 +2,17 @@ package com.sweetshop.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sweetshop.dto.LoginRequest;
+import com.sweetshop.dto.RefreshRequest;
 import com.sweetshop.dto.RegisterRequest;
 import com.sweetshop.entity.User;
 import com.sweetshop.repository.UserRepository;
+import com.sweetshop.security.JwtTokenProvider;
+import com.sweetshop.security.TokenRevocationList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
@@ -17,6 +21,7 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -38,6 +43,12 @@ class AuthControllerIntegrationTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private JwtTokenProvider tokenProvider;
+    
+    @Value("${jwt.secret}")
+    private String jwtSecret;
+    
     @BeforeEach
     void setUp() {
         userRepository.deleteAll();
@@ -92,10 +103,77 @@ class AuthControllerIntegrationTest {
                 .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.token").exists())
+                .andExpect(jsonPath("$.refreshToken").exists())
                 .andExpect(jsonPath("$.username").value("testuser"))
                 .andExpect(jsonPath("$.type").value("Bearer"));
     }
     
+    @Test
+    @DisplayName("Should exchange a refresh token once for new tokens with the current role")
+    void testRefresh_RotatesTokens() throws Exception {
+        User user = new User();
+        user.setUsername("testuser");
+        user.setEmail("test@example.com");
+        user.setPassword(passwordEncoder.encode("password123"));
+        user.setRole(User.Role.USER);
+        userRepository.save(user);
+        
+        String login = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new LoginRequest("testuser", "password123"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String refreshToken = objectMapper.readTree(login).get("refreshToken").asText();
+        user.setRole(User.Role.ADMIN);
+        userRepository.save(user);
+        
+        mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshRequest(refreshToken))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").exists())
+                .andExpect(jsonPath("$.refreshToken").exists())
+                .andExpect(jsonPath("$.role").value("ADMIN"));
+        
+        mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshRequest(refreshToken))))
+                .andExpect(status().isUnauthorized());
+    }
+    
+    @Test
+    @DisplayName("Should answer an expired or revoked access token with 401 and still accept the refresh token")
+    void testExpiredAccessToken_UnauthorizedThenRefresh() throws Exception {
+        User user = new User();
+        user.setUsername("testuser");
+        user.setEmail("test@example.com");
+        user.setPassword(passwordEncoder.encode("password123"));
+        user.setRole(User.Role.USER);
+        user = userRepository.save(user);
+        
+        String login = mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new LoginRequest("testuser", "password123"))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String accessToken = objectMapper.readTree(login).get("token").asText();
+        String refreshToken = objectMapper.readTree(login).get("refreshToken").asText();
+        String expiredToken = new JwtTokenProvider(jwtSecret, -1000, -1000, new TokenRevocationList())
+                .generateAccessToken(user);
+        tokenProvider.revokeAccessToken(accessToken);
+        
+        mockMvc.perform(get("/api/sweets").header("Authorization", "Bearer " + expiredToken))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/sweets").header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isUnauthorized());
+        
+        mockMvc.perform(post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshRequest(refreshToken))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").exists());
+    }
+    
     @Test
     @DisplayName("Should return unauthorized with invalid credentials")
     void testLogin_InvalidCredentials() throws Exception {
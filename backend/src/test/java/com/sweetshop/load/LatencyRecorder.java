@@ -0,0 +1,90 @@
+package com.sweetshop.load;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Collects raw latency samples for one operation. Samples are kept in full so that
+ * percentiles are exact; a load run produces at most a few million of them.
+ */
+class LatencyRecorder {
+    
+    private final String name;
+    private long[] samples = new long[4096];
+    private int count;
+    private long errors;
+    
+    LatencyRecorder(String name) {
+        this.name = name;
+    }
+    
+    synchronized void record(long latencyNanos, boolean success) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = latencyNanos;
+        if (!success) {
+            errors++;
+        }
+    }
+    
+    synchronized Summary summarize(double seconds) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        return new Summary(name, count, errors, count / seconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                count == 0 ? 0 : sorted[count - 1]);
+    }
+    
+    synchronized void mergeInto(LatencyRecorder total) {
+        for (int i = 0; i < count; i++) {
+            total.samples = total.count == total.samples.length
+                    ? Arrays.copyOf(total.samples, total.count * 2) : total.samples;
+            total.samples[total.count++] = samples[i];
+        }
+        total.errors += errors;
+    }
+    
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+    
+    @Getter
+    static final class Summary {
+        private final String name;
+        private final long count;
+        private final long errors;
+        private final double throughput;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long p999Nanos;
+        private final long maxNanos;
+        
+        private Summary(String name, long count, long errors, double throughput,
+                        long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+            this.name = name;
+            this.count = count;
+            this.errors = errors;
+            this.throughput = throughput;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.p999Nanos = p999Nanos;
+            this.maxNanos = maxNanos;
+        }
+        
+        double errorRate() {
+            return count == 0 ? 0.0 : errors / (double) count;
+        }
+        
+        String format() {
+            return String.format("%-10s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f",
+                    name, count, errors, throughput,
+                    p50Nanos / 1e6, p99Nanos / 1e6, p999Nanos / 1e6, maxNanos / 1e6);
+        }
+    }
+}
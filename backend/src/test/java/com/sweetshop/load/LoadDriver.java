@@ -0,0 +1,115 @@
+package com.sweetshop.load;
+
+import lombok.Getter;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * Open-model load driver. Request {@code i} is due at {@code start + i / rate}; latency is
+ * measured from that due time rather than from when a worker got round to sending it, so
+ * a slow server shows up in the percentiles instead of silently lowering the offered load.
+ */
+class LoadDriver {
+    
+    private final HttpClient client;
+    private final int threads;
+    private final long seed;
+    
+    LoadDriver(HttpClient client, int threads, long seed) {
+        this.client = client;
+        this.threads = threads;
+        this.seed = seed;
+    }
+    
+    List<LatencyRecorder.Summary> run(List<Workload> workloads, double ratePerSecond,
+                                      Duration warmup, Duration duration) throws InterruptedException {
+        int totalWeight = workloads.stream().mapToInt(Workload::getWeight).sum();
+        List<LatencyRecorder> recorders = workloads.stream().map(w -> new LatencyRecorder(w.getName())).toList();
+        
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long begin = System.nanoTime();
+        long measureFrom = begin + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        AtomicLong sequence = new AtomicLong();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(seed + t);
+            executor.execute(() -> {
+                while (true) {
+                    long due = begin + sequence.getAndIncrement() * intervalNanos;
+                    if (due >= end) {
+                        return;
+                    }
+                    for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    
+                    int index = pick(workloads, random.nextInt(totalWeight));
+                    Workload workload = workloads.get(index);
+                    boolean success;
+                    try {
+                        HttpResponse<Void> response = client.send(
+                                workload.getRequests().apply(random), HttpResponse.BodyHandlers.discarding());
+                        success = workload.getExpectedStatus().test(response.statusCode());
+                    } catch (Exception ex) {
+                        success = false;
+                    }
+                    if (due >= measureFrom) {
+                        recorders.get(index).record(System.nanoTime() - due, success);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(warmup.plus(duration).toSeconds() + 60, TimeUnit.SECONDS);
+        
+        double seconds = duration.toNanos() / 1e9;
+        LatencyRecorder total = new LatencyRecorder("total");
+        List<LatencyRecorder.Summary> summaries = new ArrayList<>();
+        for (LatencyRecorder recorder : recorders) {
+            summaries.add(recorder.summarize(seconds));
+            recorder.mergeInto(total);
+        }
+        summaries.add(total.summarize(seconds));
+        return summaries;
+    }
+    
+    private static int pick(List<Workload> workloads, int roll) {
+        for (int i = 0; i < workloads.size(); i++) {
+            roll -= workloads.get(i).getWeight();
+            if (roll < 0) {
+                return i;
+            }
+        }
+        return workloads.size() - 1;
+    }
+    
+    @Getter
+    static final class Workload {
+        private final String name;
+        private final int weight;
+        private final Function<Random, HttpRequest> requests;
+        private final IntPredicate expectedStatus;
+        
+        Workload(String name, int weight, Function<Random, HttpRequest> requests, IntPredicate expectedStatus) {
+            this.name = name;
+            this.weight = weight;
+            this.requests = requests;
+            this.expectedStatus = expectedStatus;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.sweetshop.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives a mixed browse/search/purchase/restock workload through the real HTTP stack and
+ * reports throughput and latency percentiles. Excluded from the regular build; run with
+ * {@code mvn test -Pload-test} and tune with the {@code load.*} system properties.
+ */
+@Slf4j
+@Tag("load")
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.jpa.show-sql=false",
+                "spring.jpa.properties.hibernate.format_sql=false",
+                "logging.level.com.sweetshop=WARN",
+                "logging.level.com.sweetshop.load=INFO",
+                "logging.level.org.springframework.security=WARN"
+        })
+@ActiveProfiles({"dev", "test"})
+class SweetShopLoadTest {
+    
+    private static final String HEADER = String.format("%-10s %9s %7s %10s %9s %9s %9s %9s",
+            "operation", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+    private static final String[] SEARCH_TERMS = {"choc", "gumm", "toffee", "lolli", "truffle", "bar"};
+    
+    @LocalServerPort
+    private int port;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private String userToken;
+    private String adminToken;
+    private List<Long> sweetIds;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        clientExecutor = Executors.newCachedThreadPool();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        
+        // users seeded by DataInitializer under the dev profile
+        userToken = login("user", "user123");
+        adminToken = login("admin", "admin123");
+        
+        sweetIds = new ArrayList<>();
+        JsonNode sweets = objectMapper.readTree(send(get("/api/sweets", userToken)).body());
+        sweets.forEach(sweet -> sweetIds.add(sweet.get("id").asLong()));
+        assertFalse(sweetIds.isEmpty(), "Expected seeded sweets");
+    }
+    
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        clientExecutor.shutdownNow();
+        clientExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    @DisplayName("Mixed workload should stay within the configured error budget")
+    void testMixedWorkload() throws Exception {
+        double rate = Double.parseDouble(System.getProperty("load.rate", "100"));
+        Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 5));
+        Duration duration = Duration.ofSeconds(Long.getLong("load.duration-seconds", 30));
+        int threads = Integer.getInteger("load.threads", 64);
+        long seed = Long.getLong("load.seed", 42);
+        double maxErrorRate = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+        Map<String, Integer> mix = parseMix(System.getProperty("load.mix", "browse=50,search=30,purchase=15,restock=5"));
+        
+        List<LoadDriver.Workload> workloads = List.of(
+                new LoadDriver.Workload("browse", mix.getOrDefault("browse", 0),
+                        random -> random.nextBoolean()
+                                ? get("/api/sweets", userToken)
+                                : get("/api/sweets/" + randomSweet(random), userToken),
+                        status -> status == 200),
+                new LoadDriver.Workload("search", mix.getOrDefault("search", 0),
+                        random -> get("/api/sweets/search?name=" + SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)]
+                                + "&maxPrice=" + (1 + random.nextInt(5)), userToken),
+                        status -> status == 200),
+                // running out of stock is a normal outcome, not a failure
+                new LoadDriver.Workload("purchase", mix.getOrDefault("purchase", 0),
+                        random -> post("/api/sweets/" + randomSweet(random) + "/purchase",
+                                "{\"quantity\":" + (1 + random.nextInt(3)) + "}", userToken),
+                        status -> status == 200 || status == 400),
+                new LoadDriver.Workload("restock", mix.getOrDefault("restock", 0),
+                        random -> post("/api/sweets/" + randomSweet(random) + "/restock",
+                                "{\"quantity\":" + (20 + random.nextInt(30)) + "}", adminToken),
+                        status -> status == 200)
+        );
+        
+        List<LatencyRecorder.Summary> summaries = new LoadDriver(client, threads, seed)
+                .run(workloads, rate, warmup, duration);
+        
+        StringBuilder report = new StringBuilder()
+                .append(String.format("target %.0f req/s for %ds after %ds warmup, %d threads, seed %d%n",
+                        rate, duration.toSeconds(), warmup.toSeconds(), threads, seed))
+                .append(HEADER).append(System.lineSeparator());
+        summaries.forEach(summary -> report.append(summary.format()).append(System.lineSeparator()));
+        log.info("Load test results:{}{}", System.lineSeparator(), report);
+        writeReport(report.toString());
+        
+        LatencyRecorder.Summary total = summaries.get(summaries.size() - 1);
+        assertTrue(total.getCount() > 0, "No requests were measured");
+        assertTrue(total.errorRate() <= maxErrorRate,
+                String.format("Error rate %.4f exceeds budget %.4f", total.errorRate(), maxErrorRate));
+        
+        String maxP99 = System.getProperty("load.max-p99-ms");
+        if (maxP99 != null) {
+            assertTrue(total.getP99Nanos() / 1e6 <= Double.parseDouble(maxP99),
+                    String.format("p99 %.2f ms exceeds budget %s ms", total.getP99Nanos() / 1e6, maxP99));
+        }
+    }
+    
+    private long randomSweet(Random random) {
+        return sweetIds.get(random.nextInt(sweetIds.size()));
+    }
+    
+    private String login(String username, String password) throws Exception {
+        HttpResponse<String> response = send(post("/api/auth/login",
+                "{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}", null));
+        assertEquals(200, response.statusCode(), "Login failed for " + username);
+        return objectMapper.readTree(response.body()).get("token").asText();
+    }
+    
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+    
+    private HttpRequest get(String path, String token) {
+        return request(path, token).GET().build();
+    }
+    
+    private HttpRequest post(String path, String json, String token) {
+        return request(path, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+    
+    private HttpRequest.Builder request(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(10));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+    
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            weights.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+        }
+        return weights;
+    }
+    
+    private static void writeReport(String report) throws IOException {
+        Path path = Path.of("target", "load-test-report.txt");
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, report);
+    }
+}
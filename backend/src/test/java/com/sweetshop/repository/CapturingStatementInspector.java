@@ -0,0 +1,27 @@
+package com.sweetshop.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Remembers the last SQL statement Hibernate prepared on each thread, so tests can inspect
+ * the queries repositories actually run. Registered through
+ * {@code hibernate.session_factory.statement_inspector}.
+ */
+public class CapturingStatementInspector implements StatementInspector {
+    
+    private static final ThreadLocal<String> LAST = new ThreadLocal<>();
+    
+    @Override
+    public String inspect(String sql) {
+        LAST.set(sql);
+        return sql;
+    }
+    
+    public static void clear() {
+        LAST.remove();
+    }
+    
+    public static String last() {
+        return LAST.get();
+    }
+}
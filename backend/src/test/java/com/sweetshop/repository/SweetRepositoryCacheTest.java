@@ -0,0 +1,128 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.entity.Sweet;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link SweetRepository} with the second-level cache on, which the rest of the test
+ * profile leaves off. The context has its own database so its cached rows cannot outlive
+ * the schema they were read from.
+ */
+@SpringBootTest(properties = {
+        "app.datasource.write.jdbc-url=jdbc:h2:mem:cachetest;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1",
+        "app.datasource.read.jdbc-url=jdbc:h2:mem:cachetest;IGNORECASE=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+class SweetRepositoryCacheTest {
+    
+    @Autowired
+    private SweetRepository sweetRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Cache cache;
+    private Statistics statistics;
+    
+    @BeforeEach
+    void setUp() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        cache = sessionFactory.getCache();
+        statistics = sessionFactory.getStatistics();
+        cache.evictAllRegions();
+        statistics.clear();
+    }
+    
+    @Test
+    @DisplayName("Should serve a sweet from the second-level cache after it has been loaded once")
+    void testFindById_CacheHit() {
+        // Arrange
+        Long id = create("Toffee", 20);
+        load(id);
+        
+        // Act
+        Sweet sweet = load(id);
+        
+        // Assert
+        assertEquals(20, sweet.getQuantity());
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0);
+    }
+    
+    @Test
+    @DisplayName("Should evict only the adjusted sweet and read the new total after commit")
+    void testAdjustQuantity_EvictsOneEntry() {
+        // Arrange
+        Long adjusted = create("Fudge", 30);
+        Long untouched = create("Nougat", 40);
+        Long version = load(adjusted).getVersion();
+        load(untouched);
+        
+        // Act
+        Sweet result = transactionTemplate.execute(status -> sweetRepository.adjustQuantity(adjusted, -3).orElseThrow());
+        
+        // Assert
+        assertEquals(27, result.getQuantity());
+        assertFalse(cache.containsEntity(Sweet.class, adjusted));
+        assertTrue(cache.containsEntity(Sweet.class, untouched));
+        Sweet reloaded = load(adjusted);
+        assertEquals(27, reloaded.getQuantity());
+        assertEquals(version + 1, reloaded.getVersion());
+    }
+    
+    @Test
+    @DisplayName("Should not cache a total whose transaction rolled back")
+    void testAdjustQuantity_RolledBack() {
+        // Arrange
+        Long id = create("Marzipan", 15);
+        load(id);
+        
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(10, sweetRepository.adjustQuantity(id, -5).orElseThrow().getQuantity());
+            load(id);
+            status.setRollbackOnly();
+        });
+        
+        // Assert
+        assertEquals(15, load(id).getQuantity());
+    }
+    
+    @Test
+    @DisplayName("Should return empty when adjusting a sweet that does not exist")
+    void testAdjustQuantity_NotFound() {
+        assertTrue(transactionTemplate.execute(status -> sweetRepository.adjustQuantity(-1L, 1)).isEmpty());
+    }
+    
+    private Long create(String name, int quantity) {
+        Sweet sweet = new Sweet();
+        sweet.setName(name);
+        sweet.setCategory("Cache");
+        sweet.setPrice(new BigDecimal("1.00"));
+        sweet.setQuantity(quantity);
+        return sweetRepository.save(sweet).getId();
+    }
+    
+    private Sweet load(Long id) {
+        return transactionTemplate.execute(status -> sweetRepository.findById(id).orElseThrow());
+    }
+}
@@ -0,0 +1,133 @@
+package com.sweetshop.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the Flyway migrations against a real MySQL and checks with EXPLAIN that the
+ * queries {@link SweetRepository} generates pick up the indexes they were added for.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+class SweetRepositoryIndexTest {
+    
+    private static final int CATEGORIES = 50;
+    private static final int SWEETS = 5000;
+    
+    @Container
+    static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+    
+    @DynamicPropertySource
+    static void mysqlProperties(DynamicPropertyRegistry registry) {
+        for (String pool : new String[]{"write", "read"}) {
+            registry.add("app.datasource." + pool + ".jdbc-url", MYSQL::getJdbcUrl);
+            registry.add("app.datasource." + pool + ".username", MYSQL::getUsername);
+            registry.add("app.datasource." + pool + ".password", MYSQL::getPassword);
+            registry.add("app.datasource." + pool + ".driver-class-name", MYSQL::getDriverClassName);
+        }
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.MySQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector",
+                CapturingStatementInspector.class::getName);
+    }
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private SweetRepository sweetRepository;
+    
+    @BeforeEach
+    void setUp() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sweets", Integer.class);
+        if (count != null && count > 0) {
+            return;
+        }
+        
+        List<Object[]> rows = new ArrayList<>(SWEETS);
+        for (int i = 0; i < SWEETS; i++) {
+            rows.add(new Object[]{
+                    String.format("Sweet %05d", i),
+                    "Category " + (i % CATEGORIES),
+                    BigDecimal.valueOf(50 + (i * 37) % 1000, 2),
+                    i % 200,
+                    "Assorted candy"
+            });
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO sweets (name, category, price, quantity, description, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, NOW(6))", rows);
+        jdbcTemplate.execute("ANALYZE TABLE sweets");
+    }
+    
+    @Test
+    @DisplayName("Category and price range search should use the composite index")
+    void testSearchSweets_UsesCompositeIndex() {
+        BigDecimal min = new BigDecimal("1.00");
+        BigDecimal max = new BigDecimal("3.00");
+        
+        // every occurrence of a named parameter is bound separately
+        assertEquals("idx_sweets_category_price", indexUsedBy(
+                () -> sweetRepository.searchSweets(null, "Category 7", min, max),
+                null, null, "Category 7", "Category 7", min, min, max, max));
+    }
+    
+    @Test
+    @DisplayName("Category lookup should use the composite index prefix")
+    void testFindByCategory_UsesCompositeIndex() {
+        assertEquals("idx_sweets_category_price", indexUsedBy(
+                () -> sweetRepository.findByCategory("Category 7"), "Category 7"));
+    }
+    
+    @Test
+    @DisplayName("Name and description search should use the FULLTEXT index")
+    void testSearchSweets_UsesFullTextIndex() {
+        String query = "+sweet* +00042*";
+        
+        assertEquals("ft_sweets_name_description", indexUsedBy(
+                () -> sweetRepository.searchSweets(query, null, null, null),
+                query, query, null, null, null, null, null, null));
+    }
+    
+    @Test
+    @DisplayName("Name prefix lookup should range-scan the lowercase name index")
+    void testFindByNameLowerStartingWith_UsesNameIndex() {
+        assertEquals("idx_sweets_name_lower", indexUsedBy(
+                () -> sweetRepository.findByNameLowerStartingWith("sweet 0004"), "sweet 0004%"));
+    }
+    
+    /**
+     * Runs the repository query, then EXPLAINs the SQL Hibernate generated for it with the
+     * same parameter values.
+     */
+    private String indexUsedBy(Runnable query, Object... parameters) {
+        CapturingStatementInspector.clear();
+        query.run();
+        String sql = CapturingStatementInspector.last();
+        assertNotNull(sql, "The query did not reach the database");
+        assertEquals(parameters.length, sql.chars().filter(c -> c == '?').count(), "Parameters for: " + sql);
+        
+        List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, parameters);
+        assertEquals(1, plan.size(), "Expected a single-table plan for: " + sql);
+        return (String) plan.get(0).get("key");
+    }
+}
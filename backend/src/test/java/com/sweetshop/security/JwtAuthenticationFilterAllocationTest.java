@@ -0,0 +1,82 @@
+package com.sweetshop.security;
+
+import com.sweetshop.entity.User;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bytes allocated per authenticated request by the JWT filter, measured with the
+ * per-thread allocation counter after warm-up. A repeated token is served from the
+ * provider's verified-token cache; parsing it with JJWT again costs about 37 KB per
+ * request and fails the budget.
+ * <p>
+ * Nothing is stubbed: the filter builds the principal from the token's claims and does not
+ * load the user, so the budget covers its whole per-request path. If a user lookup is added
+ * back, it has to be measured here with the real {@link UserDetailsServiceImpl} and repository.
+ */
+class JwtAuthenticationFilterAllocationTest {
+    
+    private static final String SECRET = "testSecretKeyForJWTTokenGeneration123456789";
+    private static final long BUDGET_BYTES_PER_REQUEST = 1024;
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 20_000;
+    
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+    
+    @Test
+    @DisplayName("Should authenticate a bearer token within the allocation budget")
+    void testDoFilter_AllocationBudget() throws Exception {
+        // Arrange
+        JwtTokenProvider tokenProvider = new JwtTokenProvider(SECRET, 3_600_000, 86_400_000, new TokenRevocationList());
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        user.setPassword("hash");
+        user.setRole(User.Role.USER);
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(tokenProvider);
+        String token = tokenProvider.generateAccessToken(user);
+        
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/sweets");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> { };
+        
+        for (int i = 0; i < WARMUP; i++) {
+            filter.doFilter(request, response, chain);
+            SecurityContextHolder.clearContext();
+        }
+        
+        // Act
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            filter.doFilter(request, response, chain);
+            SecurityContextHolder.clearContext();
+        }
+        long bytesPerRequest = (threads.getThreadAllocatedBytes(threadId) - before) / ITERATIONS;
+        
+        // Assert
+        filter.doFilter(request, response, (req, res) -> {
+            UserDetailsImpl principal = (UserDetailsImpl) SecurityContextHolder.getContext()
+                    .getAuthentication().getPrincipal();
+            assertEquals("alice", principal.getUsername());
+            assertEquals(1L, principal.getId());
+        });
+        assertTrue(bytesPerRequest <= BUDGET_BYTES_PER_REQUEST,
+                "JWT filter allocated " + bytesPerRequest + " bytes/request, budget is " + BUDGET_BYTES_PER_REQUEST);
+    }
+}
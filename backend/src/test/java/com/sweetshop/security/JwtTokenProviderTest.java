@@ -0,0 +1,123 @@
+package com.sweetshop.security;
+
+import com.sweetshop.entity.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenProviderTest {
+    
+    private static final String SECRET = "testSecretKeyForJWTTokenGeneration123456789";
+    
+    @Test
+    @DisplayName("Should return the subject of a valid token, also when it is served from the cache")
+    void testGetUsernameIfValid_ValidToken() {
+        // Arrange
+        JwtTokenProvider tokenProvider = provider(SECRET, 3_600_000);
+        String token = tokenProvider.generateAccessToken(user("alice", User.Role.USER));
+        
+        // Act & Assert
+        assertEquals("alice", tokenProvider.getUsernameIfValid(token));
+        assertEquals("alice", tokenProvider.getUsernameIfValid(token));
+        assertTrue(tokenProvider.validateToken(token));
+    }
+    
+    @Test
+    @DisplayName("Should reject a token whose signature does not match")
+    void testGetUsernameIfValid_TamperedToken() {
+        // Arrange
+        JwtTokenProvider tokenProvider = provider(SECRET, 3_600_000);
+        JwtTokenProvider otherProvider = provider(SECRET.replace('t', 'x'), 3_600_000);
+        String token = tokenProvider.generateAccessToken(user("alice", User.Role.USER));
+        
+        // Act & Assert
+        assertEquals("alice", tokenProvider.getUsernameIfValid(token));
+        assertNull(otherProvider.getUsernameIfValid(token));
+        assertNull(tokenProvider.getUsernameIfValid(token.substring(0, token.length() - 2)));
+    }
+    
+    @Test
+    @DisplayName("Should reject a cached token once it has expired")
+    void testGetUsernameIfValid_CachedTokenExpires() throws InterruptedException {
+        // Arrange
+        JwtTokenProvider tokenProvider = provider(SECRET, 1_000);
+        String token = tokenProvider.generateAccessToken(user("alice", User.Role.USER));
+        assertEquals("alice", tokenProvider.getUsernameIfValid(token));
+        
+        // Act
+        Thread.sleep(1_100);
+        
+        // Assert
+        assertNull(tokenProvider.getUsernameIfValid(token));
+        assertFalse(tokenProvider.validateToken(token));
+    }
+    
+    @Test
+    @DisplayName("Should build the principal from the token's id and role claims")
+    void testGetPrincipalIfValid_RoleFromClaims() {
+        // Arrange
+        JwtTokenProvider tokenProvider = provider(SECRET, 3_600_000);
+        String token = tokenProvider.generateAccessToken(user("admin", User.Role.ADMIN));
+        
+        // Act
+        UserDetailsImpl principal = tokenProvider.getPrincipalIfValid(token);
+        
+        // Assert
+        assertEquals(1L, principal.getId());
+        assertEquals("admin", principal.getUsername());
+        assertEquals("ROLE_ADMIN", principal.getAuthorities().iterator().next().getAuthority());
+    }
+    
+    @Test
+    @DisplayName("Should read back the claims of a refresh token and never accept it as an access token")
+    void testReadRefreshToken_Claims() {
+        // Arrange
+        JwtTokenProvider tokenProvider = provider(SECRET, 3_600_000);
+        User user = user("alice", User.Role.USER);
+        RefreshToken issued = tokenProvider.generateRefreshToken(user);
+        String accessToken = tokenProvider.generateAccessToken(user);
+        
+        // Act
+        RefreshToken read = tokenProvider.readRefreshToken(issued.getValue());
+        
+        // Assert
+        assertEquals(issued.getTokenId(), read.getTokenId());
+        assertEquals(1L, read.getUserId());
+        assertEquals(issued.getExpiresAt().withNano(0), read.getExpiresAt());
+        assertNull(tokenProvider.getPrincipalIfValid(issued.getValue()));
+        assertNull(tokenProvider.readRefreshToken(accessToken));
+    }
+    
+    @Test
+    @DisplayName("Should reject a revoked access token, also when it is cached")
+    void testRevoke_CachedAccessToken() {
+        // Arrange
+        TokenRevocationList revocations = new TokenRevocationList();
+        JwtTokenProvider tokenProvider = new JwtTokenProvider(SECRET, 3_600_000, 86_400_000, revocations);
+        String token = tokenProvider.generateAccessToken(user("alice", User.Role.USER));
+        assertNotNull(tokenProvider.getPrincipalIfValid(token));
+        
+        // Act
+        tokenProvider.revokeAccessToken(token);
+        
+        // Assert
+        assertNull(tokenProvider.getPrincipalIfValid(token));
+        revocations.prune();
+        assertEquals(1, revocations.size());
+    }
+    
+    private static JwtTokenProvider provider(String secret, long expirationMs) {
+        return new JwtTokenProvider(secret, expirationMs, 86_400_000, new TokenRevocationList());
+    }
+    
+    private static User user(String username, User.Role role) {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername(username);
+        user.setEmail(username + "@example.com");
+        user.setPassword("hash");
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,89 @@
+package com.sweetshop.security;
+
+import com.sweetshop.entity.User;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+    
+    private static final String SECRET = "testSecretKeyForJWTTokenGeneration123456789";
+    
+    private final JwtTokenProvider tokenProvider =
+            new JwtTokenProvider(SECRET, 3_600_000, 86_400_000, new TokenRevocationList());
+    private final JwtAuthenticationFilter authenticationFilter = new JwtAuthenticationFilter(tokenProvider);
+    private RateLimitFilter rateLimitFilter;
+    
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.Route route = new RateLimitProperties.Route();
+        route.setPattern("/api/**");
+        route.setCapacity(2);
+        route.setRefillPerSecond(0.001);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setRoutes(List.of(route));
+        rateLimitFilter = new RateLimitFilter(properties);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+    
+    @Test
+    @DisplayName("Forged bearer tokens should share the bucket of their address")
+    void testForgedTokens_ShareAddressBucket() throws Exception {
+        // Act & Assert
+        assertEquals(200, send("10.0.0.1", "Bearer eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJ4In0.forged1"));
+        assertEquals(200, send("10.0.0.1", "Bearer eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJ4In0.forged2"));
+        assertEquals(429, send("10.0.0.1", "Bearer eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJ4In0.forged3"));
+        assertEquals(429, send("10.0.0.1", null));
+        assertEquals(200, send("10.0.0.2", "Bearer eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJ4In0.forged4"));
+    }
+    
+    @Test
+    @DisplayName("A verified user should keep one bucket across tokens and addresses")
+    void testVerifiedUser_KeyedByUserId() throws Exception {
+        // Arrange
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("alice");
+        user.setRole(User.Role.USER);
+        String first = "Bearer " + tokenProvider.generateAccessToken(user);
+        String second = "Bearer " + tokenProvider.generateAccessToken(user);
+        
+        // Act & Assert
+        assertEquals(200, send("10.0.0.1", first));
+        assertEquals(200, send("10.0.0.2", second));
+        assertEquals(429, send("10.0.0.3", first));
+        assertEquals(200, send("10.0.0.1", null));
+    }
+    
+    // runs the request through authentication and then the rate limit, as the security chain does
+    private int send(String remoteAddress, String authorization) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/sweets");
+        request.setRemoteAddr(remoteAddress);
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            authenticationFilter.doFilter(request, response,
+                    (req, res) -> rateLimitFilter.doFilter(req, res, new MockFilterChain()));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response.getStatus();
+    }
+}
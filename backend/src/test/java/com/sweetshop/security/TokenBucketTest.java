@@ -0,0 +1,40 @@
+package com.sweetshop.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+    
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long BURST = 2 * INTERVAL;
+    
+    @Test
+    @DisplayName("Should allow a full burst and then reject with the time to the next token")
+    void testTryAcquire_BurstThenReject() {
+        TokenBucket bucket = new TokenBucket();
+        long now = System.nanoTime();
+        
+        assertEquals(0, bucket.tryAcquire(now, INTERVAL, BURST));
+        assertEquals(0, bucket.tryAcquire(now, INTERVAL, BURST));
+        assertEquals(0, bucket.tryAcquire(now, INTERVAL, BURST));
+        assertEquals(INTERVAL, bucket.tryAcquire(now, INTERVAL, BURST));
+    }
+    
+    @Test
+    @DisplayName("Should refill one token per interval")
+    void testTryAcquire_Refills() {
+        TokenBucket bucket = new TokenBucket();
+        long now = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            bucket.tryAcquire(now, INTERVAL, BURST);
+        }
+        
+        assertTrue(bucket.tryAcquire(now + INTERVAL / 2, INTERVAL, BURST) > 0);
+        assertEquals(0, bucket.tryAcquire(now + INTERVAL, INTERVAL, BURST));
+        assertTrue(bucket.tryAcquire(now + INTERVAL, INTERVAL, BURST) > 0);
+    }
+}
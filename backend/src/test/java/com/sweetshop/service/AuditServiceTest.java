@@ -0,0 +1,114 @@
+package com.sweetshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.event.Actor;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import com.sweetshop.repository.AuditEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditServiceTest {
+    
+    @Mock
+    private AuditEntryRepository auditEntryRepository;
+    
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    
+    private SimpleMeterRegistry meterRegistry;
+    private AuditService auditService;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        auditService = new AuditService(auditEntryRepository, jdbcTemplate, new ObjectMapper(),
+                meterRegistry, 2, 10);
+    }
+    
+    @Test
+    @DisplayName("Should write queued changes with actor and JSON snapshots on flush")
+    @SuppressWarnings("unchecked")
+    void testFlush_WritesQueuedChanges() throws Exception {
+        // Arrange
+        auditService.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Action.RESTOCKED,
+                snapshot(5), snapshot(15), new Actor(1L, "admin"), 3L));
+        verifyNoInteractions(jdbcTemplate);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), eq(1), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    List<Object> rows = invocation.getArgument(1);
+                    ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+                    setter.setValues(ps, rows.get(0));
+                    return new int[0][];
+                });
+        
+        // Act
+        auditService.flush();
+        
+        // Assert
+        verify(ps).setObject(1, 1L, Types.BIGINT);
+        verify(ps).setString(2, "admin");
+        verify(ps).setString(3, "RESTOCKED");
+        verify(ps).setLong(4, 1L);
+        verify(ps).setObject(5, 3L, Types.BIGINT);
+        verify(ps).setString(eq(6), contains("\"quantity\":5"));
+        verify(ps).setString(eq(7), contains("\"quantity\":15"));
+    }
+    
+    @Test
+    @DisplayName("Should skip purchases and drop changes that find the queue full")
+    void testOnSweetChanged_SkipsPurchasesAndDropsOverflow() {
+        // Act
+        auditService.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Action.PURCHASED,
+                snapshot(5), snapshot(4), new Actor(7L, "user"), null));
+        for (int i = 0; i < 3; i++) {
+            auditService.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Action.DELETED,
+                    snapshot(5), null, new Actor(1L, "admin"), null));
+        }
+        
+        // Assert
+        verifyNoInteractions(jdbcTemplate);
+        assertEquals(1.0, meterRegistry.counter("sweetshop.audit.dropped").count());
+        assertEquals(2.0, meterRegistry.get("sweetshop.audit.queued").gauge().value());
+    }
+    
+    @Test
+    @DisplayName("Should keep changes queued when a batch cannot be written")
+    void testFlush_WriteFailureRequeues() {
+        // Arrange
+        auditService.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Action.CREATED,
+                null, snapshot(5), new Actor(1L, "admin"), null));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), eq(1), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+        
+        // Act
+        auditService.flush();
+        
+        // Assert
+        assertEquals(1.0, meterRegistry.get("sweetshop.audit.queued").gauge().value());
+        assertEquals(0.0, meterRegistry.counter("sweetshop.audit.written").count());
+    }
+    
+    private static SweetSnapshot snapshot(int quantity) {
+        return new SweetSnapshot(1L, "Chocolate Bar", "Chocolate", new BigDecimal("2.50"), quantity, null, null);
+    }
+}
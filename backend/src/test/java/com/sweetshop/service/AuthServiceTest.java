@@ -3,8 +3,12 @@ package com.sweetshop.service;
 import com.sweetshop.dto.LoginRequest;
 import com.sweetshop.dto.RegisterRequest;
 import com.sweetshop.entity.User;
+import com.sweetshop.exception.InvalidTokenException;
 import com.sweetshop.exception.UserAlreadyExistsException;
+import com.sweetshop.repository.RefreshTokenRepository;
 import com.sweetshop.repository.UserRepository;
+import com.sweetshop.security.JwtTokenProvider;
+import com.sweetshop.security.RefreshToken;
 import com.sweetshop.security.UserDetailsImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -19,11 +23,13 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +44,12 @@ class AuthServiceTest {
     @Mock
     private AuthenticationManager authenticationManager;
     
+    @Mock
+    private JwtTokenProvider tokenProvider;
+    
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+    
     @InjectMocks
     private AuthService authService;
     
@@ -147,4 +159,34 @@ class AuthServiceTest {
         assertTrue(result.isPresent());
         assertEquals("testuser", result.get().getUsername());
     }
+    
+    @Test
+    @DisplayName("Should record an issued refresh token so that any instance can redeem it")
+    void testIssueRefreshToken_Recorded() {
+        // Arrange
+        LocalDateTime expiresAt = LocalDateTime.now().plusDays(7);
+        when(tokenProvider.generateRefreshToken(user)).thenReturn(new RefreshToken("signed", "jti-1", 1L, expiresAt));
+        
+        // Act
+        String result = authService.issueRefreshToken(user);
+        
+        // Assert
+        assertEquals("signed", result);
+        verify(refreshTokenRepository).insert("jti-1", 1L, expiresAt);
+    }
+    
+    @Test
+    @DisplayName("Should refuse a refresh token whose row was already redeemed")
+    void testRefresh_AlreadyRedeemed() {
+        // Arrange
+        RefreshToken token = new RefreshToken("signed", "jti-1", 1L, LocalDateTime.now().plusDays(7));
+        when(tokenProvider.readRefreshToken("signed")).thenReturn(token);
+        when(refreshTokenRepository.redeem(eq("jti-1"), any(LocalDateTime.class))).thenReturn(1, 0);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        
+        // Act & Assert
+        assertEquals(user, authService.refresh("signed"));
+        assertThrows(InvalidTokenException.class, () -> authService.refresh("signed"));
+        verify(userRepository, times(1)).findById(1L);
+    }
 }
@@ -0,0 +1,60 @@
+package com.sweetshop.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BkTreeTest {
+    
+    @Test
+    @DisplayName("Should find exactly the terms a full scan finds within the radius")
+    void testSearch_MatchesFullScan() {
+        // Arrange
+        Random random = new Random(42);
+        List<String> terms = new ArrayList<>();
+        BkTree tree = new BkTree();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder term = new StringBuilder();
+            for (int length = 3 + random.nextInt(6); term.length() < length; ) {
+                term.append((char) ('a' + random.nextInt(6)));
+            }
+            terms.add(term.toString());
+            tree.add(term.toString());
+        }
+        
+        for (String query : List.of("abc", "fedcba", "aaaa", "bcdefab")) {
+            for (int radius = 0; radius <= 2; radius++) {
+                // Act
+                Set<String> found = new TreeSet<>();
+                tree.search(query, radius, (term, distance) -> found.add(term));
+                
+                // Assert
+                Set<String> expected = new TreeSet<>();
+                for (String term : terms) {
+                    if (BkTree.distance(query, term) <= radius) {
+                        expected.add(term);
+                    }
+                }
+                assertEquals(expected, found, query + " within " + radius);
+            }
+        }
+        assertEquals(new TreeSet<>(terms).size(), tree.size());
+    }
+    
+    @Test
+    @DisplayName("Should count insertions, deletions and substitutions as one edit each")
+    void testDistance() {
+        assertEquals(0, BkTree.distance("fudge", "fudge"));
+        assertEquals(1, BkTree.distance("carmel", "caramel"));
+        assertEquals(1, BkTree.distance("toffee", "toffe"));
+        assertEquals(2, BkTree.distance("fudeg", "fudge"));
+        assertEquals(5, BkTree.distance("", "fudge"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.sweetshop.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandRingTest {
+    
+    @Test
+    @DisplayName("Should deliver every command once and keep each producer's order")
+    void testDrainTo_MultipleProducers() throws Exception {
+        // Arrange
+        int producers = 4;
+        int perProducer = 10_000;
+        CommandRing<long[]> ring = new CommandRing<>(64);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        List<Future<?>> futures = new ArrayList<>();
+        
+        // Act
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    ring.publish(new long[]{producer, i});
+                }
+            }));
+        }
+        long[] next = new long[producers];
+        List<long[]> batch = new ArrayList<>();
+        int received = 0;
+        while (received < producers * perProducer) {
+            ring.drainTo(batch, 128, TimeUnit.MILLISECONDS.toNanos(100));
+            for (long[] command : batch) {
+                assertEquals(next[(int) command[0]]++, command[1]);
+            }
+            received += batch.size();
+            batch.clear();
+        }
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        
+        // Assert
+        for (long count : next) {
+            assertEquals(perProducer, count);
+        }
+        assertEquals(0, ring.size());
+    }
+    
+    @Test
+    @DisplayName("Should reject a capacity that is not a power of two")
+    void testConstructor_InvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new CommandRing<>(100));
+    }
+}
@@ -0,0 +1,168 @@
+package com.sweetshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.dto.SweetResponse;
+import com.sweetshop.entity.IdempotencyRecord;
+import com.sweetshop.exception.IdempotencyConflictException;
+import com.sweetshop.exception.InsufficientStockException;
+import com.sweetshop.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+    
+    @Mock
+    private IdempotencyRecordRepository repository;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private IdempotencyService idempotencyService;
+    private AtomicInteger calls;
+    
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(repository, objectMapper, Duration.ofHours(1), 1000, false);
+        calls = new AtomicInteger();
+    }
+    
+    @Test
+    @DisplayName("Should replay the first response for a repeated key")
+    void testExecute_ReplaysCompletedRequest() {
+        // Act
+        SweetResponse first = idempotencyService.execute("user", "key-1", "purchase:1:2", this::purchase);
+        SweetResponse second = idempotencyService.execute("user", "key-1", "purchase:1:2", this::purchase);
+        
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, calls.get());
+        verifyNoInteractions(repository);
+    }
+    
+    @Test
+    @DisplayName("Should scope keys per user and run without a key")
+    void testExecute_ScopedPerUser() {
+        // Act
+        idempotencyService.execute("user", "key-1", "purchase:1:2", this::purchase);
+        idempotencyService.execute("admin", "key-1", "purchase:1:2", this::purchase);
+        idempotencyService.execute("user", null, "purchase:1:2", this::purchase);
+        
+        // Assert
+        assertEquals(3, calls.get());
+    }
+    
+    @Test
+    @DisplayName("Should reject a key reused for a different request")
+    void testExecute_FingerprintMismatch() {
+        // Arrange
+        idempotencyService.execute("user", "key-1", "purchase:1:2", this::purchase);
+        
+        // Act & Assert
+        assertThrows(IdempotencyConflictException.class,
+                () -> idempotencyService.execute("user", "key-1", "purchase:1:5", this::purchase));
+        assertEquals(1, calls.get());
+    }
+    
+    @Test
+    @DisplayName("Should not record failed requests")
+    void testExecute_FailureNotRecorded() {
+        // Act & Assert
+        assertThrows(InsufficientStockException.class, () -> idempotencyService.execute("user", "key-1",
+                "purchase:1:2", () -> { throw new InsufficientStockException("Insufficient stock"); }));
+        idempotencyService.execute("user", "key-1", "purchase:1:2", this::purchase);
+        assertEquals(1, calls.get());
+    }
+    
+    @Test
+    @DisplayName("Should replay a response persisted by another instance without running the operation")
+    void testExecute_ReplaysPersistedResponse() throws Exception {
+        // Arrange
+        idempotencyService = new IdempotencyService(repository, objectMapper, Duration.ofHours(1), 1000, true);
+        String json = objectMapper.writeValueAsString(response(8));
+        doThrow(new DataIntegrityViolationException("Duplicate key"))
+                .when(repository).insertClaim(anyString(), anyString(), any());
+        when(repository.findById(anyString())).thenReturn(Optional.of(
+                new IdempotencyRecord("hash", "purchase:1:2", json, LocalDateTime.now().minusMinutes(5))));
+        
+        // Act
+        SweetResponse result = idempotencyService.execute("user", "key-1", "purchase:1:2", this::purchase);
+        
+        // Assert
+        assertEquals(8, result.getQuantity());
+        assertEquals(0, calls.get());
+        verify(repository, never()).complete(anyString(), anyString());
+    }
+    
+    @Test
+    @DisplayName("Should refuse a key another instance has claimed and not finished")
+    void testExecute_ClaimedElsewhere() {
+        // Arrange
+        idempotencyService = new IdempotencyService(repository, objectMapper, Duration.ofHours(1), 1000, true);
+        doThrow(new DataIntegrityViolationException("Duplicate key"))
+                .when(repository).insertClaim(anyString(), anyString(), any());
+        when(repository.findById(anyString())).thenReturn(Optional.of(
+                new IdempotencyRecord("hash", "purchase:1:2", null, LocalDateTime.now())));
+        
+        // Act & Assert
+        assertThrows(IdempotencyConflictException.class,
+                () -> idempotencyService.execute("user", "key-1", "purchase:1:2", this::purchase));
+        assertEquals(0, calls.get());
+        verify(repository, never()).deleteById(anyString());
+    }
+    
+    @Test
+    @DisplayName("Should claim a persisted key before the operation and record the response after it")
+    void testExecute_ClaimsBeforeRunning() {
+        // Arrange
+        idempotencyService = new IdempotencyService(repository, objectMapper, Duration.ofHours(1), 1000, true);
+        
+        // Act
+        idempotencyService.execute("user", "key-1", "purchase:1:2", () -> {
+            verify(repository).insertClaim(anyString(), eq("purchase:1:2"), any());
+            return purchase();
+        });
+        
+        // Assert
+        assertEquals(1, calls.get());
+        verify(repository).complete(anyString(), contains("\"quantity\":9"));
+    }
+    
+    @Test
+    @DisplayName("Should release a persisted claim when the operation fails")
+    void testExecute_FailureReleasesClaim() {
+        // Arrange
+        idempotencyService = new IdempotencyService(repository, objectMapper, Duration.ofHours(1), 1000, true);
+        
+        // Act & Assert
+        assertThrows(InsufficientStockException.class, () -> idempotencyService.execute("user", "key-1",
+                "purchase:1:2", () -> { throw new InsufficientStockException("Insufficient stock"); }));
+        verify(repository).deleteById(anyString());
+        verify(repository, never()).complete(anyString(), anyString());
+    }
+    
+    private SweetResponse purchase() {
+        return response(10 - calls.incrementAndGet());
+    }
+    
+    private static SweetResponse response(int quantity) {
+        return new SweetResponse(1L, "Chocolate Bar", "Chocolate", new BigDecimal("2.50"), quantity,
+                "Milk chocolate", null, LocalDateTime.now(), LocalDateTime.now(), 0L);
+    }
+}
@@ -0,0 +1,235 @@
+package com.sweetshop.service;
+
+import com.sweetshop.entity.StoreStock;
+import com.sweetshop.entity.StoreStockId;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.repository.StoreStockRepository;
+import com.sweetshop.repository.SweetRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class InventoryEngineTest {
+    
+    private static final int THREADS = 8;
+    
+    @Mock
+    private SweetService sweetService;
+    
+    @Mock
+    private StoreService storeService;
+    
+    @Mock
+    private SweetRepository sweetRepository;
+    
+    @Mock
+    private StoreStockRepository storeStockRepository;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    private InventoryEngine engine;
+    private Sweet sweet;
+    private StoreStock stock;
+    
+    @BeforeEach
+    void setUp() {
+        sweet = storedSweet();
+        stock = new StoreStock(1L, 1L, 5, 0L, null);
+        
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(sweetRepository.findAll()).thenReturn(List.of(sweet));
+        when(storeStockRepository.findAll()).thenReturn(List.of(stock));
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
+        when(storeStockRepository.findById(new StoreStockId(1L, 1L))).thenReturn(Optional.of(stock));
+        when(storeStockRepository.findBySweetIdOrderByStoreId(1L)).thenReturn(List.of(stock));
+        when(storeService.resolve(null)).thenReturn(1L);
+        when(storeService.resolve(2L)).thenReturn(2L);
+        
+        engine = new InventoryEngine(sweetService, storeService, sweetRepository, storeStockRepository,
+                eventPublisher, transactionManager, new SimpleMeterRegistry(), 64, 16, 5_000, "");
+        engine.start();
+    }
+    
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        engine.stop();
+    }
+    
+    @Test
+    @DisplayName("Should serve concurrent purchases from the model until stock runs out")
+    void testPurchaseSweet_Concurrent() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<PurchaseResult>> futures = new ArrayList<>();
+        
+        // Act
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return engine.purchaseSweet(1L, null, 1);
+            }));
+        }
+        start.countDown();
+        List<PurchaseResult> results = new ArrayList<>();
+        for (Future<PurchaseResult> future : futures) {
+            results.add(future.get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        
+        // Assert
+        assertEquals(5, results.stream().filter(PurchaseResult::isSuccess).count());
+        assertEquals(THREADS - 5, results.stream()
+                .filter(result -> result.getStatus() == PurchaseResult.Status.INSUFFICIENT_STOCK).count());
+        assertEquals(0, stock.getQuantity());
+        assertEquals(0, sweet.getQuantity());
+        verify(eventPublisher, times(5)).publishEvent(any(SweetChangedEvent.class));
+        verify(sweetRepository, never()).adjustQuantity(any(), anyInt());
+        assertEquals(0, engine.getStoreStock(1L).get(0).getQuantity());
+    }
+    
+    @Test
+    @DisplayName("Should restock a store the sweet has no stock at yet and publish its view")
+    void testRestockSweet_NewStore() {
+        // Arrange
+        when(storeStockRepository.findById(new StoreStockId(2L, 1L))).thenReturn(Optional.empty());
+        
+        // Act
+        Sweet result = engine.restockSweet(1L, 2L, 20);
+        
+        // Assert
+        assertEquals(25, result.getQuantity());
+        verify(storeStockRepository).save(new StoreStock(2L, 1L, 20, null, null));
+        List<StoreStock> view = engine.getStoreStock(1L);
+        assertEquals(2, view.size());
+        assertEquals(5, view.get(0).getQuantity());
+        assertEquals(20, view.get(1).getQuantity());
+    }
+    
+    @Test
+    @DisplayName("Should report unknown sweets without touching the database")
+    void testUnknownSweet() {
+        // Act & Assert
+        assertEquals(PurchaseResult.Status.NOT_FOUND, engine.purchaseSweet(99L, null, 1).getStatus());
+        assertThrows(ResourceNotFoundException.class, () -> engine.restockSweet(99L, null, 1));
+        assertThrows(ResourceNotFoundException.class, () -> engine.getStoreStock(99L));
+        verify(sweetRepository, never()).findById(99L);
+    }
+    
+    @Test
+    @DisplayName("Should reload the model and fail the batch when its transaction fails")
+    void testPurchaseSweet_CommitFails() {
+        // Arrange: every load sees the committed rows, as after a rollback
+        when(sweetRepository.findById(1L)).thenAnswer(invocation -> Optional.of(storedSweet()));
+        when(storeStockRepository.findBySweetIdOrderByStoreId(1L))
+                .thenAnswer(invocation -> List.of(new StoreStock(1L, 1L, 5, 0L, null)));
+        when(storeStockRepository.findById(new StoreStockId(1L, 1L)))
+                .thenAnswer(invocation -> Optional.of(new StoreStock(1L, 1L, 5, 0L, null)));
+        doThrow(new IllegalStateException("commit failed")).doNothing().when(transactionManager).commit(any());
+        
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> engine.purchaseSweet(1L, null, 2));
+        assertEquals(5, engine.getStoreStock(1L).get(0).getQuantity());
+        assertTrue(engine.purchaseSweet(1L, null, 5).isSuccess());
+    }
+    
+    @Test
+    @DisplayName("Should reload and retry when the stored stock no longer matches the model")
+    void testPurchaseSweet_StockChangedOutsideEngine() {
+        // Arrange: someone restocked the store by 10 without going through the engine
+        when(sweetRepository.findById(1L)).thenAnswer(invocation -> {
+            Sweet restocked = storedSweet();
+            restocked.setQuantity(15);
+            return Optional.of(restocked);
+        });
+        StoreStock restocked = new StoreStock(1L, 1L, 15, 0L, null);
+        when(storeStockRepository.findById(new StoreStockId(1L, 1L))).thenReturn(Optional.of(restocked));
+        when(storeStockRepository.findBySweetIdOrderByStoreId(1L)).thenReturn(List.of(restocked));
+        
+        // Act
+        PurchaseResult result = engine.purchaseSweet(1L, null, 2);
+        
+        // Assert
+        assertTrue(result.isSuccess());
+        assertEquals(13, result.getSweet().getQuantity());
+        assertEquals(13, restocked.getQuantity());
+        assertEquals(13, engine.getStoreStock(1L).get(0).getQuantity());
+        verify(transactionManager, atLeastOnce()).rollback(any());
+    }
+    
+    @Test
+    @DisplayName("Should refuse to run next to a cluster invalidation bus")
+    void testConstructor_RejectsInvalidationBus() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> new InventoryEngine(sweetService, storeService,
+                sweetRepository, storeStockRepository, eventPublisher, transactionManager,
+                new SimpleMeterRegistry(), 64, 16, 5_000, "outbox"));
+    }
+    
+    @Test
+    @DisplayName("Should fail queued commands and stop taking new ones when the writer fails")
+    void testWriterFailure() {
+        // Arrange
+        when(sweetRepository.findById(1L)).thenThrow(new NoClassDefFoundError("boom"));
+        
+        // Act & Assert
+        assertThrows(NoClassDefFoundError.class, () -> engine.purchaseSweet(1L, null, 1));
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> engine.purchaseSweet(1L, null, 1));
+        assertEquals("Inventory engine is shut down", ex.getMessage());
+    }
+    
+    @Test
+    @DisplayName("Should stop waiting for a command the writer does not answer in time")
+    void testSubmit_Timeout() {
+        // Arrange: never started, so nothing drains the ring
+        InventoryEngine idle = new InventoryEngine(sweetService, storeService, sweetRepository, storeStockRepository,
+                eventPublisher, transactionManager, new SimpleMeterRegistry(), 64, 16, 50, "");
+        
+        // Act & Assert
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> idle.purchaseSweet(1L, null, 1));
+        assertTrue(ex.getMessage().contains("may still be applied"));
+    }
+    
+    private static Sweet storedSweet() {
+        Sweet sweet = new Sweet();
+        sweet.setId(1L);
+        sweet.setName("Toffee");
+        sweet.setCategory("Toffee");
+        sweet.setPrice(new BigDecimal("1.50"));
+        sweet.setQuantity(5);
+        return sweet;
+    }
+}
@@ -0,0 +1,55 @@
+package com.sweetshop.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongIntHashMapTest {
+    
+    @Test
+    @DisplayName("Should agree with a HashMap through random puts and removals")
+    void testOperations_MatchHashMap() {
+        // Arrange
+        Random random = new Random(42);
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        
+        for (int i = 0; i < 200_000; i++) {
+            // a small key range keeps collisions and removals of present keys frequent
+            long key = 1 + random.nextInt(5_000);
+            
+            // Act
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                
+                // Assert
+                assertEquals(removed != null ? removed : LongIntHashMap.MISSING, map.remove(key));
+            } else {
+                int value = random.nextInt(1_000_000);
+                expected.put(key, value);
+                map.put(key, value);
+            }
+        }
+        
+        // Assert
+        assertEquals(expected.size(), map.size());
+        for (long key = 1; key <= 5_000; key++) {
+            assertEquals(expected.getOrDefault(key, LongIntHashMap.MISSING), map.get(key), "key " + key);
+        }
+    }
+    
+    @Test
+    @DisplayName("Should reject keys that are not positive")
+    void testPut_NonPositiveKey() {
+        // Arrange
+        LongIntHashMap map = new LongIntHashMap(4);
+        
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, 1));
+    }
+}
@@ -0,0 +1,128 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.LowStockResponse;
+import com.sweetshop.entity.CategoryThreshold;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.Actor;
+import com.sweetshop.event.StockThresholdCrossedEvent;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import com.sweetshop.repository.CategoryThresholdRepository;
+import com.sweetshop.repository.SweetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LowStockServiceTest {
+    
+    private static final long RETENTION_MS = 600_000;
+    
+    @Mock
+    private SweetRepository sweetRepository;
+    
+    @Mock
+    private CategoryThresholdRepository categoryThresholdRepository;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    private LowStockService lowStockService;
+    
+    @BeforeEach
+    void setUp() {
+        lowStockService = new LowStockService(sweetRepository, categoryThresholdRepository, eventPublisher, 10, RETENTION_MS);
+        when(categoryThresholdRepository.findAll()).thenReturn(
+                Collections.singletonList(new CategoryThreshold("Toffee", 100)));
+        when(sweetRepository.findAll()).thenReturn(Arrays.asList(
+                sweet(1L, "Chocolate", 100, null),
+                sweet(2L, "Chocolate", 5, null),
+                sweet(3L, "Toffee", 80, null),
+                sweet(4L, "Gummy", 30, 40)
+        ));
+        lowStockService.rebuild();
+    }
+    
+    @Test
+    @DisplayName("Should list low-stock sweets ordered by quantity/threshold ratio")
+    void testGetLowStock_OrderedByRatio() {
+        List<LowStockResponse> result = lowStockService.getLowStock(10);
+        
+        assertEquals(3, result.size());
+        assertEquals(2L, result.get(0).getId());
+        assertEquals(4L, result.get(1).getId());
+        assertEquals(3L, result.get(2).getId());
+        assertEquals(100, result.get(2).getThreshold());
+        assertEquals(1, lowStockService.getLowStock(1).size());
+    }
+    
+    @Test
+    @DisplayName("Should publish an event when a purchase crosses the threshold")
+    void testOnSweetChanged_PublishesCrossing() {
+        SweetSnapshot before = new SweetSnapshot(1L, "Sweet 1", "Chocolate", BigDecimal.ONE, 100, null, null);
+        SweetSnapshot after = new SweetSnapshot(1L, "Sweet 1", "Chocolate", BigDecimal.ONE, 8, null, null);
+        
+        lowStockService.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Action.PURCHASED, before, after, Actor.SYSTEM, null));
+        
+        ArgumentCaptor<StockThresholdCrossedEvent> captor = ArgumentCaptor.forClass(StockThresholdCrossedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(captor.capture());
+        assertTrue(captor.getValue().isLow());
+        assertEquals(8, captor.getValue().getQuantity());
+        assertEquals(4, lowStockService.getLowStock(10).size());
+    }
+    
+    @Test
+    @DisplayName("Should ignore a change older than the one already applied")
+    void testOnSweetChanged_IgnoresStaleChange() {
+        SweetSnapshot original = new SweetSnapshot(1L, "Sweet 1", "Chocolate", BigDecimal.ONE, 100, null, 1L);
+        SweetSnapshot purchased = original.withQuantity(8).withVersion(2L);
+        SweetSnapshot restocked = original.withQuantity(60).withVersion(3L);
+        
+        lowStockService.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Action.RESTOCKED, purchased, restocked, Actor.SYSTEM, null));
+        lowStockService.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Action.PURCHASED, original, purchased, Actor.SYSTEM, null));
+        lowStockService.onSweetChanged(SweetChangedEvent.deleted(restocked));
+        lowStockService.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Action.UPDATED, restocked, restocked, Actor.SYSTEM, null));
+        
+        verify(eventPublisher, never()).publishEvent(any());
+        assertEquals(3, lowStockService.getLowStock(10).size());
+        assertTrue(lowStockService.getLowStock(10).stream().noneMatch(entry -> entry.getId() == 1L));
+    }
+    
+    @Test
+    @DisplayName("Should forget a deleted sweet once its marker is older than the retention")
+    void testPurgeDeletedMarkers() {
+        SweetSnapshot original = new SweetSnapshot(2L, "Sweet 2", "Chocolate", BigDecimal.ONE, 5, null, 1L);
+        lowStockService.onSweetChanged(SweetChangedEvent.deleted(original));
+        long now = System.currentTimeMillis();
+        
+        lowStockService.purgeDeletedMarkers(now);
+        assertEquals(1, lowStockService.deletedMarkers());
+        lowStockService.purgeDeletedMarkers(now + RETENTION_MS + 1);
+        assertEquals(0, lowStockService.deletedMarkers());
+        assertTrue(lowStockService.getLowStock(10).stream().noneMatch(entry -> entry.getId() == 2L));
+    }
+    
+    private Sweet sweet(Long id, String category, int quantity, Integer threshold) {
+        Sweet sweet = new Sweet();
+        sweet.setId(id);
+        sweet.setName("Sweet " + id);
+        sweet.setCategory(category);
+        sweet.setPrice(BigDecimal.ONE);
+        sweet.setQuantity(quantity);
+        sweet.setReorderThreshold(threshold);
+        return sweet;
+    }
+}
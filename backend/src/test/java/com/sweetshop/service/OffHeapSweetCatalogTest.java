@@ -0,0 +1,77 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.SweetResponse;
+import com.sweetshop.event.SweetInvalidatedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OffHeapSweetCatalogTest {
+    
+    @TempDir
+    private Path tempDir;
+    
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    
+    @Mock
+    private SweetService sweetService;
+    
+    private OffHeapSweetCatalog catalog;
+    
+    @BeforeEach
+    void setUp() {
+        catalog = new OffHeapSweetCatalog(jdbcTemplate, sweetService, new SimpleMeterRegistry(),
+                tempDir.toString(), 600_000);
+        // an empty fill, so reads are served by the store from here on
+        catalog.rebuild();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        catalog.close();
+    }
+    
+    @Test
+    @DisplayName("Should not bring back a deleted sweet when an older re-read arrives after the delete")
+    void testReload_AfterRemovalIsDropped() {
+        // Arrange
+        SweetResponse stored = sweet(1L, 10, 1L);
+        SweetResponse readBeforeDelete = sweet(1L, 9, 2L);
+        when(jdbcTemplate.query(contains("WHERE id = ?"), any(RowMapper.class), eq(1L)))
+                .thenReturn(List.of(stored), List.of(), List.of(readBeforeDelete));
+        catalog.onSweetInvalidated(new SweetInvalidatedEvent(1L, 1L));
+        assertEquals(10, catalog.getSweet(1L).getQuantity());
+        
+        // Act
+        catalog.onSweetInvalidated(new SweetInvalidatedEvent(1L, null));
+        catalog.onSweetInvalidated(new SweetInvalidatedEvent(1L, 2L));
+        
+        // Assert
+        assertTrue(catalog.getAllSweets().isEmpty());
+        verify(sweetService, never()).getAllSweets();
+    }
+    
+    private static SweetResponse sweet(Long id, int quantity, long version) {
+        return new SweetResponse(id, "Toffee", "Candy", new BigDecimal("1.50"), quantity, null, null,
+                LocalDateTime.of(2024, 1, 1, 0, 0), null, version);
+    }
+}
@@ -0,0 +1,155 @@
+package com.sweetshop.service;
+
+import com.sweetshop.entity.SweetInvalidation;
+import com.sweetshop.event.SweetInvalidatedEvent;
+import com.sweetshop.repository.SweetInvalidationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxInvalidationBusTest {
+    
+    private static final Instant NOW = Instant.parse("2026-10-19T12:00:00Z");
+    
+    @Mock
+    private SweetInvalidationRepository repository;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxInvalidationBus bus;
+    
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(NOW);
+        meterRegistry = new SimpleMeterRegistry();
+        bus = new OutboxInvalidationBus(repository, eventPublisher, meterRegistry, "node-a",
+                Duration.ofSeconds(30), Duration.ofHours(1), 2, clock);
+        when(repository.findMaxId()).thenReturn(10L);
+        bus.poll();
+    }
+    
+    @Test
+    @DisplayName("Should record a change with this node's id")
+    void testPublish() {
+        // Act
+        bus.publish(1L, 3L);
+        
+        // Assert
+        verify(repository).save(new SweetInvalidation(null, 1L, 3L, "node-a", LocalDateTime.ofInstant(NOW, ZoneOffset.UTC)));
+    }
+    
+    @Test
+    @DisplayName("Should apply changes made by other nodes in order and measure their lag")
+    void testPoll_AppliesOtherNodes() {
+        // Arrange
+        clock.now = NOW.plusMillis(150);
+        when(repository.findByIdGreaterThanOrderByIdAsc(eq(10L), any(Pageable.class)))
+                .thenReturn(List.of(row(11L, 1L, "node-b"), row(12L, 2L, "node-a")));
+        when(repository.findByIdGreaterThanOrderByIdAsc(eq(12L), any(Pageable.class)))
+                .thenReturn(List.of(row(13L, 3L, "node-c")));
+        
+        // Act
+        bus.poll();
+        
+        // Assert
+        verify(eventPublisher).publishEvent(new SweetInvalidatedEvent(1L, 7L));
+        verify(eventPublisher).publishEvent(new SweetInvalidatedEvent(3L, 7L));
+        verifyNoMoreInteractions(eventPublisher);
+        assertEquals(2, meterRegistry.timer("sweetshop.invalidation.lag").count());
+        assertEquals(150, meterRegistry.timer("sweetshop.invalidation.lag")
+                .max(TimeUnit.MILLISECONDS));
+    }
+    
+    @Test
+    @DisplayName("Should apply a change that commits after a later one has been applied")
+    void testPoll_LateCommit() {
+        // Arrange
+        when(repository.findByIdGreaterThanOrderByIdAsc(eq(10L), any(Pageable.class)))
+                .thenReturn(List.of(row(12L, 2L, "node-b")));
+        when(repository.findByIdGreaterThanOrderByIdAsc(eq(12L), any(Pageable.class))).thenReturn(List.of());
+        bus.poll();
+        when(repository.findAllById(Set.of(11L))).thenReturn(List.of(row(11L, 1L, "node-b")));
+        
+        // Act
+        bus.poll();
+        bus.poll();
+        
+        // Assert
+        verify(eventPublisher).publishEvent(new SweetInvalidatedEvent(2L, 7L));
+        verify(eventPublisher).publishEvent(new SweetInvalidatedEvent(1L, 7L));
+        verify(repository, times(1)).findAllById(any());
+    }
+    
+    @Test
+    @DisplayName("Should invalidate everything after falling more than the maximum lag behind")
+    void testPoll_Resync() {
+        // Arrange
+        when(repository.findByIdGreaterThanOrderByIdAsc(eq(10L), any(Pageable.class)))
+                .thenThrow(new QueryTimeoutException("database down"));
+        clock.now = NOW.plusSeconds(1);
+        bus.poll();
+        assertEquals(1.0, meterRegistry.get("sweetshop.invalidation.staleness_seconds").gauge().value());
+        clock.now = NOW.plusSeconds(31);
+        when(repository.findMaxId()).thenReturn(500L);
+        
+        // Act
+        bus.poll();
+        
+        // Assert
+        verify(eventPublisher).publishEvent(SweetInvalidatedEvent.all());
+        assertEquals(1, meterRegistry.counter("sweetshop.invalidation.resyncs").count());
+        assertEquals(0.0, meterRegistry.get("sweetshop.invalidation.staleness_seconds").gauge().value());
+    }
+    
+    private static SweetInvalidation row(Long id, Long sweetId, String nodeId) {
+        return new SweetInvalidation(id, sweetId, 7L, nodeId, LocalDateTime.ofInstant(NOW, ZoneOffset.UTC));
+    }
+    
+    private static final class MutableClock extends Clock {
+        private Instant now;
+        
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+        
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+        
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.sweetshop.service;
+
+import com.sweetshop.entity.PriceChange;
+import com.sweetshop.event.Actor;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import com.sweetshop.exception.InvalidRequestException;
+import com.sweetshop.repository.PriceChangeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PriceScheduleServiceTest {
+    
+    private static final Instant NOW = Instant.parse("2026-10-19T12:00:00Z");
+    
+    @Mock
+    private PriceChangeRepository priceChangeRepository;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
+    private MutableClock clock;
+    private PriceScheduleService priceScheduleService;
+    
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(NOW);
+        priceScheduleService = new PriceScheduleService(priceChangeRepository, eventPublisher, clock);
+    }
+    
+    @Test
+    @DisplayName("Should switch to a promotion when it starts and back when it ends")
+    void testPollDue_PromotionStartsAndEnds() {
+        // Arrange
+        givenSchedule(
+                change(1L, "2.50", at(-240), null),
+                change(2L, "1.99", at(1), at(2)));
+        
+        // Act & Assert
+        assertEquals(Map.of(), priceScheduleService.pollDue());
+        clock.now = NOW.plus(Duration.ofHours(1));
+        assertEquals(Map.of(1L, new BigDecimal("1.99")), priceScheduleService.pollDue());
+        clock.now = NOW.plus(Duration.ofMinutes(90));
+        assertEquals(Map.of(), priceScheduleService.pollDue());
+        clock.now = NOW.plus(Duration.ofHours(2));
+        assertEquals(Map.of(1L, new BigDecimal("2.50")), priceScheduleService.pollDue());
+        assertEquals(0, priceScheduleService.getTrackedSweetCount());
+    }
+    
+    @Test
+    @DisplayName("Should let the price that started last win where prices overlap")
+    void testPollDue_LatestStartWins() {
+        // Arrange
+        givenSchedule(
+                change(1L, "2.50", at(-240), null),
+                change(2L, "1.99", at(1), at(5)),
+                change(3L, "3.00", at(3), null));
+        
+        // Act & Assert
+        clock.now = NOW.plus(Duration.ofHours(1));
+        assertEquals(Map.of(1L, new BigDecimal("1.99")), priceScheduleService.pollDue());
+        clock.now = NOW.plus(Duration.ofHours(3));
+        assertEquals(Map.of(1L, new BigDecimal("3.00")), priceScheduleService.pollDue());
+        // the promotion can no longer win, so its end is not a boundary any more
+        assertEquals(0, priceScheduleService.getTrackedSweetCount());
+        clock.now = NOW.plus(Duration.ofHours(6));
+        assertEquals(Map.of(), priceScheduleService.pollDue());
+    }
+    
+    @Test
+    @DisplayName("Should stop tracking a sweet once it is deleted")
+    void testOnSweetChanged_DeletedSweetIsDropped() {
+        // Arrange
+        givenSchedule(
+                change(1L, "2.50", at(-240), null),
+                change(2L, "1.99", at(1), null));
+        SweetSnapshot snapshot = new SweetSnapshot(1L, "Toffee", "Toffee", new BigDecimal("2.50"), 10, null, null);
+        
+        // Act
+        priceScheduleService.onSweetChanged(
+                new SweetChangedEvent(SweetChangedEvent.Action.DELETED, snapshot, null, Actor.SYSTEM, null));
+        clock.now = NOW.plus(Duration.ofHours(1));
+        
+        // Assert
+        assertEquals(0, priceScheduleService.getTrackedSweetCount());
+        assertEquals(Map.of(), priceScheduleService.pollDue());
+    }
+    
+    @Test
+    @DisplayName("Should refuse to cancel a price that has already started")
+    void testCancel_StartedPriceRejected() {
+        // Arrange
+        when(priceChangeRepository.findById(2L)).thenReturn(Optional.of(change(2L, "1.99", at(-1), at(1))));
+        
+        // Act & Assert
+        assertThrows(InvalidRequestException.class, () -> priceScheduleService.cancel(1L, 2L));
+        verify(priceChangeRepository, never()).delete(any());
+        verifyNoInteractions(eventPublisher);
+    }
+    
+    private void givenSchedule(PriceChange... changes) {
+        when(priceChangeRepository.findSweetIdsWithUpcomingChanges(any())).thenReturn(List.of(1L));
+        when(priceChangeRepository.findNotEndedBySweetIds(eq(List.of(1L)), any())).thenReturn(List.of(changes));
+        priceScheduleService.rebuild();
+        assertEquals(1, priceScheduleService.getTrackedSweetCount());
+    }
+    
+    private static PriceChange change(Long id, String price, LocalDateTime from, LocalDateTime to) {
+        return new PriceChange(id, 1L, new BigDecimal(price), from, to, "admin", from);
+    }
+    
+    private static LocalDateTime at(long hoursFromNow) {
+        return LocalDateTime.ofInstant(NOW.plus(Duration.ofHours(hoursFromNow)), ZoneOffset.UTC);
+    }
+    
+    private static final class MutableClock extends Clock {
+        private Instant now;
+        
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+        
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+        
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.sweetshop.service;
+
+import com.sweetshop.entity.Sweet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PurchaseCoalescerTest {
+    
+    private static final int THREADS = 8;
+    
+    @Mock
+    private SweetService sweetService;
+    
+    @Mock
+    private StoreService storeService;
+    
+    private ExecutorService executor;
+    private Sweet sweet;
+    
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+        sweet = new Sweet();
+        sweet.setId(1L);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    @DisplayName("Should apply concurrent purchases of one sweet together and give each caller its own result")
+    void testPurchase_CoalescesConcurrentCallers() throws Exception {
+        // Arrange
+        PurchaseCoalescer coalescer = new PurchaseCoalescer(sweetService, storeService,
+                new SimpleMeterRegistry(), true, 200_000, 64);
+        when(storeService.resolve(null)).thenReturn(1L);
+        AtomicInteger stock = new AtomicInteger(5);
+        List<Integer> batchSizes = new ArrayList<>();
+        when(sweetService.purchaseBatch(eq(1L), eq(1L), anyList())).thenAnswer(invocation -> {
+            List<PurchaseLine> lines = invocation.getArgument(2);
+            synchronized (batchSizes) {
+                batchSizes.add(lines.size());
+            }
+            List<PurchaseResult> results = new ArrayList<>();
+            for (PurchaseLine line : lines) {
+                results.add(stock.get() >= line.getQuantity() && stock.addAndGet(-line.getQuantity()) >= 0
+                        ? PurchaseResult.success(sweet, 1L)
+                        : PurchaseResult.insufficientStock(1L, 1L, stock.get(), line.getQuantity()));
+            }
+            return results;
+        });
+        
+        // Act
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<PurchaseResult>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return coalescer.purchase(1L, null, 1);
+            }));
+        }
+        start.countDown();
+        List<PurchaseResult> results = new ArrayList<>();
+        for (Future<PurchaseResult> future : futures) {
+            results.add(future.get(5, TimeUnit.SECONDS));
+        }
+        
+        // Assert
+        assertEquals(5, results.stream().filter(PurchaseResult::isSuccess).count());
+        assertEquals(THREADS - 5, results.stream()
+                .filter(result -> result.getStatus() == PurchaseResult.Status.INSUFFICIENT_STOCK).count());
+        assertEquals(THREADS, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.size() < THREADS, "expected purchases to share batches: " + batchSizes);
+        verify(sweetService, never()).purchaseSweet(anyLong(), any(), any());
+    }
+    
+    @Test
+    @DisplayName("Should apply a full batch without waiting for the window")
+    void testPurchase_FullBatchDoesNotWait() throws Exception {
+        // Arrange
+        PurchaseCoalescer coalescer = new PurchaseCoalescer(sweetService, storeService,
+                new SimpleMeterRegistry(), true, TimeUnit.SECONDS.toMicros(30), 2);
+        when(storeService.resolve(null)).thenReturn(1L);
+        when(sweetService.purchaseBatch(eq(1L), eq(1L), anyList())).thenAnswer(invocation -> {
+            List<PurchaseLine> lines = invocation.getArgument(2);
+            return lines.stream().map(line -> PurchaseResult.success(sweet, 1L)).toList();
+        });
+        
+        // Act
+        Future<PurchaseResult> first = executor.submit(() -> coalescer.purchase(1L, null, 1));
+        Future<PurchaseResult> second = executor.submit(() -> coalescer.purchase(1L, null, 1));
+        
+        // Assert
+        assertTrue(first.get(5, TimeUnit.SECONDS).isSuccess());
+        assertTrue(second.get(5, TimeUnit.SECONDS).isSuccess());
+    }
+    
+    @Test
+    @DisplayName("Should pass a failure of the batch on to every caller in it")
+    void testPurchase_BatchFailure() {
+        // Arrange
+        PurchaseCoalescer coalescer = new PurchaseCoalescer(sweetService, storeService,
+                new SimpleMeterRegistry(), true, 0, 64);
+        when(storeService.resolve(2L)).thenReturn(2L);
+        when(sweetService.purchaseBatch(eq(1L), eq(2L), anyList())).thenThrow(new IllegalStateException("boom"));
+        
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> coalescer.purchase(1L, 2L, 1));
+    }
+    
+    @Test
+    @DisplayName("Should release every caller in a batch when applying it fails with an error")
+    void testPurchase_BatchError() throws Exception {
+        // Arrange
+        PurchaseCoalescer coalescer = new PurchaseCoalescer(sweetService, storeService,
+                new SimpleMeterRegistry(), true, TimeUnit.SECONDS.toMicros(30), 2);
+        when(storeService.resolve(null)).thenReturn(1L);
+        when(sweetService.purchaseBatch(eq(1L), eq(1L), anyList())).thenThrow(new NoClassDefFoundError("boom"));
+        
+        // Act
+        Future<PurchaseResult> first = executor.submit(() -> coalescer.purchase(1L, null, 1));
+        Future<PurchaseResult> second = executor.submit(() -> coalescer.purchase(1L, null, 1));
+        
+        // Assert
+        for (Future<PurchaseResult> future : List.of(first, second)) {
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(NoClassDefFoundError.class, ex.getCause());
+        }
+    }
+    
+    @Test
+    @DisplayName("Should purchase directly when coalescing is disabled")
+    void testPurchase_Disabled() {
+        // Arrange
+        PurchaseCoalescer coalescer = new PurchaseCoalescer(sweetService, storeService,
+                new SimpleMeterRegistry(), false, 200, 64);
+        when(sweetService.purchaseSweet(1L, null, 3)).thenReturn(PurchaseResult.success(sweet, 1L));
+        
+        // Act
+        PurchaseResult result = coalescer.purchase(1L, null, 3);
+        
+        // Assert
+        assertTrue(result.isSuccess());
+        verify(sweetService, never()).purchaseBatch(anyLong(), anyLong(), anyList());
+        verifyNoInteractions(storeService);
+    }
+}
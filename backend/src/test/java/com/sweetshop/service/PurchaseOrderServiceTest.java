@@ -0,0 +1,137 @@
+package com.sweetshop.service;
+
+import com.sweetshop.entity.PurchaseOrder;
+import com.sweetshop.event.Actor;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import com.sweetshop.repository.PurchaseOrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PurchaseOrderServiceTest {
+    
+    @Mock
+    private PurchaseOrderRepository purchaseOrderRepository;
+    
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    private PurchaseOrderService purchaseOrderService;
+    
+    @BeforeEach
+    void setUp() {
+        purchaseOrderService = new PurchaseOrderService(purchaseOrderRepository, jdbcTemplate, transactionManager,
+                new SimpleMeterRegistry(), false, 2);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+    
+    @Test
+    @DisplayName("Should append a transaction's purchases to the outbox in one batch just before it commits")
+    void testOnSweetChanged_WritesBeforeCommit() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+        purchaseOrderService.onSweetChanged(purchase(new Actor(7L, "user"), 10, 7));
+        purchaseOrderService.onSweetChanged(purchase(new Actor(8L, "other"), 7, 6));
+        verifyNoInteractions(jdbcTemplate);
+        List<PurchaseOrder> written = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO purchase_order_outbox"), anyList(), eq(2),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    written.addAll(invocation.getArgument(1));
+                    return new int[0][];
+                });
+        
+        // Act
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+        synchronizations.forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        
+        // Assert
+        assertEquals(2, written.size());
+        PurchaseOrder first = written.get(0);
+        assertEquals(7L, first.getUserId());
+        assertEquals(3, first.getQuantity());
+        assertEquals(new BigDecimal("7.50"), first.getTotalPrice());
+        assertEquals(8L, written.get(1).getUserId());
+        assertNull(TransactionSynchronizationManager.getResource(purchaseOrderService));
+    }
+    
+    @Test
+    @DisplayName("Should write straight away outside a transaction")
+    void testOnSweetChanged_NoTransaction() {
+        // Act
+        purchaseOrderService.onSweetChanged(purchase(new Actor(7L, "user"), 10, 9));
+        
+        // Assert
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList(), eq(1), any(ParameterizedPreparedStatementSetter.class));
+    }
+    
+    @Test
+    @DisplayName("Should move outbox rows into the history in batches until the outbox is empty")
+    void testDrain_MovesBatches() {
+        // Arrange
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(2)))
+                .thenReturn(List.of(1L, 2L), List.of(3L), List.of());
+        
+        // Act
+        purchaseOrderService.drain();
+        
+        // Assert
+        verify(jdbcTemplate, times(2)).queryForList(contains("SKIP LOCKED"), eq(Long.class), eq(2));
+        verify(jdbcTemplate).update(startsWith("INSERT INTO purchase_orders"), eq(1L), eq(2L));
+        verify(jdbcTemplate).update(startsWith("DELETE FROM purchase_order_outbox"), eq(1L), eq(2L));
+        verify(jdbcTemplate).update(startsWith("INSERT INTO purchase_orders"), eq(3L));
+        verify(jdbcTemplate).update(startsWith("DELETE FROM purchase_order_outbox"), eq(3L));
+        verify(transactionManager, times(2)).commit(any());
+    }
+    
+    @Test
+    @DisplayName("Should ignore restocks and changes without a user")
+    void testOnSweetChanged_IgnoresOtherChanges() {
+        // Act
+        purchaseOrderService.onSweetChanged(purchase(Actor.SYSTEM, 10, 9));
+        purchaseOrderService.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Action.RESTOCKED,
+                snapshot(5), snapshot(10), new Actor(1L, "admin"), null));
+        
+        // Assert
+        verifyNoInteractions(jdbcTemplate);
+    }
+    
+    private static SweetChangedEvent purchase(Actor actor, int before, int after) {
+        return new SweetChangedEvent(SweetChangedEvent.Action.PURCHASED, snapshot(before), snapshot(after), actor, null);
+    }
+    
+    private static SweetSnapshot snapshot(int quantity) {
+        return new SweetSnapshot(1L, "Chocolate Bar", "Chocolate", new BigDecimal("2.50"), quantity, null, null);
+    }
+}
@@ -0,0 +1,133 @@
+package com.sweetshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.dto.HourlySalesResponse;
+import com.sweetshop.dto.SalesWindowResponse;
+import com.sweetshop.dto.TopSellerResponse;
+import com.sweetshop.event.Actor;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import com.sweetshop.exception.InvalidRequestException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SalesAnalyticsServiceTest {
+    
+    private static final Instant NOW = Instant.parse("2026-10-19T12:30:00Z");
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @Test
+    @DisplayName("Should aggregate purchases into rolling windows")
+    void testGetRevenue_RollingWindows() {
+        // Arrange
+        MutableClock clock = new MutableClock(NOW.minus(Duration.ofHours(30)));
+        SalesAnalyticsService service = new SalesAnalyticsService(objectMapper, null, clock);
+        service.onSweetChanged(purchase(1L, "Chocolate", "2.50", 10, 6));
+        clock.now = NOW.minus(Duration.ofHours(2));
+        service.onSweetChanged(purchase(2L, "Gummy", "1.00", 10, 5));
+        clock.now = NOW;
+        service.onSweetChanged(purchase(1L, "Chocolate", "2.50", 6, 5));
+        
+        // Act
+        List<SalesWindowResponse> revenue = service.getRevenue();
+        
+        // Assert
+        assertEquals(new SalesWindowResponse("1h", 1, new BigDecimal("2.50")), revenue.get(0));
+        assertEquals(new SalesWindowResponse("24h", 6, new BigDecimal("7.50")), revenue.get(1));
+        assertEquals(new SalesWindowResponse("7d", 10, new BigDecimal("17.50")), revenue.get(2));
+    }
+    
+    @Test
+    @DisplayName("Should rank top sellers and break down hourly units by category")
+    void testTopSellersAndHourlyCategories() {
+        // Arrange
+        MutableClock clock = new MutableClock(NOW);
+        SalesAnalyticsService service = new SalesAnalyticsService(objectMapper, null, clock);
+        service.onSweetChanged(purchase(1L, "Chocolate", "2.50", 10, 8));
+        service.onSweetChanged(purchase(2L, "Gummy", "1.00", 10, 5));
+        
+        // Act
+        List<TopSellerResponse> top = service.getTopSellers(SalesAnalyticsService.Window.LAST_DAY, 1);
+        List<HourlySalesResponse> hourly = service.getHourlySalesByCategory(3);
+        
+        // Assert
+        assertEquals(1, top.size());
+        assertEquals(2L, top.get(0).getSweetId());
+        assertEquals(5, top.get(0).getUnitsSold());
+        assertEquals(3, hourly.size());
+        assertEquals(0, hourly.get(1).getUnitsSold());
+        assertEquals(7, hourly.get(2).getUnitsSold());
+        assertEquals(2L, hourly.get(2).getUnitsByCategory().get("Chocolate"));
+    }
+    
+    @Test
+    @DisplayName("Should restore aggregates from a checkpoint")
+    void testCheckpointAndRestore(@TempDir Path dir) {
+        // Arrange
+        String path = dir.resolve("analytics.json").toString();
+        MutableClock clock = new MutableClock(NOW);
+        SalesAnalyticsService service = new SalesAnalyticsService(objectMapper, path, clock);
+        service.onSweetChanged(purchase(1L, "Chocolate", "2.50", 10, 7));
+        service.checkpoint();
+        
+        // Act
+        SalesAnalyticsService restored = new SalesAnalyticsService(objectMapper, path, clock);
+        restored.restore();
+        
+        // Assert
+        assertEquals(service.getRevenue(), restored.getRevenue());
+        assertEquals("Milk Chocolate", restored.getTopSellers(SalesAnalyticsService.Window.LAST_HOUR, 5)
+                .get(0).getName());
+    }
+    
+    @Test
+    @DisplayName("Should reject unknown windows")
+    void testWindowFromLabel_Unknown() {
+        assertEquals(SalesAnalyticsService.Window.LAST_WEEK, SalesAnalyticsService.Window.fromLabel("7d"));
+        assertThrows(InvalidRequestException.class, () -> SalesAnalyticsService.Window.fromLabel("2w"));
+    }
+    
+    private static SweetChangedEvent purchase(Long id, String category, String price, int before, int after) {
+        String name = category.equals("Chocolate") ? "Milk Chocolate" : "Gummy Bears";
+        return new SweetChangedEvent(SweetChangedEvent.Action.PURCHASED,
+                new SweetSnapshot(id, name, category, new BigDecimal(price), before, null, null),
+                new SweetSnapshot(id, name, category, new BigDecimal(price), after, null, null),
+                new Actor(7L, "user"), null);
+    }
+    
+    private static final class MutableClock extends Clock {
+        private Instant now;
+        
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+        
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+        
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
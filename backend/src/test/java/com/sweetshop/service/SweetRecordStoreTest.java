@@ -0,0 +1,149 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.SweetResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SweetRecordStoreTest {
+    
+    @TempDir
+    private Path tempDir;
+    
+    private SweetRecordStore store;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new SweetRecordStore(tempDir.resolve("catalog"));
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+    
+    @Test
+    @DisplayName("Should return a stored sweet with every field intact")
+    void testPutAndGet_RoundTrip() {
+        // Arrange
+        SweetResponse sweet = new SweetResponse(7L, "Crème brûlée fudge", "Fudge", new BigDecimal("3.45"), 12,
+                "Rich and creamy", 5, LocalDateTime.of(2024, 3, 1, 10, 15, 30, 123_456_000),
+                LocalDateTime.of(2024, 3, 2, 8, 0), 1L);
+        
+        // Act
+        store.put(sweet);
+        
+        // Assert
+        assertEquals(sweet, store.get(7L));
+        assertNull(store.get(8L));
+    }
+    
+    @Test
+    @DisplayName("Should keep absent description, threshold and update time absent")
+    void testPutAndGet_NullFields() {
+        // Arrange
+        SweetResponse sweet = new SweetResponse(1L, "Toffee", "Toffee", new BigDecimal("0.99"), 0,
+                null, null, LocalDateTime.of(2024, 1, 1, 0, 0), null, 0L);
+        
+        // Act
+        store.put(sweet);
+        
+        // Assert
+        assertEquals(sweet, store.get(1L));
+    }
+    
+    @Test
+    @DisplayName("Should ignore a put carrying an older version than the stored one")
+    void testPut_OlderVersionIgnored() {
+        // Arrange
+        store.put(sweet(1L, "Caramel", 10, 5));
+        
+        // Act
+        store.put(sweet(1L, "Caramel", 3, 4));
+        store.put(sweet(1L, "Salted Caramel", 8, 6));
+        
+        // Assert
+        SweetResponse stored = store.get(1L);
+        assertEquals("Salted Caramel", stored.getName());
+        assertEquals(8, stored.getQuantity());
+    }
+    
+    @Test
+    @DisplayName("Should patch stock in place and ignore a patch older than the stored version")
+    void testPatchStock() {
+        // Arrange
+        store.put(sweet(1L, "Caramel", 10, 5));
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+        
+        // Act
+        boolean patched = store.patchStock(1L, 7, 6, now);
+        store.patchStock(1L, 9, 5, now.plusMinutes(1));
+        
+        // Assert
+        assertTrue(patched);
+        assertFalse(store.patchStock(2L, 1, 1, now));
+        SweetResponse stored = store.get(1L);
+        assertEquals("Caramel", stored.getName());
+        assertEquals(7, stored.getQuantity());
+        assertEquals(6L, stored.getVersion());
+        assertEquals(now, stored.getUpdatedAt());
+    }
+    
+    @Test
+    @DisplayName("Should reuse the slot of a removed sweet and leave it out of iteration")
+    void testRemove_SlotReused() throws IOException {
+        // Arrange
+        store.put(sweet(1L, "Caramel", 1, 0));
+        store.put(sweet(2L, "Nougat", 2, 0));
+        long recordsBytes = Files.size(tempDir.resolve("catalog").resolve("records.bin"));
+        
+        // Act
+        assertTrue(store.remove(1L));
+        assertFalse(store.remove(1L));
+        store.put(sweet(3L, "Truffle", 3, 0));
+        
+        // Assert
+        List<String> names = new ArrayList<>();
+        store.forEach(sweet -> names.add(sweet.getName()));
+        assertEquals(List.of("Truffle", "Nougat"), names);
+        assertEquals(2, store.size());
+        assertNull(store.get(1L));
+        assertEquals(recordsBytes, Files.size(tempDir.resolve("catalog").resolve("records.bin")));
+    }
+    
+    @Test
+    @DisplayName("Should hold many sweets and delete its files on close")
+    void testPut_ManySweets() throws IOException {
+        // Arrange
+        int count = 50_000;
+        
+        // Act
+        for (long id = 1; id <= count; id++) {
+            store.put(sweet(id, "Sweet " + id, (int) id, 0));
+        }
+        
+        // Assert
+        assertEquals(count, store.size());
+        assertEquals("Sweet 31337", store.get(31_337L).getName());
+        store.close();
+        assertFalse(Files.exists(tempDir.resolve("catalog")));
+        store = new SweetRecordStore(tempDir.resolve("catalog"));
+    }
+    
+    private static SweetResponse sweet(Long id, String name, int quantity, long version) {
+        return new SweetResponse(id, name, "Candy", new BigDecimal("1.50"), quantity, null, null,
+                LocalDateTime.of(2024, 1, 1, 0, 0), null, version);
+    }
+}
@@ -0,0 +1,153 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.SearchHitResponse;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.Actor;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import com.sweetshop.repository.SweetRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SweetSearchServiceTest {
+    
+    @Mock
+    private SweetRepository sweetRepository;
+    
+    @Mock
+    private SalesAnalyticsService salesAnalyticsService;
+    
+    private SweetSearchService searchService;
+    
+    @BeforeEach
+    void setUp() {
+        searchService = new SweetSearchService(sweetRepository, salesAnalyticsService, new SimpleMeterRegistry());
+        when(sweetRepository.findAll()).thenReturn(List.of(
+                sweet(1L, "Dark Chocolate Bar", "Chocolate"),
+                sweet(2L, "Milk Chocolate", "Chocolate"),
+                sweet(3L, "Salted Caramel Fudge", "Fudge"),
+                sweet(4L, "Crème Brûlée Truffle", "Truffle")));
+        when(salesAnalyticsService.getUnitsBySweet(SalesAnalyticsService.Window.LAST_WEEK)).thenReturn(Map.of());
+        searchService.rebuild();
+    }
+    
+    @Test
+    @DisplayName("Should complete the last word of the query")
+    void testSearch_Prefix() {
+        // Act & Assert
+        assertEquals(List.of(1L, 2L), ids(searchService.search("choc", 10)));
+        assertEquals(List.of(1L), ids(searchService.search("dark choc", 10)));
+        assertEquals(List.of(), ids(searchService.search("white choc", 10)));
+    }
+    
+    @Test
+    @DisplayName("Should match words with typos and accents")
+    void testSearch_Fuzzy() {
+        // Act & Assert
+        assertEquals(List.of(3L), ids(searchService.search("carmel", 10)));
+        assertEquals(List.of(2L), ids(searchService.search("milk chocolaet", 10)));
+        assertEquals(List.of(4L), ids(searchService.search("creme brulee", 10)));
+        // too short to tolerate an edit
+        assertEquals(List.of(), ids(searchService.search("bra", 10)));
+    }
+    
+    @Test
+    @DisplayName("Should rank equally relevant sweets by popularity")
+    void testSearch_Popularity() {
+        // Arrange
+        when(salesAnalyticsService.getUnitsBySweet(SalesAnalyticsService.Window.LAST_WEEK))
+                .thenReturn(Map.of(1L, 3L, 2L, 500L));
+        
+        // Act
+        List<SearchHitResponse> beforeSales = searchService.search("chocolate", 10);
+        searchService.refreshPopularity();
+        List<SearchHitResponse> afterSales = searchService.search("chocolate", 10);
+        
+        // Assert
+        assertEquals(List.of(1L, 2L), ids(beforeSales));
+        assertEquals(List.of(2L, 1L), ids(afterSales));
+        assertTrue(afterSales.get(0).getScore() > afterSales.get(1).getScore());
+        assertEquals(1, searchService.search("chocolate", 1).size());
+    }
+    
+    @Test
+    @DisplayName("Should rank exact words above typos and names starting with the query first")
+    void testSearch_Relevance() {
+        // Arrange
+        searchService.onSweetChanged(SweetChangedEvent.created(sweet(5L, "Fudge Brownie", "Fudge")));
+        searchService.onSweetChanged(SweetChangedEvent.created(sweet(6L, "Nougat Budge", "Nougat")));
+        
+        // Act
+        List<SearchHitResponse> hits = searchService.search("fudge", 10);
+        
+        // Assert
+        assertEquals(List.of(5L, 3L, 6L), ids(hits));
+    }
+    
+    @Test
+    @DisplayName("Should follow renames and deletions")
+    void testSearch_FollowsChanges() {
+        // Arrange
+        SweetSnapshot before = SweetSnapshot.of(sweet(2L, "Milk Chocolate", "Chocolate"));
+        SweetSnapshot after = SweetSnapshot.of(sweet(2L, "Mint Humbug", "Mints"));
+        
+        // Act
+        searchService.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Action.UPDATED, before, after,
+                Actor.current(), null));
+        searchService.onSweetChanged(SweetChangedEvent.deleted(SweetSnapshot.of(sweet(3L, "Salted Caramel Fudge", "Fudge"))));
+        
+        // Assert
+        assertEquals(List.of(1L), ids(searchService.search("chocolate", 10)));
+        assertEquals(List.of(2L), ids(searchService.search("humbg", 10)));
+        assertEquals("Mints", searchService.search("mint", 10).get(0).getCategory());
+        assertEquals(List.of(), ids(searchService.search("caramel", 10)));
+    }
+    
+    @Test
+    @DisplayName("Should keep the most popular completions of a prefix that completes to many words")
+    void testSearch_PrefixKeepsPopularCompletions() {
+        // Arrange: a hundred "toffee" words, the best seller sorting last
+        List<Sweet> sweets = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            sweets.add(sweet(id, String.format("Toffee%03d", id), "Toffee"));
+        }
+        when(sweetRepository.findAll()).thenReturn(sweets);
+        when(salesAnalyticsService.getUnitsBySweet(SalesAnalyticsService.Window.LAST_WEEK))
+                .thenReturn(Map.of(100L, 50L));
+        searchService.rebuild();
+        
+        // Act
+        List<SearchHitResponse> hits = searchService.search("toff", 5);
+        
+        // Assert
+        assertEquals(100L, hits.get(0).getId());
+    }
+    
+    private static List<Long> ids(List<SearchHitResponse> hits) {
+        return hits.stream().map(SearchHitResponse::getId).toList();
+    }
+    
+    private static Sweet sweet(Long id, String name, String category) {
+        Sweet sweet = new Sweet();
+        sweet.setId(id);
+        sweet.setName(name);
+        sweet.setCategory(category);
+        sweet.setPrice(new BigDecimal("2.00"));
+        sweet.setQuantity(10);
+        return sweet;
+    }
+}
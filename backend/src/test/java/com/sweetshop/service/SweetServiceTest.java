@@ -1,26 +1,41 @@
 package com.sweetshop.service;
 
+import com.sweetshop.dto.PriceScheduleRequest;
 import com.sweetshop.dto.SweetRequest;
+import com.sweetshop.entity.PriceChange;
+import com.sweetshop.entity.StoreStock;
+import com.sweetshop.entity.StoreStockId;
 import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.Actor;
+import com.sweetshop.event.SweetChangedEvent;
 import com.sweetshop.exception.InsufficientStockException;
+import com.sweetshop.exception.InvalidRequestException;
 import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.repository.StoreStockRepository;
 import com.sweetshop.repository.SweetRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,6 +44,18 @@ class SweetServiceTest {
     @Mock
     private SweetRepository sweetRepository;
     
+    @Mock
+    private StoreStockRepository storeStockRepository;
+    
+    @Mock
+    private StoreService storeService;
+    
+    @Mock
+    private PriceScheduleService priceScheduleService;
+    
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    
     @InjectMocks
     private SweetService sweetService;
     
@@ -43,6 +70,7 @@ class SweetServiceTest {
         sweet.setCategory("Chocolate");
         sweet.setPrice(new BigDecimal("2.50"));
         sweet.setQuantity(100);
+        sweet.setVersion(0L);
         sweet.setDescription("Delicious chocolate bar");
         
         sweetRequest = new SweetRequest(
@@ -50,7 +78,8 @@ class SweetServiceTest {
                 "Chocolate",
                 new BigDecimal("2.50"),
                 100,
-                "Delicious chocolate bar"
+                "Delicious chocolate bar",
+                null
         );
     }
     
@@ -70,6 +99,7 @@ class SweetServiceTest {
         assertEquals(new BigDecimal("2.50"), result.getPrice());
         assertEquals(100, result.getQuantity());
         verify(sweetRepository, times(1)).save(any(Sweet.class));
+        verify(eventPublisher, times(1)).publishEvent(any(SweetChangedEvent.class));
     }
     
     @Test
@@ -122,14 +152,15 @@ class SweetServiceTest {
     void testUpdateSweet_Success() {
         // Arrange
         when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
-        when(sweetRepository.save(any(Sweet.class))).thenReturn(sweet);
+        when(sweetRepository.saveAndFlush(any(Sweet.class))).thenReturn(sweet);
         
         SweetRequest updateRequest = new SweetRequest(
                 "Updated Chocolate",
                 "Chocolate",
                 new BigDecimal("3.00"),
                 150,
-                "Updated description"
+                "Updated description",
+                null
         );
         
         // Act
@@ -138,7 +169,25 @@ class SweetServiceTest {
         // Assert
         assertNotNull(result);
         verify(sweetRepository, times(1)).findById(1L);
-        verify(sweetRepository, times(1)).save(any(Sweet.class));
+        verify(sweetRepository, times(1)).saveAndFlush(any(Sweet.class));
+        verify(priceScheduleService).record(eq(1L), eq(new BigDecimal("3.00")), any(LocalDateTime.class), isNull());
+    }
+    
+    @Test
+    @DisplayName("Should refuse an update based on an older version of the sweet")
+    void testUpdateSweet_StaleVersion() {
+        // Arrange
+        sweet.setVersion(3L);
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
+        SweetRequest updateRequest = new SweetRequest("Updated Chocolate", "Chocolate", new BigDecimal("3.00"),
+                150, "Updated description", 2L);
+        
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> sweetService.updateSweet(1L, updateRequest));
+        assertEquals("Chocolate Bar", sweet.getName());
+        verify(sweetRepository, never()).saveAndFlush(any(Sweet.class));
+        verify(eventPublisher, never()).publishEvent(any());
     }
     
     @Test
@@ -157,48 +206,116 @@ class SweetServiceTest {
     }
     
     @Test
-    @DisplayName("Should purchase sweet successfully")
+    @DisplayName("Should purchase sweet from a store and adjust the total")
     void testPurchaseSweet_Success() {
         // Arrange
-        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
-        when(sweetRepository.save(any(Sweet.class))).thenReturn(sweet);
+        StoreStock stock = new StoreStock(2L, 1L, 40, 0L, null);
+        stubAdjustQuantity();
+        when(storeService.resolve(2L)).thenReturn(2L);
+        when(storeStockRepository.findById(new StoreStockId(2L, 1L))).thenReturn(Optional.of(stock));
         
         // Act
-        Sweet result = sweetService.purchaseSweet(1L, 10);
+        PurchaseResult result = sweetService.purchaseSweet(1L, 2L, 10);
         
         // Assert
-        assertNotNull(result);
-        verify(sweetRepository, times(1)).findById(1L);
-        verify(sweetRepository, times(1)).save(any(Sweet.class));
+        assertTrue(result.isSuccess());
+        assertSame(sweet, result.getSweet());
+        assertEquals(30, stock.getQuantity());
+        verify(storeStockRepository, times(1)).save(stock);
+        assertEquals(90, sweet.getQuantity());
+        verify(eventPublisher, times(1)).publishEvent(any(SweetChangedEvent.class));
     }
     
     @Test
-    @DisplayName("Should throw exception when insufficient stock")
+    @DisplayName("Should return insufficient stock without throwing when the store runs out")
     void testPurchaseSweet_InsufficientStock() {
         // Arrange
-        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
+        when(storeService.resolve(null)).thenReturn(1L);
+        when(storeStockRepository.findById(new StoreStockId(1L, 1L)))
+                .thenReturn(Optional.of(new StoreStock(1L, 1L, 5, 0L, null)));
         
-        // Act & Assert
-        assertThrows(InsufficientStockException.class, () -> {
-            sweetService.purchaseSweet(1L, 150);
-        });
-        verify(sweetRepository, never()).save(any(Sweet.class));
+        // Act
+        PurchaseResult result = sweetService.purchaseSweet(1L, null, 10);
+        
+        // Assert
+        assertEquals(PurchaseResult.Status.INSUFFICIENT_STOCK, result.getStatus());
+        assertEquals(5, result.getAvailable());
+        assertEquals(10, result.getRequested());
+        assertInstanceOf(InsufficientStockException.class, result.toException());
+        verify(storeStockRepository, never()).save(any(StoreStock.class));
+        verify(sweetRepository, never()).adjustQuantity(anyLong(), anyInt());
+        verifyNoInteractions(eventPublisher);
     }
     
     @Test
-    @DisplayName("Should restock sweet successfully")
+    @DisplayName("Should return not found when the sweet does not exist")
+    void testPurchaseSweet_NotFound() {
+        // Arrange
+        when(storeService.resolve(null)).thenReturn(1L);
+        when(storeStockRepository.findById(new StoreStockId(1L, 99L))).thenReturn(Optional.empty());
+        when(sweetRepository.findById(99L)).thenReturn(Optional.empty());
+        
+        // Act
+        PurchaseResult result = sweetService.purchaseSweet(99L, null, 1);
+        
+        // Assert
+        assertEquals(PurchaseResult.Status.NOT_FOUND, result.getStatus());
+        assertEquals("Sweet not found with id: 99", result.getMessage());
+        assertInstanceOf(ResourceNotFoundException.class, result.toException());
+        verify(storeStockRepository, never()).save(any(StoreStock.class));
+        verifyNoInteractions(eventPublisher);
+    }
+    
+    @Test
+    @DisplayName("Should serve a purchase batch in order with one stock update and one event per purchase")
+    void testPurchaseBatch_ServesInOrderUntilStockRunsOut() {
+        // Arrange
+        StoreStock stock = new StoreStock(1L, 1L, 10, 0L, null);
+        stubAdjustQuantity();
+        when(storeService.resolve(1L)).thenReturn(1L);
+        when(storeStockRepository.findById(new StoreStockId(1L, 1L))).thenReturn(Optional.of(stock));
+        Actor alice = new Actor(2L, "alice");
+        Actor bob = new Actor(3L, "bob");
+        List<PurchaseLine> lines = List.of(new PurchaseLine(6, alice), new PurchaseLine(5, bob), new PurchaseLine(4, bob));
+        
+        // Act
+        List<PurchaseResult> results = sweetService.purchaseBatch(1L, 1L, lines);
+        
+        // Assert
+        assertEquals(PurchaseResult.Status.SUCCESS, results.get(0).getStatus());
+        assertEquals(PurchaseResult.Status.INSUFFICIENT_STOCK, results.get(1).getStatus());
+        assertEquals(4, results.get(1).getAvailable());
+        assertEquals(PurchaseResult.Status.SUCCESS, results.get(2).getStatus());
+        assertEquals(0, stock.getQuantity());
+        assertEquals(90, sweet.getQuantity());
+        verify(storeStockRepository, times(1)).save(stock);
+        verify(sweetRepository, times(1)).adjustQuantity(1L, -10);
+        
+        ArgumentCaptor<SweetChangedEvent> events = ArgumentCaptor.forClass(SweetChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(alice, events.getAllValues().get(0).getActor());
+        assertEquals(100, events.getAllValues().get(0).getBefore().getQuantity());
+        assertEquals(94, events.getAllValues().get(0).getAfter().getQuantity());
+        assertEquals(bob, events.getAllValues().get(1).getActor());
+        assertEquals(94, events.getAllValues().get(1).getBefore().getQuantity());
+        assertEquals(90, events.getAllValues().get(1).getAfter().getQuantity());
+    }
+    
+    @Test
+    @DisplayName("Should restock a store without stock of the sweet")
     void testRestockSweet_Success() {
         // Arrange
-        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
-        when(sweetRepository.save(any(Sweet.class))).thenReturn(sweet);
+        stubAdjustQuantity();
+        when(storeService.resolve(3L)).thenReturn(3L);
+        when(storeStockRepository.findById(new StoreStockId(3L, 1L))).thenReturn(Optional.empty());
         
         // Act
-        Sweet result = sweetService.restockSweet(1L, 50);
+        Sweet result = sweetService.restockSweet(1L, 3L, 50);
         
         // Assert
         assertNotNull(result);
-        verify(sweetRepository, times(1)).findById(1L);
-        verify(sweetRepository, times(1)).save(any(Sweet.class));
+        verify(storeStockRepository, times(1)).save(new StoreStock(3L, 1L, 50, null, null));
+        assertEquals(150, sweet.getQuantity());
     }
     
     @Test
@@ -209,12 +326,83 @@ class SweetServiceTest {
         when(sweetRepository.searchSweets(anyString(), anyString(), any(), any())).thenReturn(sweets);
         
         // Act
-        List<Sweet> result = sweetService.searchSweets("Chocolate", "Chocolate", 
+        List<Sweet> result = sweetService.searchSweets("Dark Choc", "Chocolate", 
                 new BigDecimal("1.00"), new BigDecimal("5.00"));
         
         // Assert
         assertNotNull(result);
         assertEquals(1, result.size());
-        verify(sweetRepository, times(1)).searchSweets(anyString(), anyString(), any(), any());
+        verify(sweetRepository, times(1)).searchSweets(eq("+dark* +choc*"), eq("Chocolate"), any(), any());
+    }
+    
+    @Test
+    @DisplayName("Should find nothing for a name without a word long enough for the full-text index")
+    void testSearchSweets_OnlyShortWords() {
+        // Act
+        List<Sweet> result = sweetService.searchSweets("a b", null, null, null);
+        
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(sweetRepository, never()).searchSweets(any(), any(), any(), any());
+    }
+    
+    @Test
+    @DisplayName("Should apply a price that starts now and record it with a baseline")
+    void testSchedulePrice_StartsNow() {
+        // Arrange
+        sweet.setCreatedAt(LocalDateTime.now().minusDays(1));
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
+        when(sweetRepository.saveAndFlush(any(Sweet.class))).thenReturn(sweet);
+        when(priceScheduleService.hasHistory(1L)).thenReturn(false);
+        when(priceScheduleService.record(eq(1L), any(BigDecimal.class), any(LocalDateTime.class), isNull()))
+                .thenReturn(new PriceChange());
+        
+        // Act
+        sweetService.schedulePrice(1L, new PriceScheduleRequest(new BigDecimal("1.99"), null, null));
+        
+        // Assert
+        verify(priceScheduleService).record(1L, new BigDecimal("2.50"), sweet.getCreatedAt(), null);
+        verify(priceScheduleService).record(eq(1L), eq(new BigDecimal("1.99")), any(LocalDateTime.class), isNull());
+        assertEquals(new BigDecimal("1.99"), sweet.getPrice());
+        verify(eventPublisher, times(1)).publishEvent(any(SweetChangedEvent.class));
+    }
+    
+    @Test
+    @DisplayName("Should leave the current price alone for a future price")
+    void testSchedulePrice_FutureDoesNotChangePrice() {
+        // Arrange
+        LocalDateTime from = LocalDateTime.now().plusDays(1);
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
+        when(priceScheduleService.hasHistory(1L)).thenReturn(true);
+        
+        // Act
+        sweetService.schedulePrice(1L, new PriceScheduleRequest(new BigDecimal("1.99"), from, from.plusDays(2)));
+        
+        // Assert
+        verify(priceScheduleService).record(1L, new BigDecimal("1.99"), from, from.plusDays(2));
+        assertEquals(new BigDecimal("2.50"), sweet.getPrice());
+        verify(sweetRepository, never()).saveAndFlush(any(Sweet.class));
+    }
+    
+    @Test
+    @DisplayName("Should reject a price that starts in the past")
+    void testSchedulePrice_PastStartRejected() {
+        // Arrange
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet));
+        PriceScheduleRequest request = new PriceScheduleRequest(
+                new BigDecimal("1.99"), LocalDateTime.now().minusHours(1), null);
+        
+        // Act & Assert
+        assertThrows(InvalidRequestException.class, () -> sweetService.schedulePrice(1L, request));
+        verifyNoInteractions(priceScheduleService);
+    }
+    
+    // applies the delta to the test sweet the way the relative update does to the row
+    private void stubAdjustQuantity() {
+        when(sweetRepository.adjustQuantity(eq(1L), anyInt())).thenAnswer(invocation -> {
+            sweet.setQuantity(sweet.getQuantity() + invocation.<Integer>getArgument(1));
+            sweet.setVersion(sweet.getVersion() + 1);
+            return Optional.of(sweet);
+        });
     }
 }
@@ -0,0 +1,158 @@
+package com.sweetshop.service;
+
+import com.sweetshop.dto.CategoryStatsResponse;
+import com.sweetshop.dto.SweetStatsResponse;
+import com.sweetshop.entity.Sweet;
+import com.sweetshop.event.Actor;
+import com.sweetshop.event.SweetChangedEvent;
+import com.sweetshop.event.SweetInvalidatedEvent;
+import com.sweetshop.event.SweetSnapshot;
+import com.sweetshop.repository.SweetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SweetStatsServiceTest {
+    
+    private static final long RETENTION_MS = 600_000;
+    
+    @Mock
+    private SweetRepository sweetRepository;
+    
+    private SweetStatsService sweetStatsService;
+    
+    @BeforeEach
+    void setUp() {
+        sweetStatsService = new SweetStatsService(sweetRepository, RETENTION_MS);
+        when(sweetRepository.findAll()).thenReturn(Arrays.asList(
+                sweet(1L, "Chocolate", "2.50", 100),
+                sweet(2L, "Chocolate", "4.50", 50),
+                sweet(3L, "Gummy", "3.00", 150)
+        ));
+        sweetStatsService.rebuild();
+    }
+    
+    @Test
+    @DisplayName("Should aggregate inventory per category")
+    void testGetStats_AggregatesPerCategory() {
+        SweetStatsResponse stats = sweetStatsService.getStats();
+        
+        assertEquals(3, stats.getItemCount());
+        assertEquals(300, stats.getTotalUnits());
+        assertEquals(0, new BigDecimal("925.00").compareTo(stats.getInventoryValue()));
+        assertEquals(2, stats.getCategories().size());
+        
+        CategoryStatsResponse chocolate = stats.getCategories().get(0);
+        assertEquals("Chocolate", chocolate.getCategory());
+        assertEquals(2, chocolate.getItemCount());
+        assertEquals(150, chocolate.getTotalUnits());
+        assertEquals(new BigDecimal("2.50"), chocolate.getMinPrice());
+        assertEquals(new BigDecimal("4.50"), chocolate.getMaxPrice());
+        assertEquals(new BigDecimal("3.50"), chocolate.getAvgPrice());
+    }
+    
+    @Test
+    @DisplayName("Should apply purchases and deletions incrementally")
+    void testOnSweetChanged_UpdatesAggregates() {
+        SweetSnapshot before = new SweetSnapshot(2L, "Dark", "Chocolate", new BigDecimal("4.50"), 50, null, null);
+        SweetSnapshot after = new SweetSnapshot(2L, "Dark", "Chocolate", new BigDecimal("4.50"), 40, null, null);
+        sweetStatsService.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Action.PURCHASED, before, after, Actor.SYSTEM, null));
+        sweetStatsService.onSweetChanged(SweetChangedEvent.deleted(
+                new SweetSnapshot(3L, "Gummies", "Gummy", new BigDecimal("3.00"), 150, null, null)));
+        
+        SweetStatsResponse stats = sweetStatsService.getStats();
+        
+        assertEquals(2, stats.getItemCount());
+        assertEquals(140, stats.getTotalUnits());
+        assertEquals(1, stats.getCategories().size());
+        assertEquals(new BigDecimal("4.50"), stats.getMaxPrice());
+        verify(sweetRepository, times(1)).findAll();
+    }
+    
+    @Test
+    @DisplayName("Should ignore an event that arrives after a newer one for the same sweet")
+    void testOnSweetChanged_IgnoresStaleEvents() {
+        SweetSnapshot original = new SweetSnapshot(2L, "Dark", "Chocolate", new BigDecimal("4.50"), 50, null, 1L);
+        SweetSnapshot repriced = original.withQuantity(40).withVersion(2L);
+        SweetSnapshot restocked = new SweetSnapshot(2L, "Dark", "Chocolate", new BigDecimal("5.00"), 40, null, 3L);
+        
+        // the later commit's event is delivered first
+        sweetStatsService.onSweetChanged(SweetChangedEvent.changed(SweetChangedEvent.Action.UPDATED, repriced,
+                sweet(2L, "Chocolate", "5.00", 40, 3L)));
+        sweetStatsService.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Action.PURCHASED, original, repriced,
+                Actor.SYSTEM, null));
+        sweetStatsService.onSweetChanged(SweetChangedEvent.deleted(restocked));
+        sweetStatsService.onSweetChanged(new SweetChangedEvent(SweetChangedEvent.Action.UPDATED, repriced, restocked,
+                Actor.SYSTEM, null));
+        
+        SweetStatsResponse stats = sweetStatsService.getStats();
+        
+        CategoryStatsResponse chocolate = stats.getCategories().get(0);
+        assertEquals(1, chocolate.getItemCount());
+        assertEquals(100, chocolate.getTotalUnits());
+        assertEquals(new BigDecimal("2.50"), chocolate.getMaxPrice());
+    }
+    
+    @Test
+    @DisplayName("Should count sweets changed or deleted on another node and rebuild when told everything is stale")
+    void testOnSweetInvalidated() {
+        when(sweetRepository.findById(1L)).thenReturn(Optional.of(sweet(1L, "Gummy", "2.50", 60, 4L)));
+        when(sweetRepository.findById(2L)).thenReturn(Optional.empty());
+        
+        sweetStatsService.onSweetInvalidated(new SweetInvalidatedEvent(1L, 4L));
+        sweetStatsService.onSweetInvalidated(new SweetInvalidatedEvent(2L, 2L));
+        
+        SweetStatsResponse stats = sweetStatsService.getStats();
+        assertEquals(2, stats.getItemCount());
+        assertEquals(210, stats.getTotalUnits());
+        assertEquals(1, stats.getCategories().size());
+        assertEquals("Gummy", stats.getCategories().get(0).getCategory());
+        
+        sweetStatsService.onSweetInvalidated(SweetInvalidatedEvent.all());
+        assertEquals(3, sweetStatsService.getStats().getItemCount());
+        verify(sweetRepository, times(2)).findAll();
+    }
+    
+    @Test
+    @DisplayName("Should purge the marker of a deleted sweet once it is older than the retention")
+    void testPurgeDeletedMarkers() {
+        // Arrange
+        sweetStatsService.onSweetChanged(SweetChangedEvent.deleted(
+                new SweetSnapshot(3L, "Gummies", "Gummy", new BigDecimal("3.00"), 150, null, 1L)));
+        long now = System.currentTimeMillis();
+        
+        // Act & Assert
+        sweetStatsService.purgeDeletedMarkers(now);
+        assertEquals(3, sweetStatsService.trackedSweets());
+        sweetStatsService.purgeDeletedMarkers(now + RETENTION_MS + 1);
+        assertEquals(2, sweetStatsService.trackedSweets());
+        assertEquals(2, sweetStatsService.getStats().getItemCount());
+    }
+    
+    private Sweet sweet(Long id, String category, String price, int quantity, Long version) {
+        Sweet sweet = sweet(id, category, price, quantity);
+        sweet.setVersion(version);
+        return sweet;
+    }
+    
+    private Sweet sweet(Long id, String category, String price, int quantity) {
+        Sweet sweet = new Sweet();
+        sweet.setId(id);
+        sweet.setName("Sweet " + id);
+        sweet.setCategory(category);
+        sweet.setPrice(new BigDecimal(price));
+        sweet.setQuantity(quantity);
+        return sweet;
+    }
+}
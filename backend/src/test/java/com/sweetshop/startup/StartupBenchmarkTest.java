@@ -0,0 +1,170 @@
+package com.sweetshop.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the application in a fresh JVM per run and measures the time from process launch
+ * to the first successful {@code /actuator/health} response. Runs against H2 with the test
+ * profile. The CDS variants are added when {@code mvn package -Pcds} (optionally with
+ * {@code -Paot}) has left {@code target/app.jsa} and the plain jar behind.
+ */
+@Slf4j
+@Tag("startup")
+class StartupBenchmarkTest {
+    
+    private static final String MAIN_CLASS = "com.sweetshop.SweetShopApplication";
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(3);
+    
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(200))
+            .build();
+    
+    @Test
+    @DisplayName("Report time to first request per startup variant")
+    void testTimeToFirstRequest() throws Exception {
+        int runs = Integer.getInteger("startup.runs", 3);
+        Path target = Path.of("target").toAbsolutePath();
+        Path logs = Files.createDirectories(target.resolve("startup"));
+        
+        List<Variant> variants = new ArrayList<>();
+        String testClasspath = System.getProperty("java.class.path");
+        variants.add(new Variant("default", target, testClasspath, List.of(), "test"));
+        variants.add(new Variant("lazy", target, testClasspath, List.of(), "test,lazy"));
+        
+        Path jar = findPlainJar(target);
+        if (jar != null && Files.exists(target.resolve("app.jsa"))) {
+            // the plain jar's manifest pulls in target/lib; H2 and the test profile are appended after it
+            String jarClasspath = String.join(File.pathSeparator, jar.getFileName().toString(),
+                    Path.of(org.h2.Driver.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString(),
+                    "test-classes");
+            boolean aot = hasAotInitializer(jar);
+            // AOT fixes spring.flyway.enabled at build time; point it at no migrations so H2 is left to Hibernate
+            List<String> aotFlag = aot
+                    ? List.of("-Dspring.aot.enabled=true", "-Dspring.flyway.locations=classpath:db/none")
+                    : List.of();
+            variants.add(new Variant("jar", target, jarClasspath, aotFlag, "test"));
+            variants.add(new Variant(aot ? "cds+aot" : "cds", target, jarClasspath,
+                    concat(aotFlag, List.of("-XX:SharedArchiveFile=app.jsa", "-Xlog:cds=error")), "test"));
+        }
+        
+        StringBuilder report = new StringBuilder(String.format("%-10s %6s %12s %12s%n",
+                "variant", "runs", "median ms", "best ms"));
+        for (Variant variant : variants) {
+            long[] millis = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                millis[i] = timeToFirstRequest(variant, logs.resolve(variant.name + "-" + i + ".log"));
+            }
+            Arrays.sort(millis);
+            report.append(String.format("%-10s %6d %12d %12d%n", variant.name, runs, millis[runs / 2], millis[0]));
+        }
+        
+        log.info("Startup results:{}{}", System.lineSeparator(), report);
+        Files.writeString(target.resolve("startup-report.txt"), report.toString());
+    }
+    
+    private long timeToFirstRequest(Variant variant, Path logFile) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(variant.jvmArgs);
+        command.addAll(List.of("-cp", variant.classpath, MAIN_CLASS,
+                "--spring.profiles.active=" + variant.profiles, "--server.port=" + port));
+        
+        HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(variant.workingDirectory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile())
+                .start();
+        try {
+            long deadline = start + STARTUP_TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                assertTrue(process.isAlive(), "Application exited during startup, see " + logFile);
+                try {
+                    if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (IOException ex) {
+                    // not listening yet
+                }
+                Thread.sleep(10);
+            }
+            return fail("No successful request within " + STARTUP_TIMEOUT + ", see " + logFile);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+    
+    private static Path findPlainJar(Path target) throws IOException {
+        if (!Files.isDirectory(target.resolve("lib"))) {
+            return null;
+        }
+        try (var files = Files.list(target)) {
+            return files.filter(path -> path.toString().endsWith(".jar") && !path.toString().endsWith("-exec.jar"))
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+    
+    private static boolean hasAotInitializer(Path jar) throws IOException {
+        try (JarFile file = new JarFile(jar.toFile())) {
+            return file.getEntry(MAIN_CLASS.replace('.', '/') + "__ApplicationContextInitializer.class") != null;
+        }
+    }
+    
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+    
+    private static List<String> concat(List<String> first, List<String> second) {
+        List<String> result = new ArrayList<>(first);
+        result.addAll(second);
+        return result;
+    }
+    
+    private static final class Variant {
+        private final String name;
+        private final Path workingDirectory;
+        private final String classpath;
+        private final List<String> jvmArgs;
+        private final String profiles;
+        
+        private Variant(String name, Path workingDirectory, String classpath, List<String> jvmArgs, String profiles) {
+            this.name = name;
+            this.workingDirectory = workingDirectory;
+            this.classpath = classpath;
+            this.jvmArgs = jvmArgs;
+            this.profiles = profiles;
+        }
+    }
+}
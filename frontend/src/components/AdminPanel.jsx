@@ -47,7 +47,8 @@ const AdminPanel = () => {
     
     try {
       if (editingSweet) {
-        await sweetAPI.update(editingSweet.id, formData);
+        // the version it was read at lets the server refuse to overwrite someone else's edit
+        await sweetAPI.update(editingSweet.id, { ...formData, version: editingSweet.version });
         setSuccess('Sweet updated successfully!');
       } else {
         await sweetAPI.create(formData);
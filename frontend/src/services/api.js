@@ -23,16 +23,46 @@ api.interceptors.request.use(
   }
 );
 
-// Response interceptor to handle errors
+const clearSession = () => {
+  localStorage.removeItem('token');
+  localStorage.removeItem('refreshToken');
+  localStorage.removeItem('user');
+  window.location.href = '/login';
+};
+
+// one refresh at a time; requests that fail meanwhile wait for it
+let refreshing = null;
+
+// Response interceptor: on 401 exchange the refresh token once and retry, otherwise log out
 api.interceptors.response.use(
   (response) => response,
-  (error) => {
-    if (error.response?.status === 401) {
-      localStorage.removeItem('token');
-      localStorage.removeItem('user');
-      window.location.href = '/login';
+  async (error) => {
+    const original = error.config;
+    const refreshToken = localStorage.getItem('refreshToken');
+    if (error.response?.status !== 401 || original._retried || original.url?.startsWith('/auth/')) {
+      if (error.response?.status === 401 && !original.url?.startsWith('/auth/login')) {
+        clearSession();
+      }
+      return Promise.reject(error);
+    }
+    if (!refreshToken) {
+      clearSession();
+      return Promise.reject(error);
+    }
+
+    original._retried = true;
+    try {
+      refreshing = refreshing || api.post('/auth/refresh', { refreshToken }).finally(() => {
+        refreshing = null;
+      });
+      const { data } = await refreshing;
+      localStorage.setItem('token', data.token);
+      localStorage.setItem('refreshToken', data.refreshToken);
+      return api(original);
+    } catch (refreshError) {
+      clearSession();
+      return Promise.reject(refreshError);
     }
-    return Promise.reject(error);
   }
 );
 
@@ -40,6 +70,7 @@ api.interceptors.response.use(
 export const authAPI = {
   register: (data) => api.post('/auth/register', data),
   login: (data) => api.post('/auth/login', data),
+  logout: (refreshToken) => api.post('/auth/logout', { refreshToken }),
 };
 
 // Sweet APIs